@@ -0,0 +1,35 @@
+package benchmark.jmh;
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author Thao P. Nguyen
+ * Runs the JMH benchmarks with the GC profiler always on, which reports the bytes allocated per operation
+ * and the collections made next to each score. Takes the usual JMH command line, e.g. a regexp of benchmarks,
+ * -p to narrow the parameters, -l to list the benchmarks and -h for the other options.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Runner runner = new Runner(new OptionsBuilder()
+                                           .parent(commandLine)
+                                           .addProfiler(GCProfiler.class)
+                                           .build());
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+        } else if (commandLine.shouldList()) {
+            runner.list();
+        } else if (commandLine.shouldListWithParams()) {
+            runner.listWithParams(commandLine);
+        } else {
+            runner.run();
+        }
+    }
+}
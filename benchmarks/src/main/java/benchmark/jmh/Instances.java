@@ -0,0 +1,77 @@
+package benchmark.jmh;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import generator.QueensGenerator;
+import generator.RandomCSPGenerator;
+import generator.SudokuGenerator;
+import reader.BinaryCSP;
+import reader.BinaryCSPTextWriter;
+import reader.FastBinaryCSPReader;
+
+/**
+ * @author Thao P. Nguyen
+ * The problems measured by the JMH benchmarks, named by their @Param values:
+ * "sudokuExtreme" is the instance shipped with the solver, "queens-N" is N-Queens with N variables,
+ * "sudoku-K" a HARD Sudoku of order K, not checked for a unique solution, and "random-N" a model B problem
+ * with N variables of 10 values and half of the pairs constrained, at the predicted phase transition.
+ * The generated problems always use the same seed.
+ * Each problem is also available as a text file, so that the readers can be measured on it.
+ */
+final class Instances {
+    static final String SUDOKU_EXTREME = "sudokuExtreme";
+    private static final String QUEENS_PREFIX = "queens-";
+    private static final String SUDOKU_PREFIX = "sudoku-";
+    private static final String RANDOM_PREFIX = "random-";
+    private static final int RANDOM_DOMAIN_SIZE = 10;
+    private static final double RANDOM_DENSITY = 0.5;
+    // every run measures the same generated problems
+    private static final long SEED = 1;
+
+    private Instances() {
+    }
+
+    /**
+     * @return the name of a text file holding the problem, deleted on exit
+     */
+    static String file(String name) throws IOException {
+        File file = File.createTempFile(name, ".csp");
+        file.deleteOnExit();
+        if (name.equals(SUDOKU_EXTREME)) {
+            try (InputStream in = Instances.class.getResourceAsStream("/instances/sudokuExtreme.csp")) {
+                if (in == null) {
+                    throw new IOException("sudokuExtreme.csp is not on the class path");
+                }
+                Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } else {
+            new BinaryCSPTextWriter().write(problem(name), file.getPath());
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @return the problem parsed, or generated without going through a file
+     */
+    static BinaryCSP problem(String name) throws IOException {
+        if (name.equals(SUDOKU_EXTREME)) {
+            return new FastBinaryCSPReader().readBinaryCSP(file(name));
+        }
+        if (name.startsWith(QUEENS_PREFIX)) {
+            return QueensGenerator.generate(Integer.parseInt(name.substring(QUEENS_PREFIX.length())), false);
+        }
+        if (name.startsWith(SUDOKU_PREFIX)) {
+            int order = Integer.parseInt(name.substring(SUDOKU_PREFIX.length()));
+            return new SudokuGenerator(order, false).generate(SudokuGenerator.Difficulty.HARD, false, SEED);
+        }
+        if (name.startsWith(RANDOM_PREFIX)) {
+            int n = Integer.parseInt(name.substring(RANDOM_PREFIX.length()));
+            double tightness = RandomCSPGenerator.criticalTightness(n, RANDOM_DOMAIN_SIZE, RANDOM_DENSITY);
+            return new RandomCSPGenerator(n, RANDOM_DOMAIN_SIZE, RANDOM_DENSITY, tightness).generate(SEED);
+        }
+        throw new IllegalArgumentException("Unknown instance " + name);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmark.jmh;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reader.BinaryCSP;
+import solver.ArcsCurator;
+import solver.MACSolver;
+import solver.OrderingStrategy;
+import solver.RevisionAlgorithm;
+
+/**
+ * @author Thao P. Nguyen
+ * MACSolver propagation at the root: a new solver over arcs compiled once establishes arc consistency
+ * on the whole problem, with each revision algorithm, before any variable is assigned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagationBenchmark {
+    @Param({"sudokuExtreme", "queens-8", "queens-16", "queens-32", "random-30"})
+    public String instance;
+
+    @Param({"AC3", "AC2001", "AC3RM"})
+    public RevisionAlgorithm algorithm;
+
+    private BinaryCSP csp;
+    private ArcsCurator arcsCurator;
+
+    @Setup
+    public void setup() throws IOException {
+        csp = Instances.problem(instance);
+        arcsCurator = new ArcsCurator(csp);
+    }
+
+    /**
+     * @return whether the problem is still consistent
+     */
+    @Benchmark
+    public boolean initialConsistency() {
+        MACSolver solver = new MACSolver(csp, arcsCurator, algorithm);
+        solver.setPrintStats(false);
+        return solver.startSubtrees(OrderingStrategy.DOM);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmark.jmh;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reader.BinaryCSP;
+import solver.Arc;
+import solver.ArcsCurator;
+import solver.Variable;
+
+/**
+ * @author Thao P. Nguyen
+ * Variable.pruneDomain over every compiled arc of a problem, each against its second variable assigned its first
+ * value, the pruned domains being restored with unprune so that every invocation revises the same domains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PruneDomainBenchmark {
+    @Param({"sudokuExtreme", "queens-8", "queens-16", "queens-32"})
+    public String instance;
+
+    private Arc[] arcs;
+    // one pair of variables per arc
+    private Variable[] firstVars;
+    private Variable[] secondVars;
+
+    @Setup
+    public void setup() throws IOException {
+        BinaryCSP csp = Instances.problem(instance);
+        arcs = new ArcsCurator(csp).getAllArcs().toArray(new Arc[0]);
+        firstVars = new Variable[arcs.length];
+        secondVars = new Variable[arcs.length];
+        for (int i = 0; i < arcs.length; i++) {
+            int first = arcs[i].getFirstVar();
+            int second = arcs[i].getSecondVar();
+            firstVars[i] = new Variable(first, csp.getLB(first), csp.getUB(first));
+            secondVars[i] = new Variable(second, csp.getLB(second), csp.getUB(second));
+            secondVars[i].assignFirstVal();
+        }
+    }
+
+    /**
+     * @return the number of domains changed
+     */
+    @Benchmark
+    public int pruneAll() {
+        int changed = 0;
+        for (int i = 0; i < arcs.length; i++) {
+            if (firstVars[i].pruneDomain(arcs[i], secondVars[i])) {
+                firstVars[i].unprune();
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
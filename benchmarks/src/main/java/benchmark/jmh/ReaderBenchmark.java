@@ -0,0 +1,53 @@
+package benchmark.jmh;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reader.BinaryCSP;
+import reader.BinaryCSPReader;
+import reader.FastBinaryCSPReader;
+
+/**
+ * @author Thao P. Nguyen
+ * Time to parse a text instance with the StreamTokenizer-based BinaryCSPReader and with the FastBinaryCSPReader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReaderBenchmark {
+    @Param({"sudokuExtreme", "queens-8", "queens-16", "queens-32"})
+    public String instance;
+
+    private String fileName;
+    private final BinaryCSPReader tokenizer = new BinaryCSPReader();
+    private final FastBinaryCSPReader fast = new FastBinaryCSPReader();
+
+    @Setup
+    public void setup() throws IOException {
+        fileName = Instances.file(instance);
+    }
+
+    @Benchmark
+    public BinaryCSP tokenizer() {
+        return tokenizer.readBinaryCSP(fileName);
+    }
+
+    @Benchmark
+    public BinaryCSP fast() {
+        return fast.readBinaryCSP(fileName);
+    }
+}
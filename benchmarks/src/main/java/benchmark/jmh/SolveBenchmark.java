@@ -0,0 +1,61 @@
+package benchmark.jmh;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import reader.BinaryCSP;
+import solver.ArcsCurator;
+import solver.MACSolver;
+import solver.OrderingStrategy;
+import solver.RevisionAlgorithm;
+
+/**
+ * @author Thao P. Nguyen
+ * Full solves by MAC with the smallest-domain ordering, counting every solution without keeping them,
+ * over arcs compiled once so that only the search is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({"sudokuExtreme", "queens-8", "queens-10", "queens-12", "random-30"})
+    public String instance;
+
+    @Param({"AC3", "AC3RM"})
+    public RevisionAlgorithm algorithm;
+
+    private BinaryCSP csp;
+    private ArcsCurator arcsCurator;
+
+    @Setup
+    public void setup() throws IOException {
+        csp = Instances.problem(instance);
+        arcsCurator = new ArcsCurator(csp);
+    }
+
+    /**
+     * @return the solution count
+     */
+    @Benchmark
+    public long countSolutions() {
+        MACSolver solver = new MACSolver(csp, arcsCurator, algorithm);
+        solver.setPrintStats(false);
+        solver.setCountOnly(true);
+        solver.solve(OrderingStrategy.DOM, false);
+        return solver.getSolutionCounts();
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+import java.util.ArrayList;
+
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.BinaryTuple;
+import solver.Arc;
+import solver.ArcsCurator;
+import solver.TupleListRelation;
+import solver.Variable;
+
+/**
+ * @author Thao P. Nguyen
+ * Microbenchmark of arc revision throughput.
+ * Revises every arc of each problem against an assigned second variable, 
+ * once with the original tuple-list scans and once with the relations compiled by ArcsCurator,
+ * reporting the time of a round of revisions and their throughput.
+ */
+public class ArcRevisionBenchmark {
+
+    /**
+     * @param args <files.csp> [-rounds <n>]
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(ArcRevisionBenchmark.class, "<files.csp> [-rounds <n>]",
+                                                          args, "-rounds");
+        if (harness == null) {
+            return;
+        }
+        int rounds = harness.getInt("-rounds", 50);
+        harness.printHeader("%-30s %-12s %10d %10.3f %14.0f", "instance", "relations", "revisions", "ms",
+                            "revisions/s");
+        for (String fileName : harness.getOperands()) {
+            BinaryCSP csp = BenchmarkHarness.read(fileName);
+            ArrayList<Arc> tupleArcs = new ArrayList<>();
+            for (BinaryConstraint c : csp.getConstraints()) {
+                ArrayList<BinaryTuple> reversedTuples = new ArrayList<>();
+                for (BinaryTuple t : c.getTuples()) {
+                    reversedTuples.add(t.getReversedTuple());
+                }
+                tupleArcs.add(new Arc(tupleArcs.size(), c.getFirstVar(), c.getSecondVar(), 
+                                      new TupleListRelation(c.getTuples())));
+                tupleArcs.add(new Arc(tupleArcs.size(), c.getSecondVar(), c.getFirstVar(), 
+                                      new TupleListRelation(reversedTuples)));
+            }
+            ArrayList<Arc> compiledArcs = new ArrayList<>(new ArcsCurator(csp).getAllArcs());
+
+            report(harness, fileName, "tuple scan", csp, tupleArcs, rounds);
+            report(harness, fileName, "compiled", csp, compiledArcs, rounds);
+        }
+    }
+
+    private static void report(BenchmarkHarness harness, String fileName, String name, BinaryCSP csp,
+                               ArrayList<Arc> arcs, int rounds) {
+        // one pair of variables per arc, the second one assigned its first value
+        Variable[] firstVars = new Variable[arcs.size()];
+        Variable[] secondVars = new Variable[arcs.size()];
+        for (int i = 0; i < arcs.size(); i++) {
+            int first = arcs.get(i).getFirstVar();
+            int second = arcs.get(i).getSecondVar();
+            firstVars[i] = new Variable(first, csp.getLB(first), csp.getUB(first));
+            secondVars[i] = new Variable(second, csp.getLB(second), csp.getUB(second));
+            secondVars[i].assignFirstVal();
+        }
+
+        double millis = BenchmarkHarness.averageMillis(rounds, () -> reviseAll(arcs, firstVars, secondVars));
+        harness.printRow(fileName, name, arcs.size(), millis, arcs.size() / millis * 1e3);
+    }
+
+    /**
+     * Revise each arc against its assigned second variable, then restore the first variable's domain.
+     */
+    private static void reviseAll(ArrayList<Arc> arcs, Variable[] firstVars, Variable[] secondVars) {
+        for (int i = 0; i < arcs.size(); i++) {
+            if (firstVars[i].pruneDomain(arcs.get(i), secondVars[i])) {
+                firstVars[i].unprune();
+            }
+        }
+    }
+}
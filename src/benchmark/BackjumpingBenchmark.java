@@ -0,0 +1,42 @@
+package benchmark;
+
+import reader.BinaryCSP;
+import solver.CBJSolver;
+import solver.FCSolver;
+import solver.OrderingStrategy;
+
+/**
+ * @author Thao P. Nguyen
+ * Compare forward checking with and without conflict-directed backjumping on the given problems.
+ * Both solvers count all solutions with each variable ordering; the nodes saved by backjumping are reported
+ * along with its backjumps and the frames they skipped.
+ */
+public class BackjumpingBenchmark {
+
+    /**
+     * @param args <files.csp>
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(BackjumpingBenchmark.class, "<files.csp>", args);
+        if (harness == null) {
+            return;
+        }
+        harness.printHeader("%-30s %-10s %10d %10d %7.1f%% %10d %10d %8d %8d", "instance", "ordering", "FC nodes",
+                            "CBJ nodes", "saved", "backjumps", "skipped", "FC ms", "CBJ ms");
+        for (String fileName : harness.getOperands()) {
+            BinaryCSP csp = BenchmarkHarness.read(fileName);
+            for (OrderingStrategy ordering : OrderingStrategy.values()) {
+                FCSolver fc = BenchmarkHarness.countSolutions(new FCSolver(csp), ordering);
+                CBJSolver cbj = BenchmarkHarness.countSolutions(new CBJSolver(csp), ordering);
+                if (fc.getSolutionCounts() != cbj.getSolutionCounts()) {
+                    System.out.println(fileName + ": solution counts differ, " + fc.getSolutionCounts() 
+                                       + " with FC and " + cbj.getSolutionCounts() + " with CBJ");
+                }
+                double saved = 100.0 * (fc.getNodeCounts() - cbj.getNodeCounts()) / Math.max(1, fc.getNodeCounts());
+                harness.printRow(fileName, ordering, fc.getNodeCounts(), cbj.getNodeCounts(), saved,
+                                 cbj.getBackjumpCounts(), cbj.getSkippedFrameCounts(),
+                                 fc.getTimeTaken(), cbj.getTimeTaken());
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import reader.BinaryCSP;
+import reader.FastBinaryCSPReader;
+import solver.OrderingStrategy;
+import solver.Solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Command line, timing and table printing shared by the benchmarks of this package.
+ *
+ * The arguments of a benchmark are its operands, such as the problems to solve, along with flags and options
+ * followed by a value. Timed runs are repeated after a few warm-up runs, so that the JIT has compiled them.
+ * Each benchmark prints one table, whose header is derived from the format of its rows.
+ */
+final class BenchmarkHarness {
+    private static final int WARMUP_ROUNDS = 3;
+    // a conversion of a row format, with the percent sign printed after it if any
+    private static final Pattern CONVERSION = Pattern.compile("%(-?)(\\d+)(\\.\\d+)?[dfs](%%)?");
+
+    private final List<String> args;
+    private final ArrayList<String> operands = new ArrayList<>();
+    private String rowFormat;
+
+    private BenchmarkHarness(String[] args, String[] valueOptions) {
+        this.args = Arrays.asList(args);
+        List<String> options = Arrays.asList(valueOptions);
+        for (int i = 0; i < args.length; i++) {
+            if (options.contains(args[i])) {
+                i++;
+            } else if (!args[i].startsWith("-")) {
+                operands.add(args[i]);
+            }
+        }
+    }
+
+    /**
+     * Read the arguments of a benchmark, or print its usage if no operand is given.
+     * @param benchmark the main class of the benchmark
+     * @param usage the arguments the benchmark takes
+     * @param valueOptions the options followed by a value
+     * @return the harness of the benchmark, null if there is no operand
+     */
+    static BenchmarkHarness parse(Class<?> benchmark, String usage, String[] args, String... valueOptions) {
+        BenchmarkHarness harness = new BenchmarkHarness(args, valueOptions);
+        if (harness.operands.isEmpty()) {
+            System.out.println("Usage: java " + benchmark.getName() + " " + usage);
+            return null;
+        }
+        return harness;
+    }
+
+    /**
+     * @return the arguments that are neither flags, options nor their values, in order
+     */
+    List<String> getOperands() {
+        return operands;
+    }
+
+    boolean hasFlag(String flag) {
+        return args.contains(flag);
+    }
+
+    /**
+     * @return the value following the given option, or the default value if the option is not given
+     */
+    int getInt(String option, int defaultValue) {
+        int i = args.indexOf(option);
+        return i >= 0 && i + 1 < args.size() ? Integer.parseInt(args.get(i + 1)) : defaultValue;
+    }
+
+    /**
+     * Print the header of the table, each name as wide as the column of the given row format.
+     */
+    void printHeader(String rowFormat, String... names) {
+        this.rowFormat = rowFormat;
+        Matcher conversion = CONVERSION.matcher(rowFormat);
+        StringBuffer header = new StringBuffer();
+        while (conversion.find()) {
+            int width = Integer.parseInt(conversion.group(2)) + (conversion.group(4) == null ? 0 : 1);
+            conversion.appendReplacement(header, "%" + conversion.group(1) + width + "s");
+        }
+        conversion.appendTail(header);
+        System.out.println(String.format(header.toString(), (Object[]) names));
+    }
+
+    /**
+     * Print a row of the table with the format given to printHeader.
+     */
+    void printRow(Object... values) {
+        System.out.println(String.format(rowFormat, values));
+    }
+
+    static BinaryCSP read(String fileName) {
+        return new FastBinaryCSPReader().readBinaryCSP(fileName);
+    }
+
+    /**
+     * Count all solutions of the solver without printing them or its stats.
+     * @return the given solver
+     */
+    static <S extends Solver> S countSolutions(S solver, OrderingStrategy ordering) {
+        solver.setPrintStats(false);
+        solver.setCountOnly(true);
+        solver.solve(ordering, false);
+        return solver;
+    }
+
+    /**
+     * Run the given task for the warm-up rounds, then for the given rounds.
+     * @return the average time of the timed rounds, in ms
+     */
+    static double averageMillis(int rounds, Runnable task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - started) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import generator.QueensGenerator;
+import reader.BinaryCSP;
+import solver.OrderingStrategy;
+import solver.RevisionAlgorithm;
+import solver.Solver;
+import solver.SolverConfiguration;
+
+/**
+ * @author Thao P. Nguyen
+ * N-Queens modelled with enumerated tuples against the same model with one distne(i, j, 0, j - i)
+ * constraint per pair of queens. Both models are solved by FC and MAC, counting all solutions or stopping
+ * at the first one; the intensional constraints prune exactly the same values, so the node counts must agree.
+ * The time to compile the arcs of each model and the time to search are reported.
+ */
+public class IntensionalBenchmark {
+
+    /**
+     * @param args <n> for each N-Queens problem, [-first-solution]
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(IntensionalBenchmark.class, "<n>... [-first-solution]", 
+                                                          args);
+        if (harness == null) {
+            return;
+        }
+        boolean firstSolution = harness.hasFlag("-first-solution");
+        harness.printHeader("%-12s %-8s %-12s %12d %12d %10.1f %10d", "instance", "solver", "model", "solutions",
+                            "nodes", "arcs ms", "search ms");
+        for (String arg : harness.getOperands()) {
+            int n = Integer.parseInt(arg);
+            BinaryCSP tuples = QueensGenerator.generate(n, false);
+            BinaryCSP intensional = QueensGenerator.generate(n, true);
+            for (boolean forwardChecking : new boolean[] {true, false}) {
+                SolverConfiguration configuration = new SolverConfiguration(forwardChecking, OrderingStrategy.DOM,
+                                                                            RevisionAlgorithm.AC3);
+                if (firstSolution) {
+                    configuration.setMaxSolutions(1);
+                }
+                // warm up the JIT on both models before timing
+                report(harness, n, configuration, "tuples", tuples, false);
+                report(harness, n, configuration, "intensional", intensional, false);
+                long[] extensionalStats = report(harness, n, configuration, "tuples", tuples, true);
+                long[] intensionalStats = report(harness, n, configuration, "intensional", intensional, true);
+                if (extensionalStats[0] != intensionalStats[0] || extensionalStats[1] != intensionalStats[1]) {
+                    System.out.println(n + "-queens: the models disagree");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the solution and node counts
+     */
+    private static long[] report(BenchmarkHarness harness, int n, SolverConfiguration configuration, String model,
+                                 BinaryCSP csp, boolean print) {
+        long started = System.nanoTime();
+        Solver solver = configuration.createSolver(csp);
+        double arcsMillis = (System.nanoTime() - started) / 1e6;
+        BenchmarkHarness.countSolutions(solver, configuration.getOrdering());
+        if (print) {
+            harness.printRow(n + "-queens", configuration.isForwardChecking() ? "FC" : "MAC", model,
+                             solver.getSolutionCounts(), solver.getNodeCounts(), arcsMillis, solver.getTimeTaken());
+        }
+        return new long[] {solver.getSolutionCounts(), solver.getNodeCounts()};
+    }
+}
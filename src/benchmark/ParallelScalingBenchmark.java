@@ -0,0 +1,76 @@
+package benchmark;
+import java.util.ArrayList;
+import java.util.List;
+
+import generator.QueensGenerator;
+import reader.BinaryCSP;
+import solver.OrderingStrategy;
+import solver.ParallelSolver;
+import solver.RevisionAlgorithm;
+import solver.SolverConfiguration;
+
+/**
+ * @author Thao P. Nguyen
+ * Scaling benchmark of ParallelSolver from 1 to N threads.
+ * Every solution of each problem is counted with MAC, on the given files and on N-Queens of increasing size.
+ * A problem whose search tree does not widen is solved sequentially, with no subproblems.
+ */
+public class ParallelScalingBenchmark {
+    private static final int[] QUEENS_SIZES = {8, 10, 11, 12};
+
+    /**
+     * @param args <max threads> [files.csp]
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(ParallelScalingBenchmark.class, 
+                                                          "<max threads> [files.csp]", args);
+        if (harness == null) {
+            return;
+        }
+        List<String> operands = harness.getOperands();
+        int maxThreads = Integer.parseInt(operands.get(0));
+        harness.printHeader("%-30s %8d %12d %10d %12d %8d %8.2f", "instance", "threads", "subproblems", "solutions",
+                            "nodes", "ms", "speedup");
+        for (String fileName : operands.subList(1, operands.size())) {
+            report(harness, fileName, BenchmarkHarness.read(fileName), maxThreads);
+        }
+        for (int n : QUEENS_SIZES) {
+            report(harness, n + "-queens", QueensGenerator.generate(n, false), maxThreads);
+        }
+    }
+
+    private static void report(BenchmarkHarness harness, String name, BinaryCSP csp, int maxThreads) {
+        // warm up the JIT before timing
+        run(csp, 1);
+        long baseline = 0;
+        for (int threads : threadCounts(maxThreads)) {
+            ParallelSolver solver = run(csp, threads);
+            if (threads == 1) {
+                baseline = Math.max(solver.getTimeTaken(), 1);
+            }
+            harness.printRow(name, threads, solver.getSubproblemCounts(), solver.getSolutionCounts(),
+                             solver.getNodeCounts(), solver.getTimeTaken(),
+                             (double) baseline / Math.max(solver.getTimeTaken(), 1));
+        }
+    }
+
+    private static ParallelSolver run(BinaryCSP csp, int threads) {
+        SolverConfiguration configuration = new SolverConfiguration(false, OrderingStrategy.DOM, RevisionAlgorithm.AC3);
+        ParallelSolver solver = new ParallelSolver(csp, configuration, threads);
+        solver.setPrintStats(false);
+        solver.solve(false);
+        return solver;
+    }
+
+    /**
+     * Powers of 2 up to maxThreads, followed by maxThreads itself.
+     */
+    private static ArrayList<Integer> threadCounts(int maxThreads) {
+        ArrayList<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+}
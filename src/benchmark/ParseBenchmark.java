@@ -0,0 +1,123 @@
+package benchmark;
+import java.io.File;
+import java.io.IOException;
+
+import reader.BinaryCSP;
+import reader.BinaryCSPFormat;
+import reader.BinaryCSPReader;
+import reader.BinaryCSPWriter;
+import reader.BinaryConstraint;
+import reader.FastBinaryCSPReader;
+import reader.MappedBinaryCSPReader;
+import solver.ArcsCurator;
+
+/**
+ * @author Thao P. Nguyen
+ * Parse throughput of the StreamTokenizer-based BinaryCSPReader against the FastBinaryCSPReader,
+ * and load time of the same problem converted to the binary format and mapped by MappedBinaryCSPReader,
+ * or streamed straight into the relations of its arcs.
+ * Each file is read by every reader, which must agree on every domain, scope and tuple,
+ * then timed over several rounds after a warm-up, reporting ms per load, MB/s of text and tuples/s.
+ */
+public class ParseBenchmark {
+
+    /**
+     * @param args <files.csp> [-rounds <n>]
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(ParseBenchmark.class, "<files.csp> [-rounds <n>]", args,
+                                                          "-rounds");
+        if (harness == null) {
+            return;
+        }
+        int rounds = harness.getInt("-rounds", 10);
+        harness.printHeader("%-30s %-12s %10.2f %12d %10.3f %10.1f %14.0f", "instance", "reader", "MB", "tuples", 
+                            "ms", "MB/s", "tuples/s");
+        for (String fileName : harness.getOperands()) {
+            BinaryCSP expected = new BinaryCSPReader().readBinaryCSP(fileName);
+            BinaryCSP parsed = BenchmarkHarness.read(fileName);
+            if (!sameProblem(expected, parsed)) {
+                System.out.println(fileName + ": the readers disagree");
+                continue;
+            }
+            double megabytes = new File(fileName).length() / 1e6;
+            long tuples = countTuples(parsed);
+            BinaryCSPReader tokenizer = new BinaryCSPReader();
+            report(harness, fileName, "tokenizer", megabytes, tuples, rounds, () -> tokenizer.readBinaryCSP(fileName));
+            FastBinaryCSPReader fast = new FastBinaryCSPReader();
+            report(harness, fileName, "fast", megabytes, tuples, rounds, () -> fast.readBinaryCSP(fileName));
+
+            String binaryName = toBinary(parsed);
+            if (binaryName == null || !sameProblem(expected, new MappedBinaryCSPReader().readBinaryCSP(binaryName))) {
+                System.out.println(fileName + ": the mapped file disagrees");
+                continue;
+            }
+            MappedBinaryCSPReader mapped = new MappedBinaryCSPReader();
+            report(harness, fileName, "mapped", megabytes, tuples, rounds, () -> mapped.readBinaryCSP(binaryName));
+            // loading ready to solve, with the relations of all arcs compiled or wrapped
+            report(harness, fileName, "fast+arcs", megabytes, tuples, rounds,
+                   () -> new ArcsCurator(fast.readBinaryCSP(fileName)));
+            // the constraints streamed into their relations, without keeping their tuples
+            report(harness, fileName, "stream+arcs", megabytes, tuples, rounds, () -> {
+                ArcsCurator.Builder builder = new ArcsCurator.Builder(true, false);
+                fast.read(fileName, builder);
+                builder.build();
+            });
+            report(harness, fileName, "mapped+arcs", megabytes, tuples, rounds,
+                   () -> new ArcsCurator(mapped.readBinaryCSP(binaryName)));
+        }
+    }
+
+    /**
+     * Write the problem to a temporary binary file, with pre-built bit matrices.
+     * @return the name of the file, deleted on exit, or null if it could not be written
+     */
+    private static String toBinary(BinaryCSP csp) {
+        try {
+            File file = File.createTempFile("parse", BinaryCSPFormat.EXTENSION);
+            file.deleteOnExit();
+            new BinaryCSPWriter().write(csp, file.getPath(), true);
+            return file.getPath();
+        } catch (IOException e) {
+            System.out.println(e);
+            return null;
+        }
+    }
+
+    private static void report(BenchmarkHarness harness, String fileName, String readerName, double megabytes,
+                               long tuples, int rounds, Runnable parse) {
+        double seconds = BenchmarkHarness.averageMillis(rounds, parse) / 1e3;
+        harness.printRow(fileName, readerName, megabytes, tuples, seconds * 1e3, megabytes / seconds, 
+                         tuples / seconds);
+    }
+
+    private static long countTuples(BinaryCSP csp) {
+        long tuples = 0;
+        for (BinaryConstraint c : csp.getConstraints()) {
+            tuples += c.getNoTuples();
+        }
+        return tuples;
+    }
+
+    private static boolean sameProblem(BinaryCSP a, BinaryCSP b) {
+        if (a.getNoVariables() != b.getNoVariables() || a.getConstraints().size() != b.getConstraints().size()
+            || !a.getIntensionalConstraints().equals(b.getIntensionalConstraints())) {
+            return false;
+        }
+        for (int var = 0; var < a.getNoVariables(); var++) {
+            if (a.getLB(var) != b.getLB(var) || a.getUB(var) != b.getUB(var)) {
+                return false;
+            }
+        }
+        for (int k = 0; k < a.getConstraints().size(); k++) {
+            BinaryConstraint ca = a.getConstraints().get(k);
+            BinaryConstraint cb = b.getConstraints().get(k);
+            if (ca.getFirstVar() != cb.getFirstVar() || ca.getSecondVar() != cb.getSecondVar()
+                || !ca.getFirstVals().equals(cb.getFirstVals())
+                || !ca.getSecondVals().equals(cb.getSecondVals())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
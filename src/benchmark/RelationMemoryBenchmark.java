@@ -0,0 +1,66 @@
+package benchmark;
+import reader.BinaryCSP;
+import reader.FastBinaryCSPReader;
+import solver.ArcsCurator;
+
+/**
+ * @author Thao P. Nguyen
+ * Heap retained by the constraints of a problem: as the tuples kept by the reader, and as the arcs compiled
+ * by ArcsCurator from the streamed constraints, without and with interning of equal relations,
+ * and with reversed arcs viewing the relation of their first arc.
+ * The heap is measured after garbage collection, before and after the representation is built.
+ */
+public class RelationMemoryBenchmark {
+    private static final int GC_ROUNDS = 5;
+
+    /**
+     * @param args <files.csp>
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(RelationMemoryBenchmark.class, "<files.csp>", args);
+        if (harness == null) {
+            return;
+        }
+        harness.printHeader("%-30s %-16s %8d %10d %12.1f", "instance", "representation", "arcs", "relations", "KB");
+        for (String fileName : harness.getOperands()) {
+            FastBinaryCSPReader reader = new FastBinaryCSPReader();
+            long before = usedHeap();
+            BinaryCSP parsed = reader.readBinaryCSP(fileName);
+            if (parsed == null) {
+                continue;
+            }
+            long retained = usedHeap() - before;
+            // the tuples of each constraint, before any relation is compiled
+            harness.printRow(fileName, "tuples", 2 * parsed.getConstraints().size(), parsed.getConstraints().size(),
+                             retained / 1024.0);
+            parsed = null;
+            report(harness, fileName, "compiled", reader, false, false);
+            report(harness, fileName, "interned", reader, false, true);
+            report(harness, fileName, "interned+views", reader, true, true);
+        }
+    }
+
+    /**
+     * Stream the constraints into an ArcsCurator, printing the heap it retains and its distinct relations.
+     */
+    private static void report(BenchmarkHarness harness, String fileName, String name, FastBinaryCSPReader reader,
+                               boolean reversedViews, boolean interning) {
+        long before = usedHeap();
+        ArcsCurator.Builder builder = new ArcsCurator.Builder(reversedViews, false, interning);
+        if (!reader.read(fileName, builder)) {
+            return;
+        }
+        ArcsCurator curator = builder.build();
+        builder = null;
+        long retained = usedHeap() - before;
+        harness.printRow(fileName, name, curator.getNoArcs(), curator.getNoRelations(), retained / 1024.0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
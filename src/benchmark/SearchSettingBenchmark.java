@@ -0,0 +1,54 @@
+package benchmark;
+
+import reader.BinaryCSP;
+import solver.OrderingStrategy;
+import solver.RevisionAlgorithm;
+import solver.Solver;
+import solver.SolverConfiguration;
+
+/**
+ * @author Thao P. Nguyen
+ * Compare the values of a search setting on the given problems: each RevisionAlgorithm,
+ * or each OrderingStrategy with -orderings, weighing the adaptive heuristics against their bookkeeping cost.
+ * Every problem is solved by MAC and forward checking with each value, counting all solutions and reporting nodes,
+ * revisions, constraint checks and time, so the setting can be chosen per instance family.
+ */
+public class SearchSettingBenchmark {
+
+    /**
+     * @param args <files.csp> [-orderings]
+     */
+    public static void main(String[] args) {
+        BenchmarkHarness harness = BenchmarkHarness.parse(SearchSettingBenchmark.class, "<files.csp> [-orderings]",
+                                                           args);
+        if (harness == null) {
+            return;
+        }
+        harness.printHeader("%-30s %-6s %-10s %10s %10s %12s %14s %8s", "instance", "solver", "setting",
+                            "solutions", "nodes", "revisions", "checks", "ms");
+        for (String fileName : harness.getOperands()) {
+            BinaryCSP csp = BenchmarkHarness.read(fileName);
+            for (boolean forwardChecking : new boolean[] {false, true}) {
+                if (harness.hasFlag("-orderings")) {
+                    for (OrderingStrategy ordering : OrderingStrategy.values()) {
+                        report(harness, fileName, csp, ordering,
+                               new SolverConfiguration(forwardChecking, ordering, RevisionAlgorithm.AC3));
+                    }
+                } else {
+                    for (RevisionAlgorithm algorithm : RevisionAlgorithm.values()) {
+                        report(harness, fileName, csp, algorithm,
+                               new SolverConfiguration(forwardChecking, OrderingStrategy.DOM, algorithm));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void report(BenchmarkHarness harness, String fileName, BinaryCSP csp, Enum<?> setting,
+                               SolverConfiguration configuration) {
+        Solver solver = BenchmarkHarness.countSolutions(configuration.createSolver(csp), configuration.getOrdering());
+        harness.printRow(fileName, configuration.isForwardChecking() ? "FC" : "MAC", setting,
+                         solver.getSolutionCounts(), solver.getNodeCounts(), solver.getArcReviseCounts(),
+                         solver.getConstraintCheckCounts(), solver.getTimeTaken());
+    }
+}
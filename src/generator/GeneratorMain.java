@@ -0,0 +1,107 @@
+package generator;
+import java.io.IOException;
+
+import reader.BinaryCSP;
+import reader.BinaryCSPFormat;
+import reader.BinaryCSPTextWriter;
+import reader.BinaryCSPWriter;
+
+public class GeneratorMain {
+
+    /**
+     * @author Thao P. Nguyen
+     * Write a generated problem to a file, in the binary format if its name ends in .cspb and as text otherwise.
+     *
+     * queens <n> <file> [-intensional] : N-Queens with n queens
+     * sudoku <order> <file> [-easy | -medium | -hard | -extreme | -givens <n>] [-not-unique] [-intensional]
+     *        [-seed <n>] : Sudoku with boxes of order x order cells, MEDIUM and with a unique solution by default
+     * random <n> <d> <density> <tightness | critical> <file> [-seed <n>] : random model B problem, at the
+     *        predicted phase transition if the tightness is critical
+     *
+     * -intensional : give the constraints as ne or distne instead of tuples
+     * -seed <n> : seed of the random choices, 0 by default
+     *
+     * @param args <kind> <parameters> <file> [flags]
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: java generator.GeneratorMain queens <n> <file> [-intensional]\n"
+                               + "       java generator.GeneratorMain sudoku <order> <file> "
+                               + "[-easy|-medium|-hard|-extreme|-givens <n>] [-not-unique] [-intensional] "
+                               + "[-seed <n>]\n"
+                               + "       java generator.GeneratorMain random <n> <d> <density> "
+                               + "<tightness|critical> <file> [-seed <n>]");
+            return;
+        }
+
+        // parse flags
+        boolean intensional = false;
+        boolean unique = true;
+        long seed = 0;
+        int givens = -1;
+        SudokuGenerator.Difficulty difficulty = SudokuGenerator.Difficulty.MEDIUM;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-intensional")) {
+                intensional = true;
+            } else if (args[i].equals("-not-unique")) {
+                unique = false;
+            } else if (args[i].equals("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-givens") && i + 1 < args.length) {
+                givens = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-easy")) {
+                difficulty = SudokuGenerator.Difficulty.EASY;
+            } else if (args[i].equals("-medium")) {
+                difficulty = SudokuGenerator.Difficulty.MEDIUM;
+            } else if (args[i].equals("-hard")) {
+                difficulty = SudokuGenerator.Difficulty.HARD;
+            } else if (args[i].equals("-extreme")) {
+                difficulty = SudokuGenerator.Difficulty.EXTREME;
+            }
+        }
+
+        BinaryCSP csp;
+        String fileName;
+        switch (args[0]) {
+            case "queens":
+                csp = QueensGenerator.generate(Integer.parseInt(args[1]), intensional);
+                fileName = args[2];
+                break;
+            case "sudoku":
+                int order = Integer.parseInt(args[1]);
+                SudokuGenerator sudoku = new SudokuGenerator(order, intensional);
+                csp = sudoku.generate(givens >= 0 ? givens : difficulty.getGivens(order), unique, seed);
+                fileName = args[2];
+                System.out.println("Givens: " + sudoku.getNoGivens());
+                break;
+            case "random":
+                if (args.length < 6) {
+                    System.out.println("Usage: java generator.GeneratorMain random <n> <d> <density> "
+                                       + "<tightness|critical> <file> [-seed <n>]");
+                    return;
+                }
+                int n = Integer.parseInt(args[1]);
+                int d = Integer.parseInt(args[2]);
+                double density = Double.parseDouble(args[3]);
+                double tightness = args[4].equals("critical") ? RandomCSPGenerator.criticalTightness(n, d, density)
+                                                              : Double.parseDouble(args[4]);
+                csp = new RandomCSPGenerator(n, d, density, tightness).generate(seed);
+                fileName = args[5];
+                System.out.println("Tightness: " + tightness);
+                break;
+            default:
+                System.out.println("Unknown kind of problem " + args[0] + ", expected queens, sudoku or random");
+                return;
+        }
+
+        try {
+            if (fileName.endsWith(BinaryCSPFormat.EXTENSION)) {
+                new BinaryCSPWriter().write(csp, fileName, true);
+            } else {
+                new BinaryCSPTextWriter().write(csp, fileName);
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+}
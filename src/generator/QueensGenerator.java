@@ -0,0 +1,54 @@
+package generator;
+import java.util.ArrayList;
+
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.BinaryTuple;
+import reader.IntensionalConstraint;
+
+/**
+ * @author Thao P. Nguyen
+ * N-Queens with one variable per column, whose value in 0..n-1 is the row of the queen.
+ * Each pair of queens i < j must be on different rows and diagonals, given either by its allowed tuples
+ * or as distne(i, j, 0, j - i).
+ */
+public final class QueensGenerator {
+
+    private QueensGenerator() {
+    }
+
+    /**
+     * @param n the number of queens, at least 1
+     * @param intensional whether to give the constraints as distne instead of tuples
+     */
+    public static BinaryCSP generate(int n, boolean intensional) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N-Queens needs at least 1 queen, found " + n);
+        }
+        int[][] domainBounds = new int[n][];
+        for (int i = 0; i < n; i++) {
+            domainBounds[i] = new int[] {0, n - 1};
+        }
+        ArrayList<BinaryConstraint> constraints = new ArrayList<>();
+        ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (intensional) {
+                    intensionalConstraints.add(new IntensionalConstraint(IntensionalConstraint.Kind.DISTNE, i, j,
+                                                                         new int[] {0, j - i}));
+                    continue;
+                }
+                ArrayList<BinaryTuple> tuples = new ArrayList<>();
+                for (int a = 0; a < n; a++) {
+                    for (int b = 0; b < n; b++) {
+                        if (a != b && Math.abs(a - b) != j - i) {
+                            tuples.add(new BinaryTuple(a, b));
+                        }
+                    }
+                }
+                constraints.add(new BinaryConstraint(i, j, tuples));
+            }
+        }
+        return new BinaryCSP(domainBounds, constraints, intensionalConstraints);
+    }
+}
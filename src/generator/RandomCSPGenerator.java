@@ -0,0 +1,111 @@
+package generator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.BinaryTuple;
+
+/**
+ * @author Thao P. Nguyen
+ * Random binary CSPs of model B: n variables with the values 0..d-1, exactly round(density * n(n-1)/2) constraints
+ * on distinct pairs of variables picked uniformly, each forbidding exactly round(tightness * d^2) pairs of values
+ * picked uniformly. The same parameters and seed always give the same problem.
+ *
+ * Problems are hardest near the phase transition, where about half of them have a solution:
+ * criticalTightness estimates it from the expected number of solutions, d^n (1 - tightness)^(density n(n-1)/2),
+ * being 1.
+ */
+public final class RandomCSPGenerator {
+    private final int noVariables;
+    private final int domainSize;
+    private final double density;
+    private final double tightness;
+
+    /**
+     * @param n the number of variables, at least 2
+     * @param d the number of values of each variable, at least 1
+     * @param density the fraction of the pairs of variables constrained, between 0 and 1
+     * @param tightness the fraction of the pairs of values each constraint forbids, between 0 and 1
+     */
+    public RandomCSPGenerator(int n, int d, double density, double tightness) {
+        if (n < 2 || d < 1 || density < 0 || density > 1 || tightness < 0 || tightness > 1) {
+            throw new IllegalArgumentException("Model B needs n >= 2, d >= 1 and density and tightness in [0, 1], "
+                                               + "found " + n + ", " + d + ", " + density + ", " + tightness);
+        }
+        noVariables = n;
+        domainSize = d;
+        this.density = density;
+        this.tightness = tightness;
+    }
+
+    /**
+     * @return the tightness at which the expected number of solutions of model B is 1,
+     *         or 1 if no constraint is expected
+     */
+    public static double criticalTightness(int n, int d, double density) {
+        double constraints = Math.round(density * n * (n - 1) / 2);
+        if (constraints == 0) {
+            return 1;
+        }
+        return 1 - Math.pow(d, -n / constraints);
+    }
+
+    public BinaryCSP generate(long seed) {
+        Random random = new Random(seed);
+        int[][] domainBounds = new int[noVariables][];
+        for (int i = 0; i < noVariables; i++) {
+            domainBounds[i] = new int[] {0, domainSize - 1};
+        }
+        int pairs = noVariables * (noVariables - 1) / 2;
+        int[] scopes = sample(pairs, (int) Math.round(density * pairs), random);
+        int cells = domainSize * domainSize;
+        int forbidden = (int) Math.round(tightness * cells);
+        ArrayList<BinaryConstraint> constraints = new ArrayList<>();
+        boolean[] isForbidden = new boolean[cells];
+        for (int scope : scopes) {
+            // the index of the pair i < j among all the pairs, in ascending order of i then j
+            int i = 0;
+            int first = scope;
+            while (first >= noVariables - 1 - i) {
+                first -= noVariables - 1 - i;
+                i++;
+            }
+            int j = i + 1 + first;
+            for (int cell : sample(cells, forbidden, random)) {
+                isForbidden[cell] = true;
+            }
+            ArrayList<BinaryTuple> tuples = new ArrayList<>();
+            for (int cell = 0; cell < cells; cell++) {
+                if (isForbidden[cell]) {
+                    isForbidden[cell] = false;
+                } else {
+                    tuples.add(new BinaryTuple(cell / domainSize, cell % domainSize));
+                }
+            }
+            constraints.add(new BinaryConstraint(i, j, tuples));
+        }
+        return new BinaryCSP(domainBounds, constraints);
+    }
+
+    /**
+     * Pick k distinct numbers among 0..size-1 uniformly with a partial Fisher-Yates shuffle.
+     * @return the numbers in ascending order
+     */
+    private static int[] sample(int size, int k, Random random) {
+        int[] numbers = new int[size];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = i;
+        }
+        for (int i = 0; i < k; i++) {
+            int swap = i + random.nextInt(size - i);
+            int number = numbers[swap];
+            numbers[swap] = numbers[i];
+            numbers[i] = number;
+        }
+        int[] picked = Arrays.copyOf(numbers, k);
+        Arrays.sort(picked);
+        return picked;
+    }
+}
@@ -0,0 +1,201 @@
+package generator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.BinaryTuple;
+import reader.IntensionalConstraint;
+import solver.ArcsCurator;
+import solver.MACSolver;
+import solver.OrderingStrategy;
+import solver.RevisionAlgorithm;
+import solver.Solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Sudoku puzzles of any order k: a grid of k^2 x k^2 cells split into k x k boxes, filled with the values 1..k^2
+ * so that each row, column and box holds each value once. Cell (r, c) is the variable r * k^2 + c, whose domain
+ * is its value if it is given and 1..k^2 otherwise, and every pair of cells sharing a row, column or box is
+ * constrained to be different, by its tuples or as ne(x, y), as in sudokuExtreme.csp.
+ *
+ * A full grid is built from a pattern shuffled by the seed, permuting the values, the rows within each band,
+ * the bands, the columns within each stack and the stacks. Its cells are then emptied in an order shuffled by the
+ * seed until only the requested number of givens is left. With a unique solution required, a cell is only emptied
+ * if MAC still finds a single solution, so that the digging may stop above the requested number of givens
+ * once no cell can be emptied; the checks take one search per cell, which grows quickly beyond order 4.
+ * Fewer givens make harder puzzles, as set by Difficulty.
+ */
+public final class SudokuGenerator {
+
+    /**
+     * The fraction of the cells given, from which the number of givens of a grid follows.
+     */
+    public enum Difficulty {
+        EASY(0.5), MEDIUM(0.4), HARD(0.33), EXTREME(0.25);
+
+        private final double givenFraction;
+
+        Difficulty(double givenFraction) {
+            this.givenFraction = givenFraction;
+        }
+
+        public int getGivens(int order) {
+            return (int) Math.round(givenFraction * order * order * order * order);
+        }
+    }
+
+    private final int order;
+    private final int size;
+    private final boolean intensional;
+    private int noGivens;
+
+    /**
+     * @param order the size k of the boxes, at least 1
+     * @param intensional whether to give the constraints as ne instead of tuples
+     */
+    public SudokuGenerator(int order, boolean intensional) {
+        if (order < 1) {
+            throw new IllegalArgumentException("Sudoku needs an order of at least 1, found " + order);
+        }
+        this.order = order;
+        this.size = order * order;
+        this.intensional = intensional;
+    }
+
+    public BinaryCSP generate(Difficulty difficulty, boolean unique, long seed) {
+        return generate(difficulty.getGivens(order), unique, seed);
+    }
+
+    /**
+     * @param givens the number of cells to leave given
+     * @param unique whether the puzzle must keep a unique solution
+     */
+    public BinaryCSP generate(int givens, boolean unique, long seed) {
+        Random random = new Random(seed);
+        int[] grid = fullGrid(random);
+        boolean[] given = new boolean[size * size];
+        Arrays.fill(given, true);
+        noGivens = given.length;
+        for (int cell : shuffled(given.length, random)) {
+            if (noGivens <= givens) {
+                break;
+            }
+            given[cell] = false;
+            if (unique && !hasUniqueSolution(puzzle(grid, given, true))) {
+                given[cell] = true;
+                continue;
+            }
+            noGivens--;
+        }
+        return puzzle(grid, given, intensional);
+    }
+
+    /**
+     * @return the number of givens of the last puzzle generated
+     */
+    public int getNoGivens() {
+        return noGivens;
+    }
+
+    /**
+     * Fill the grid with the pattern (k * (r mod k) + r / k + c) mod k^2 + 1, then shuffle it.
+     */
+    private int[] fullGrid(Random random) {
+        int[] values = shuffled(size, random);
+        int[] rows = bandedOrder(random);
+        int[] columns = bandedOrder(random);
+        int[] grid = new int[size * size];
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int row = rows[r];
+                int column = columns[c];
+                grid[r * size + c] = values[(order * (row % order) + row / order + column) % size] + 1;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return a shuffle of 0..k^2-1 that keeps the lines of each band together
+     */
+    private int[] bandedOrder(Random random) {
+        int[] bands = shuffled(order, random);
+        int[] lines = new int[size];
+        for (int b = 0; b < order; b++) {
+            int[] within = shuffled(order, random);
+            for (int i = 0; i < order; i++) {
+                lines[b * order + i] = bands[b] * order + within[i];
+            }
+        }
+        return lines;
+    }
+
+    private BinaryCSP puzzle(int[] grid, boolean[] given, boolean intensional) {
+        int cells = size * size;
+        int[][] domainBounds = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            domainBounds[cell] = given[cell] ? new int[] {grid[cell], grid[cell]} : new int[] {1, size};
+        }
+        ArrayList<BinaryConstraint> constraints = new ArrayList<>();
+        ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<>();
+        for (int x = 0; x < cells; x++) {
+            for (int y = x + 1; y < cells; y++) {
+                if (!sharesUnit(x, y)) {
+                    continue;
+                }
+                if (intensional) {
+                    intensionalConstraints.add(new IntensionalConstraint(IntensionalConstraint.Kind.NE, x, y,
+                                                                         new int[0]));
+                    continue;
+                }
+                ArrayList<BinaryTuple> tuples = new ArrayList<>();
+                for (int a = domainBounds[x][0]; a <= domainBounds[x][1]; a++) {
+                    for (int b = domainBounds[y][0]; b <= domainBounds[y][1]; b++) {
+                        if (a != b) {
+                            tuples.add(new BinaryTuple(a, b));
+                        }
+                    }
+                }
+                constraints.add(new BinaryConstraint(x, y, tuples));
+            }
+        }
+        return new BinaryCSP(domainBounds, constraints, intensionalConstraints);
+    }
+
+    private boolean sharesUnit(int x, int y) {
+        int rowX = x / size;
+        int columnX = x % size;
+        int rowY = y / size;
+        int columnY = y % size;
+        return rowX == rowY || columnX == columnY
+               || (rowX / order == rowY / order && columnX / order == columnY / order);
+    }
+
+    private static boolean hasUniqueSolution(BinaryCSP csp) {
+        Solver solver = new MACSolver(csp, new ArcsCurator(csp, true), RevisionAlgorithm.AC3);
+        solver.setPrintStats(false);
+        solver.setCountOnly(true);
+        solver.setMaxSolutions(2);
+        solver.solve(OrderingStrategy.DOM, false);
+        return solver.getSolutionCounts() == 1;
+    }
+
+    /**
+     * @return 0..n-1 in an order shuffled with Fisher-Yates
+     */
+    private static int[] shuffled(int n, Random random) {
+        int[] numbers = new int[n];
+        for (int i = 0; i < n; i++) {
+            numbers[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int number = numbers[swap];
+            numbers[swap] = numbers[i];
+            numbers[i] = number;
+        }
+        return numbers;
+    }
+}
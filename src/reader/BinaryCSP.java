@@ -4,13 +4,23 @@ import java.util.* ;
 public final class BinaryCSP {
   private int[][] domainBounds ;
   private ArrayList<BinaryConstraint> constraints ;
+  private ArrayList<IntensionalConstraint> intensionalConstraints ;
   
   /**
    * @author University of St Andrews, CS4402
    */
   public BinaryCSP(int[][] db, ArrayList<BinaryConstraint> c) {
+    this(db, c, new ArrayList<IntensionalConstraint>()) ;
+  }
+
+  /**
+   * @author Thao P. Nguyen
+   * A problem with intensional constraints as well as constraints given by their tuples.
+   */
+  public BinaryCSP(int[][] db, ArrayList<BinaryConstraint> c, ArrayList<IntensionalConstraint> ic) {
     domainBounds = db ;
     constraints = c ;
+    intensionalConstraints = ic ;
   }
   
   public String toString() {
@@ -20,6 +30,8 @@ public final class BinaryCSP {
       result.append("Var "+i+": "+domainBounds[i][0]+" .. "+domainBounds[i][1]+"\n") ;
     for (BinaryConstraint bc : constraints)
       result.append(bc+"\n") ;
+    for (IntensionalConstraint ic : intensionalConstraints)
+      result.append(ic+"\n") ;
     return result.toString() ;
   }
   
@@ -38,4 +50,8 @@ public final class BinaryCSP {
   public ArrayList<BinaryConstraint> getConstraints() {
     return constraints ;
   }
+
+  public ArrayList<IntensionalConstraint> getIntensionalConstraints() {
+    return intensionalConstraints ;
+  }
 }
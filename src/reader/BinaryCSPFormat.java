@@ -0,0 +1,47 @@
+package reader;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Layout of the binary instance format written by BinaryCSPWriter and mapped by MappedBinaryCSPReader.
+ * All numbers are little-endian, and every section starts on an 8-byte boundary.
+ *
+ * header (16 bytes): int magic "CSPB", int version, int no. vars, int no. constraints
+ * domain bounds: <lb>, <ub> as 2 ints per var
+ * each constraint:
+ *   int first var, int second var, int no. tuples, int flags
+ *   int first value of each tuple, then int second value of each tuple
+ *   if flags has MATRICES: the bit matrix from the first to the second var, then from the second to the first var
+ * since version 2, the intensional constraints:
+ *   int no. intensional constraints, int padding, then for each one
+ *   int kind (the ordinal of IntensionalConstraint.Kind), int first var, int second var, int no. params,
+ *   int each param, and an int of padding if the number of params is odd
+ *
+ * A bit matrix has one row per value of its first var, from lb to ub, each row holding
+ * ((ub - lb of its second var) / 64 + 1) longs; bit (v - lb) % 64 of word (v - lb) / 64 is set if value v
+ * of its second var is allowed. This is the layout of solver.BitMatrixRelation, which uses the matrices in place.
+ */
+public final class BinaryCSPFormat {
+  public static final int MAGIC = 'C' | 'S' << 8 | 'P' << 16 | 'B' << 24 ;
+  public static final int VERSION = 2 ;
+  // files of this version and older, without intensional constraints, are still read
+  public static final int MIN_VERSION = 1 ;
+  public static final int HEADER_BYTES = 16 ;
+  public static final int CONSTRAINT_HEADER_BYTES = 16 ;
+  public static final int INTENSIONAL_HEADER_BYTES = 16 ;
+  // the constraint carries pre-built bit matrices in both directions
+  public static final int MATRICES = 1 ;
+  // largest matrix (in 64-bit words) written per direction, as for the matrices compiled by solver.ArcsCurator
+  public static final long MAX_MATRIX_WORDS = 1 << 16 ;
+  public static final String EXTENSION = ".cspb" ;
+
+  private BinaryCSPFormat() {
+  }
+
+  /**
+   * Number of 64-bit words of a bit matrix from a var with the first bounds to a var with the second bounds.
+   */
+  public static long matrixWords(int firstLB, int firstUB, int secondLB, int secondUB) {
+    return (long) (firstUB - firstLB + 1) * (((secondUB - secondLB) >> 6) + 1) ;
+  }
+}
@@ -36,6 +36,8 @@ public final class BinaryCSPReader {
    * <domain val>, <domain val>
    */
   public BinaryCSP readBinaryCSP(String fn) {
+    ParseEvent event = new ParseEvent() ;
+    event.begin() ;
     try {
       inFR = new FileReader(fn) ;
       in = new StreamTokenizer(inFR) ;
@@ -51,11 +53,14 @@ public final class BinaryCSPReader {
 		    in.nextToken() ;
 	      domainBounds[i][1] = (int)in.nval ;
       }
-      ArrayList<BinaryConstraint> constraints = readBinaryConstraints() ;
-      BinaryCSP csp = new BinaryCSP(domainBounds, constraints) ;
+      ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<IntensionalConstraint>() ;
+      ArrayList<BinaryConstraint> constraints = readBinaryConstraints(intensionalConstraints) ;
+      BinaryCSP csp = new BinaryCSP(domainBounds, constraints, intensionalConstraints) ;
       // TESTING:
       // System.out.println(csp) ;
       inFR.close() ;
+      event.commitRead(fn, BinaryCSPReader.class, new File(fn).length(), n,
+                       constraints.size() + intensionalConstraints.size()) ;
       return csp ;
     }
     catch (FileNotFoundException e) {System.out.println(e);}
@@ -64,14 +69,22 @@ public final class BinaryCSPReader {
   }
 
   /**
-   *
+   * Intensional constraints, named by another word than 'c', are added to the given list.
    */
-  private ArrayList<BinaryConstraint> readBinaryConstraints() {
+  private ArrayList<BinaryConstraint> readBinaryConstraints(ArrayList<IntensionalConstraint> intensionalConstraints) {
     ArrayList<BinaryConstraint> constraints = new ArrayList<BinaryConstraint>() ;
 	
     try {
       in.nextToken() ;                                  //'c' or EOF
-      while(in.ttype != in.TT_EOF) {
+      while(in.ttype != StreamTokenizer.TT_EOF) {
+        IntensionalConstraint.Kind kind = null ;
+        if (!"c".equals(in.sval)) {
+          kind = IntensionalConstraint.Kind.forName(in.sval) ;
+          if (kind == null)
+            throw new IllegalArgumentException((in.ttype == StreamTokenizer.TT_WORD ?
+                                                "Unknown constraint '" + in.sval + "'" : "Expected a constraint")
+                                               + " on line " + in.lineno()) ;
+        }
 	      // scope
 	      in.nextToken() ;                                       //'('
 		    in.nextToken() ;                                       //var
@@ -79,12 +92,17 @@ public final class BinaryCSPReader {
 		    in.nextToken() ;                                       //','
 		    in.nextToken() ;                                       //var
         int var2 = (int)in.nval ;
-		    in.nextToken() ;                                       //')'
+		    in.nextToken() ;                                       //')' or ','
+
+        if (kind != null) {
+          intensionalConstraints.add(readIntensionalConstraint(kind, var1, var2)) ;
+          continue ;
+        }
 
         //tuples
 		    ArrayList<BinaryTuple> tuples = new ArrayList<BinaryTuple>() ;
         in.nextToken() ;              //1st allowed val of 1st tuple
-        while (!"c".equals(in.sval) && (in.ttype != in.TT_EOF)) {
+        while (in.ttype != StreamTokenizer.TT_WORD && (in.ttype != StreamTokenizer.TT_EOF)) {
           int val1 = (int)in.nval ;
 	        in.nextToken() ;                                   //','
 	        in.nextToken() ;                               //2nd val
@@ -101,4 +119,22 @@ public final class BinaryCSPReader {
     catch (IOException e) {System.out.println(e);}
     return null ;  
   }
+
+  /**
+   * The parameters of an intensional constraint after its scope, up to the next word or EOF.
+   */
+  private IntensionalConstraint readIntensionalConstraint(IntensionalConstraint.Kind kind, int var1, int var2)
+      throws IOException {
+    ArrayList<Integer> params = new ArrayList<Integer>() ;
+    in.nextToken() ;
+    while (in.ttype != StreamTokenizer.TT_WORD && in.ttype != StreamTokenizer.TT_EOF) {
+      if (in.ttype == StreamTokenizer.TT_NUMBER)
+        params.add((int)in.nval) ;
+      in.nextToken() ;
+    }
+    int[] p = new int[params.size()] ;
+    for (int i = 0; i < p.length; i++)
+      p[i] = params.get(i) ;
+    return new IntensionalConstraint(kind, var1, var2, p) ;
+  }
 }
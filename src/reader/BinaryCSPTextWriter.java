@@ -0,0 +1,36 @@
+package reader;
+import java.io.* ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Writes a BinaryCSP in the text format read by BinaryCSPReader and FastBinaryCSPReader:
+ * the bounds of each variable, then each constraint as c(x, y) followed by its tuples,
+ * then each intensional constraint on a line of its own, as in "ne(0, 1)".
+ */
+public final class BinaryCSPTextWriter {
+
+  /**
+   * @param csp the problem to write
+   * @param fn the file to write, replaced if it exists
+   */
+  public void write(BinaryCSP csp, String fn) throws IOException {
+    try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(fn)))) {
+      out.println(csp.getNoVariables()) ;
+      for (int i = 0; i < csp.getNoVariables(); i++)
+        out.println(csp.getLB(i) + ", " + csp.getUB(i)) ;
+      for (BinaryConstraint c : csp.getConstraints()) {
+        out.println() ;
+        out.println("c(" + c.getFirstVar() + ", " + c.getSecondVar() + ")") ;
+        for (BinaryTuple t : c.getTuples())
+          out.println(t.getFirstVal() + ", " + t.getSecondVal()) ;
+      }
+      if (!csp.getIntensionalConstraints().isEmpty())
+        out.println() ;
+      for (IntensionalConstraint ic : csp.getIntensionalConstraints())
+        out.println(ic) ;
+      if (out.checkError())
+        throw new IOException("Could not write " + fn) ;
+    }
+  }
+}
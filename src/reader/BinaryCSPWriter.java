@@ -0,0 +1,139 @@
+package reader;
+import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.ByteOrder ;
+import java.nio.IntBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.Paths ;
+import java.nio.file.StandardOpenOption ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Writes a BinaryCSP in the binary format of BinaryCSPFormat, so that it can be mapped by MappedBinaryCSPReader
+ * instead of parsed again. Bit matrices are pre-built for the constraints whose domains are small enough.
+ */
+public final class BinaryCSPWriter {
+  private static final int BUFFER_SIZE = 1 << 16 ;
+
+  private FileChannel channel ;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN) ;
+
+  /**
+   * Convert a text instance to the binary format.
+   */
+  public static void main(String[] args) {
+    if (args.length < 2) {
+      System.out.println("Usage: java BinaryCSPWriter <file.csp> <file.cspb> [-no-matrices]") ;
+      return ;
+    }
+    BinaryCSP csp = new FastBinaryCSPReader().readBinaryCSP(args[0]) ;
+    if (csp == null) {
+      return ;
+    }
+    boolean matrices = !(args.length > 2 && args[2].equals("-no-matrices")) ;
+    try {
+      new BinaryCSPWriter().write(csp, args[1], matrices) ;
+    }
+    catch (IOException e) {System.out.println(e);}
+  }
+
+  /**
+   * @param csp the problem to write
+   * @param fn the file to write, replaced if it exists
+   * @param matrices whether to pre-build the bit matrices of constraints of at most MAX_MATRIX_WORDS words
+   */
+  public void write(BinaryCSP csp, String fn, boolean matrices) throws IOException {
+    try (FileChannel fc = FileChannel.open(Paths.get(fn), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                           StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel = fc ;
+      buffer.clear() ;
+      putInt(BinaryCSPFormat.MAGIC) ;
+      putInt(BinaryCSPFormat.VERSION) ;
+      putInt(csp.getNoVariables()) ;
+      putInt(csp.getConstraints().size()) ;
+      for (int i = 0; i < csp.getNoVariables(); i++) {
+        putInt(csp.getLB(i)) ;
+        putInt(csp.getUB(i)) ;
+      }
+      for (BinaryConstraint c : csp.getConstraints()) {
+        int first = c.getFirstVar() ;
+        int second = c.getSecondVar() ;
+        boolean withMatrices = matrices
+            && BinaryCSPFormat.matrixWords(csp.getLB(first), csp.getUB(first), csp.getLB(second), csp.getUB(second))
+               <= BinaryCSPFormat.MAX_MATRIX_WORDS
+            && BinaryCSPFormat.matrixWords(csp.getLB(second), csp.getUB(second), csp.getLB(first), csp.getUB(first))
+               <= BinaryCSPFormat.MAX_MATRIX_WORDS ;
+        putInt(first) ;
+        putInt(second) ;
+        putInt(c.getNoTuples()) ;
+        putInt(withMatrices ? BinaryCSPFormat.MATRICES : 0) ;
+        for (int t = 0; t < c.getNoTuples(); t++) {
+          putInt(c.getFirstVals().get(t)) ;
+        }
+        for (int t = 0; t < c.getNoTuples(); t++) {
+          putInt(c.getSecondVals().get(t)) ;
+        }
+        if (withMatrices) {
+          putMatrix(csp, first, second, c.getFirstVals(), c.getSecondVals()) ;
+          putMatrix(csp, second, first, c.getSecondVals(), c.getFirstVals()) ;
+        }
+      }
+      putInt(csp.getIntensionalConstraints().size()) ;
+      putInt(0) ;                                         // padding
+      for (IntensionalConstraint c : csp.getIntensionalConstraints()) {
+        putInt(c.getKind().ordinal()) ;
+        putInt(c.getFirstVar()) ;
+        putInt(c.getSecondVar()) ;
+        putInt(c.getParams().length) ;
+        for (int p : c.getParams()) {
+          putInt(p) ;
+        }
+        if ((c.getParams().length & 1) != 0) {
+          putInt(0) ;
+        }
+      }
+      flush() ;
+    }
+    finally {channel = null ;}
+  }
+
+  /**
+   * Build and write the bit matrix from the first var to the second var. Tuples outside the bounds are dropped.
+   */
+  private void putMatrix(BinaryCSP csp, int first, int second, IntBuffer firstVals, IntBuffer secondVals)
+      throws IOException {
+    int firstLB = csp.getLB(first), firstUB = csp.getUB(first) ;
+    int secondLB = csp.getLB(second), secondUB = csp.getUB(second) ;
+    int wordsPerRow = ((secondUB - secondLB) >> 6) + 1 ;
+    long[] words = new long[(int) BinaryCSPFormat.matrixWords(firstLB, firstUB, secondLB, secondUB)] ;
+    for (int t = 0; t < firstVals.limit(); t++) {
+      int a = firstVals.get(t), b = secondVals.get(t) ;
+      if (a >= firstLB && a <= firstUB && b >= secondLB && b <= secondUB) {
+        int col = b - secondLB ;
+        words[(a - firstLB) * wordsPerRow + (col >> 6)] |= 1L << col ;
+      }
+    }
+    for (long word : words) {
+      if (buffer.remaining() < Long.BYTES) {
+        flush() ;
+      }
+      buffer.putLong(word) ;
+    }
+  }
+
+  private void putInt(int value) throws IOException {
+    if (buffer.remaining() < Integer.BYTES) {
+      flush() ;
+    }
+    buffer.putInt(value) ;
+  }
+
+  private void flush() throws IOException {
+    buffer.flip() ;
+    while (buffer.hasRemaining()) {
+      channel.write(buffer) ;
+    }
+    buffer.clear() ;
+  }
+}
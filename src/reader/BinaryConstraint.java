@@ -1,9 +1,15 @@
 package reader;
+import java.nio.IntBuffer ;
+import java.nio.LongBuffer ;
 import java.util.* ;
 
 public final class BinaryConstraint {
   private int firstVar, secondVar ;
   private ArrayList<BinaryTuple> tuples ;
+  // the values of each tuple, also kept as primitive arrays or views of a mapped file
+  private IntBuffer firstVals, secondVals ;
+  // bit matrices of the relation in both directions, if pre-built
+  private LongBuffer matrix, reversedMatrix ;
   
   /**
    * @author University of St Andrews, CS4402
@@ -12,12 +18,47 @@ public final class BinaryConstraint {
     firstVar = fv ;
     secondVar = sv ;
     tuples = t ;
+    firstVals = IntBuffer.allocate(t.size()) ;
+    secondVals = IntBuffer.allocate(t.size()) ;
+    for (int i = 0; i < t.size(); i++) {
+      firstVals.put(i, t.get(i).getFirstVal()) ;
+      secondVals.put(i, t.get(i).getSecondVal()) ;
+    }
+  }
+
+  /**
+   * @author Thao P. Nguyen
+   * A constraint whose tuples are given as primitive arrays, without a BinaryTuple per tuple.
+   * @param fv the first variable id
+   * @param sv the second variable id
+   * @param fvals the first value of each tuple
+   * @param svals the second value of each tuple, as many as first values
+   */
+  public BinaryConstraint(int fv, int sv, int[] fvals, int[] svals) {
+    this(fv, sv, IntBuffer.wrap(fvals), IntBuffer.wrap(svals), null, null) ;
+  }
+
+  /**
+   * @author Thao P. Nguyen
+   * A constraint over views of its tuples, which are read in place and not copied.
+   * @param fvals the first value of each tuple
+   * @param svals the second value of each tuple, as many as first values
+   * @param m the bit matrix of the relation from the first to the second variable, or null if not pre-built
+   * @param rm the bit matrix from the second to the first variable, or null if not pre-built
+   */
+  public BinaryConstraint(int fv, int sv, IntBuffer fvals, IntBuffer svals, LongBuffer m, LongBuffer rm) {
+    firstVar = fv ;
+    secondVar = sv ;
+    firstVals = fvals ;
+    secondVals = svals ;
+    matrix = m ;
+    reversedMatrix = rm ;
   }
   
   public String toString() {
     StringBuffer result = new StringBuffer() ;
     result.append("c("+firstVar+", "+secondVar+")\n") ;
-    for (BinaryTuple bt : tuples)
+    for (BinaryTuple bt : getTuples())
       result.append(bt+"\n") ;
     return result.toString() ;
   }
@@ -30,9 +71,50 @@ public final class BinaryConstraint {
     return secondVar;
   }
   
+  /**
+   * The tuples as BinaryTuple objects, created on the first call for constraints given as primitive arrays.
+   */
   public ArrayList<BinaryTuple> getTuples() {
+    if (tuples == null) {
+      ArrayList<BinaryTuple> t = new ArrayList<BinaryTuple>(getNoTuples()) ;
+      for (int i = 0; i < getNoTuples(); i++)
+        t.add(new BinaryTuple(firstVals.get(i), secondVals.get(i))) ;
+      tuples = t ;
+    }
     return tuples;
   }
+
+  public int getNoTuples() {
+    return firstVals.limit();
+  }
+
+  /**
+   * The first value of each tuple, to be read with absolute gets. The returned buffer is shared and must not be modified.
+   */
+  public IntBuffer getFirstVals() {
+    return firstVals;
+  }
+
+  /**
+   * The second value of each tuple, to be read with absolute gets. The returned buffer is shared and must not be modified.
+   */
+  public IntBuffer getSecondVals() {
+    return secondVals;
+  }
+
+  /**
+   * The pre-built bit matrix from the first to the second variable, in the layout of BinaryCSPFormat, or null.
+   */
+  public LongBuffer getMatrix() {
+    return matrix;
+  }
+
+  /**
+   * The pre-built bit matrix from the second to the first variable, in the layout of BinaryCSPFormat, or null.
+   */
+  public LongBuffer getReversedMatrix() {
+    return reversedMatrix;
+  }
   
   // SUGGESTION: You will want to add methods here to reason about the constraint
 }
@@ -19,6 +19,14 @@ public final class BinaryTuple {
     return (val1 == v1) && (val2 == v2) ;
   }
 
+  public int getFirstVal() {
+    return val1 ;
+  }
+
+  public int getSecondVal() {
+    return val2 ;
+  }
+
   public BinaryTuple getReversedTuple() {
     return new BinaryTuple(val2, val1);
   }
@@ -0,0 +1,30 @@
+package reader;
+import java.nio.IntBuffer ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Receives a problem from a reader as it is read, one constraint at a time,
+ * so that constraints can be turned into another representation without the whole problem being kept.
+ */
+public interface ConstraintHandler {
+
+  /**
+   * Called once, before any constraint.
+   * @param domainBounds the lower and upper bound of each variable
+   */
+  void onDomains(int[][] domainBounds) ;
+
+  /**
+   * Called once per constraint, in the order of the file.
+   * @param firstVals the first value of each tuple, up to the limit of the buffer
+   * @param secondVals the second value of each tuple. Both buffers are reused by the reader
+   *                   and must be copied to be kept after the call.
+   */
+  void onConstraint(int firstVar, int secondVar, IntBuffer firstVals, IntBuffer secondVals) ;
+
+  /**
+   * Called once per intensional constraint, in the order of the file.
+   */
+  void onIntensionalConstraint(IntensionalConstraint constraint) ;
+}
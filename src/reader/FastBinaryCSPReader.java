@@ -0,0 +1,262 @@
+package reader;
+import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.IntBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.Paths ;
+import java.nio.file.StandardOpenOption ;
+import java.util.* ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * A reader of the same format as BinaryCSPReader, parsing integers straight from the bytes of the file.
+ * The file is read through a FileChannel into a reused buffer, and the tuples of each constraint are parsed
+ * into primitive arrays, so no token, double or BinaryTuple is allocated per value.
+ * The problem can also be streamed to a ConstraintHandler, one constraint at a time.
+ *
+ * As with BinaryCSPReader, commas, brackets and whitespace only separate numbers,
+ * and a '/' starts a comment to the end of the line, as in "// Sudoku".
+ * Constraints starting with another word than 'c' are intensional constraints, as in "ne(0, 1)".
+ */
+public final class FastBinaryCSPReader {
+  private static final int BUFFER_SIZE = 1 << 16 ;
+
+  private FileChannel channel ;
+  private final byte[] bytes = new byte[BUFFER_SIZE] ;
+  private final ByteBuffer buffer = ByteBuffer.wrap(bytes) ;
+  private int position, limit ;
+  private int line ;
+  // constraints read so far from the current file
+  private int noConstraints ;
+  // tuples of the constraint being read, reused across constraints
+  private int[] firstVals = new int[1024], secondVals = new int[1024] ;
+  private final StringBuilder word = new StringBuilder() ;
+
+  /**
+   * Main (for testing)
+   */
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.out.println("Usage: java FastBinaryCSPReader <file.csp>") ;
+      return ;
+    }
+    FastBinaryCSPReader reader = new FastBinaryCSPReader() ;
+    System.out.println(reader.readBinaryCSP(args[0])) ;
+  }
+
+  /**
+   * File format, as for BinaryCSPReader:
+   * <no. vars>
+   * <lb>, <ub> (one per var)
+   * c(<varno>, <varno>)
+   * <domain val>, <domain val> (one per allowed tuple)
+   * or an intensional constraint, as described by IntensionalConstraint:
+   * <kind>(<varno>, <varno>, <params>)
+   * @throws IllegalArgumentException if a number is missing where the format expects one,
+   *                                  or an intensional constraint is unknown or has the wrong parameters
+   */
+  public BinaryCSP readBinaryCSP(String fn) {
+    Collector collector = new Collector() ;
+    return read(fn, collector) ? 
+      new BinaryCSP(collector.domainBounds, collector.constraints, collector.intensionalConstraints) : null ;
+  }
+
+  /**
+   * Read the file, passing its domains and then each of its constraints to the handler as soon as it is parsed.
+   * Only the tuples of one constraint are held at a time.
+   * @return false if the file could not be read
+   * @throws IllegalArgumentException if a number is missing where the format expects one,
+   *                                  or an intensional constraint is unknown or has the wrong parameters
+   */
+  public boolean read(String fn, ConstraintHandler handler) {
+    ParseEvent event = new ParseEvent() ;
+    event.begin() ;
+    try (FileChannel fc = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      channel = fc ;
+      position = 0 ;
+      limit = 0 ;
+      line = 1 ;
+      noConstraints = 0 ;
+      int n = readInt() ;
+      int[][] domainBounds = new int[n][2] ;
+      for (int i = 0; i < n; i++) {
+        domainBounds[i][0] = readInt() ;
+        domainBounds[i][1] = readInt() ;
+      }
+      handler.onDomains(domainBounds) ;
+      readBinaryConstraints(handler) ;
+      event.commitRead(fn, FastBinaryCSPReader.class, fc.size(), n, noConstraints) ;
+      return true ;
+    }
+    catch (IOException e) {System.out.println(e);}
+    finally {channel = null ;}
+    return false ;
+  }
+
+  /**
+   * Each constraint starts with a word, then its scope and its tuples or parameters
+   * up to the next word or the end of the file.
+   */
+  private void readBinaryConstraints(ConstraintHandler handler) throws IOException {
+    while (skipSeparators() >= 0) {
+      noConstraints++ ;
+      int wordLine = line ;
+      readWord() ;
+      if (!(word.length() == 1 && word.charAt(0) == 'c')) {
+        IntensionalConstraint.Kind kind = IntensionalConstraint.Kind.forName(word.toString()) ;
+        if (kind == null) {
+          throw new IllegalArgumentException((word.length() == 0 ? "Expected a constraint" 
+                                              : "Unknown constraint '" + word + "'") + " on line " + wordLine) ;
+        }
+        readIntensionalConstraint(kind, handler) ;
+        continue ;
+      }
+      int var1 = readInt() ;
+      int var2 = readInt() ;
+      int size = 0 ;
+      int next = skipSeparators() ;
+      while (next >= 0 && !isLetter(next)) {
+        if (size == firstVals.length) {
+          firstVals = Arrays.copyOf(firstVals, size * 2) ;
+          secondVals = Arrays.copyOf(secondVals, size * 2) ;
+        }
+        firstVals[size] = readInt() ;
+        secondVals[size++] = readInt() ;
+        next = skipSeparators() ;
+      }
+      handler.onConstraint(var1, var2, IntBuffer.wrap(firstVals).limit(size), IntBuffer.wrap(secondVals).limit(size)) ;
+    }
+  }
+
+  /**
+   * The scope and the parameters of an intensional constraint, up to the next word or the end of the file.
+   */
+  private void readIntensionalConstraint(IntensionalConstraint.Kind kind, ConstraintHandler handler)
+      throws IOException {
+    int var1 = readInt() ;
+    int var2 = readInt() ;
+    int size = 0 ;
+    int next = skipSeparators() ;
+    while (next >= 0 && !isLetter(next)) {
+      if (size == firstVals.length) {
+        firstVals = Arrays.copyOf(firstVals, size * 2) ;
+        secondVals = Arrays.copyOf(secondVals, size * 2) ;
+      }
+      firstVals[size++] = readInt() ;
+      next = skipSeparators() ;
+    }
+    handler.onIntensionalConstraint(new IntensionalConstraint(kind, var1, var2, Arrays.copyOf(firstVals, size))) ;
+  }
+
+  /**
+   * Parse an integer, with an optional minus sign; a fractional part is read and dropped.
+   */
+  private int readInt() throws IOException {
+    int c = skipSeparators() ;
+    boolean negative = c == '-' ;
+    if (negative) {
+      position++ ;
+      c = peek() ;
+    }
+    if (!isDigit(c)) {
+      throw new IllegalArgumentException("Expected a number on line " + line +
+                                         (c < 0 ? " at the end of the file" : ", found '" + (char) c + "'")) ;
+    }
+    int value = 0 ;
+    while (isDigit(c)) {
+      value = value * 10 + (c - '0') ;
+      position++ ;
+      c = peek() ;
+    }
+    if (c == '.') {
+      do {
+        position++ ;
+        c = peek() ;
+      } while (isDigit(c)) ;
+    }
+    return negative ? -value : value ;
+  }
+
+  private void readWord() throws IOException {
+    word.setLength(0) ;
+    for (int c = peek(); isLetter(c); c = peek()) {
+      word.append((char) c) ;
+      position++ ;
+    }
+  }
+
+  /**
+   * Skip whitespace and control characters, commas, brackets and comments.
+   * @return the next byte without consuming it, or -1 at the end of the file
+   */
+  private int skipSeparators() throws IOException {
+    while (true) {
+      int c = peek() ;
+      if (c == '/') {
+        while (c >= 0 && c != '\n') {
+          position++ ;
+          c = peek() ;
+        }
+      } else if (c == '\n') {
+        line++ ;
+        position++ ;
+      } else if ((c >= 0 && c <= ' ') || c == ',' || c == '(' || c == ')') {
+        position++ ;
+      } else {
+        return c ;
+      }
+    }
+  }
+
+  /**
+   * @return the next byte without consuming it, or -1 at the end of the file
+   */
+  private int peek() throws IOException {
+    if (position == limit && !fill()) {
+      return -1 ;
+    }
+    return bytes[position] & 0xff ;
+  }
+
+  private boolean fill() throws IOException {
+    buffer.clear() ;
+    int read ;
+    do {
+      read = channel.read(buffer) ;
+    } while (read == 0) ;
+    position = 0 ;
+    limit = Math.max(read, 0) ;
+    return read > 0 ;
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9' ;
+  }
+
+  private static boolean isLetter(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') ;
+  }
+
+  /**
+   * Keeps the whole problem, copying the tuples of each constraint into arrays of their exact size.
+   */
+  private static final class Collector implements ConstraintHandler {
+    private int[][] domainBounds ;
+    private final ArrayList<BinaryConstraint> constraints = new ArrayList<BinaryConstraint>() ;
+    private final ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<IntensionalConstraint>() ;
+
+    public void onDomains(int[][] bounds) {
+      domainBounds = bounds ;
+    }
+
+    public void onConstraint(int var1, int var2, IntBuffer fvals, IntBuffer svals) {
+      constraints.add(new BinaryConstraint(var1, var2, Arrays.copyOf(fvals.array(), fvals.limit()),
+                                           Arrays.copyOf(svals.array(), svals.limit()))) ;
+    }
+
+    public void onIntensionalConstraint(IntensionalConstraint constraint) {
+      intensionalConstraints.add(constraint) ;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package reader;
+import java.util.* ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * A binary constraint given by a formula over its 2 variables x and y instead of a list of tuples:
+ *   ne(x, y)                  x != y
+ *   distne(x, y, k1, .., km)  |x - y| != k for every k, e.g. distne(i, j, 0, j - i) for 2 queens i and j
+ *   lineq(x, y, a, b, c)      a * x + b * y = c
+ *   linne(x, y, a, b, c)      a * x + b * y != c
+ *   linle(x, y, a, b, c)      a * x + b * y <= c
+ * The coefficients a and b of linear constraints are non-zero.
+ */
+public final class IntensionalConstraint {
+
+  /**
+   * The kinds of intensional constraints, declared in the order of their codes in BinaryCSPFormat:
+   * new kinds must be added last.
+   */
+  public enum Kind {
+    NE("ne", 0, 0, false),
+    DISTNE("distne", 1, Integer.MAX_VALUE, false),
+    LINEQ("lineq", 3, 3, true),
+    LINNE("linne", 3, 3, true),
+    LINLE("linle", 3, 3, true) ;
+
+    private final String name ;
+    private final int minParams, maxParams ;
+    // whether the parameters are the coefficients a, b and the constant c
+    private final boolean linear ;
+
+    Kind(String n, int min, int max, boolean l) {
+      name = n ;
+      minParams = min ;
+      maxParams = max ;
+      linear = l ;
+    }
+
+    /**
+     * @return the kind written as the given word, or null if there is none
+     */
+    public static Kind forName(String word) {
+      for (Kind kind : values()) {
+        if (kind.name.equals(word)) {
+          return kind ;
+        }
+      }
+      return null ;
+    }
+
+    public String getName() {
+      return name ;
+    }
+
+    public boolean isLinear() {
+      return linear ;
+    }
+  }
+
+  private final Kind kind ;
+  private final int firstVar, secondVar ;
+  private final int[] params ;
+
+  /**
+   * @param k the kind of constraint
+   * @param fv the first variable id, x
+   * @param sv the second variable id, y
+   * @param p the numbers after the scope: the distances of DISTNE, or a, b and c of a linear constraint
+   * @throws IllegalArgumentException if the parameters do not fit the kind
+   */
+  public IntensionalConstraint(Kind k, int fv, int sv, int[] p) {
+    if (p.length < k.minParams || p.length > k.maxParams) {
+      throw new IllegalArgumentException(k.name + "(" + fv + ", " + sv + ") takes " +
+                                         (k.minParams == k.maxParams ? "" + k.minParams : "at least " + k.minParams) +
+                                         " numbers after its scope, found " + p.length) ;
+    }
+    if (k.linear && (p[0] == 0 || p[1] == 0)) {
+      throw new IllegalArgumentException(k.name + "(" + fv + ", " + sv + ") has a zero coefficient") ;
+    }
+    kind = k ;
+    firstVar = fv ;
+    secondVar = sv ;
+    params = p ;
+  }
+
+  public String toString() {
+    StringBuffer result = new StringBuffer() ;
+    result.append(kind.name + "(" + firstVar + ", " + secondVar) ;
+    for (int p : params)
+      result.append(", " + p) ;
+    result.append(")") ;
+    return result.toString() ;
+  }
+
+  public boolean equals(Object o) {
+    if (!(o instanceof IntensionalConstraint)) {
+      return false ;
+    }
+    IntensionalConstraint other = (IntensionalConstraint) o ;
+    return kind == other.kind && firstVar == other.firstVar && secondVar == other.secondVar &&
+           Arrays.equals(params, other.params) ;
+  }
+
+  public int hashCode() {
+    return Objects.hash(kind, firstVar, secondVar) * 31 + Arrays.hashCode(params) ;
+  }
+
+  public Kind getKind() {
+    return kind ;
+  }
+
+  public int getFirstVar() {
+    return firstVar ;
+  }
+
+  public int getSecondVar() {
+    return secondVar ;
+  }
+
+  /**
+   * The numbers after the scope. The returned array is shared and must not be modified.
+   */
+  public int[] getParams() {
+    return params ;
+  }
+}
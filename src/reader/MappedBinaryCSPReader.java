@@ -0,0 +1,128 @@
+package reader;
+import java.io.* ;
+import java.nio.ByteOrder ;
+import java.nio.IntBuffer ;
+import java.nio.LongBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.Paths ;
+import java.nio.file.StandardOpenOption ;
+import java.util.* ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Loads an instance written by BinaryCSPWriter by memory-mapping the file. Nothing is parsed or copied:
+ * the tuples and bit matrices of each constraint are views of the mapped pages, so loading only walks
+ * the constraint headers, and processes solving the same file share its pages through the page cache.
+ */
+public final class MappedBinaryCSPReader {
+
+  /**
+   * Main (for testing)
+   */
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.out.println("Usage: java MappedBinaryCSPReader <file.cspb>") ;
+      return ;
+    }
+    MappedBinaryCSPReader reader = new MappedBinaryCSPReader() ;
+    System.out.println(reader.readBinaryCSP(args[0])) ;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the file is not in a supported version of the binary format
+   */
+  public BinaryCSP readBinaryCSP(String fn) {
+    ParseEvent event = new ParseEvent() ;
+    event.begin() ;
+    try (FileChannel fc = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+      if (fc.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException(fn + " is too large to be mapped at once") ;
+      }
+      // the mapping stays valid once the channel is closed
+      MappedByteBuffer file = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()) ;
+      file.order(ByteOrder.LITTLE_ENDIAN) ;
+      if (file.limit() < BinaryCSPFormat.HEADER_BYTES || file.getInt(0) != BinaryCSPFormat.MAGIC) {
+        throw new IllegalArgumentException(fn + " is not a binary CSP file") ;
+      }
+      int version = file.getInt(4) ;
+      if (version < BinaryCSPFormat.MIN_VERSION || version > BinaryCSPFormat.VERSION) {
+        throw new IllegalArgumentException(fn + " has version " + version + ", expected " +
+                                           BinaryCSPFormat.MIN_VERSION + " to " + BinaryCSPFormat.VERSION) ;
+      }
+      int n = file.getInt(8) ;
+      int noConstraints = file.getInt(12) ;
+      int offset = BinaryCSPFormat.HEADER_BYTES ;
+      int[][] domainBounds = new int[n][2] ;
+      for (int i = 0; i < n; i++) {
+        domainBounds[i][0] = file.getInt(offset) ;
+        domainBounds[i][1] = file.getInt(offset + 4) ;
+        offset += 8 ;
+      }
+      ArrayList<BinaryConstraint> constraints = new ArrayList<BinaryConstraint>(noConstraints) ;
+      for (int k = 0; k < noConstraints; k++) {
+        int var1 = file.getInt(offset) ;
+        int var2 = file.getInt(offset + 4) ;
+        int noTuples = file.getInt(offset + 8) ;
+        int flags = file.getInt(offset + 12) ;
+        offset += BinaryCSPFormat.CONSTRAINT_HEADER_BYTES ;
+        IntBuffer firstVals = ints(file, offset, noTuples) ;
+        offset += noTuples * 4 ;
+        IntBuffer secondVals = ints(file, offset, noTuples) ;
+        offset += noTuples * 4 ;
+        LongBuffer matrix = null, reversedMatrix = null ;
+        if ((flags & BinaryCSPFormat.MATRICES) != 0) {
+          int words = (int) BinaryCSPFormat.matrixWords(domainBounds[var1][0], domainBounds[var1][1],
+                                                        domainBounds[var2][0], domainBounds[var2][1]) ;
+          matrix = longs(file, offset, words) ;
+          offset += words * 8 ;
+          words = (int) BinaryCSPFormat.matrixWords(domainBounds[var2][0], domainBounds[var2][1],
+                                                    domainBounds[var1][0], domainBounds[var1][1]) ;
+          reversedMatrix = longs(file, offset, words) ;
+          offset += words * 8 ;
+        }
+        constraints.add(new BinaryConstraint(var1, var2, firstVals, secondVals, matrix, reversedMatrix)) ;
+      }
+      ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<IntensionalConstraint>() ;
+      if (version >= 2) {
+        int noIntensional = file.getInt(offset) ;
+        offset += 8 ;
+        IntensionalConstraint.Kind[] kinds = IntensionalConstraint.Kind.values() ;
+        for (int k = 0; k < noIntensional; k++) {
+          int kind = file.getInt(offset) ;
+          if (kind < 0 || kind >= kinds.length) {
+            throw new IllegalArgumentException(fn + " has an unknown intensional constraint kind " + kind) ;
+          }
+          int var1 = file.getInt(offset + 4) ;
+          int var2 = file.getInt(offset + 8) ;
+          int noParams = file.getInt(offset + 12) ;
+          if (noParams < 0) {
+            throw new IllegalArgumentException(fn + " is corrupted") ;
+          }
+          int[] params = new int[noParams] ;
+          offset += BinaryCSPFormat.INTENSIONAL_HEADER_BYTES ;
+          ints(file, offset, params.length).get(params) ;
+          offset += (params.length + (params.length & 1)) * 4 ;
+          intensionalConstraints.add(new IntensionalConstraint(kinds[kind], var1, var2, params)) ;
+        }
+      }
+      event.commitRead(fn, MappedBinaryCSPReader.class, fc.size(), n,
+                       constraints.size() + intensionalConstraints.size()) ;
+      return new BinaryCSP(domainBounds, constraints, intensionalConstraints) ;
+    }
+    catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException(fn + " is truncated", e) ;
+    }
+    catch (IOException e) {System.out.println(e);}
+    return null ;
+  }
+
+  private static IntBuffer ints(MappedByteBuffer file, int offset, int count) {
+    return file.slice(offset, count * 4).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer() ;
+  }
+
+  private static LongBuffer longs(MappedByteBuffer file, int offset, int count) {
+    return file.slice(offset, count * 8).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer() ;
+  }
+}
@@ -0,0 +1,44 @@
+package reader;
+import jdk.jfr.* ;
+
+/**
+ * @author Thao P. Nguyen
+ *
+ * Flight Recorder event of the reading of a problem file, from opening it to its last constraint.
+ * Like every JFR event, it costs a check of a flag when no recording has it enabled.
+ */
+@Name("csp.Parse")
+@Label("Parse")
+@Category({"CSP Solver", "Reader"})
+@Description("Reading of a problem file")
+final class ParseEvent extends Event {
+  @Label("File")
+  String file ;
+
+  @Label("Reader")
+  String reader ;
+
+  @Label("Size")
+  @DataAmount
+  long bytes ;
+
+  @Label("Variables")
+  int variables ;
+
+  @Label("Constraints")
+  int constraints ;
+
+  /**
+   * Commit the event of a file read, if the recording keeps it.
+   */
+  void commitRead(String fn, Class<?> readerClass, long size, int noVariables, int noConstraints) {
+    if (shouldCommit()) {
+      file = fn ;
+      reader = readerClass.getSimpleName() ;
+      bytes = size ;
+      variables = noVariables ;
+      constraints = noConstraints ;
+      commit() ;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Activity-based variable ordering by smallest ratio of domain size to activity.
+ * The activity of a variable grows every time propagation reduces its domain and decays after every decision,
+ * so that variables most impacted by recent propagation are branched on first.
+ * Decay is implemented by growing the increment instead of shrinking all activities.
+ */
+public class ActivityOrdering extends VariableOrdering {
+    private static final double DECAY = 0.95;
+    private static final double RESCALE_LIMIT = 1e100;
+
+    private final double[] activities;
+    private double increment = 1;
+
+    public ActivityOrdering(Variable[] variables) {
+        super(variables);
+        activities = new double[variables.length];
+        for (int i = 0; i < activities.length; i++) {
+            activities[i] = 1;
+        }
+    }
+
+    @Override
+    protected long key(Variable var) {
+        return ratioKey(var.getDomain().size() / activities[var.getId()]);
+    }
+
+    @Override
+    public void onPruned(Variable var) {
+        activities[var.getId()] += increment;
+        update(var);
+    }
+
+    @Override
+    public void onAssign(Variable var) {
+        increment /= DECAY;
+        if (increment > RESCALE_LIMIT) {
+            for (int i = 0; i < activities.length; i++) {
+                activities[i] /= RESCALE_LIMIT;
+            }
+            increment /= RESCALE_LIMIT;
+            updateAll();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * @author Thao P. Nguyen
+ * Finds the cliques of not-equal constraints of a problem, to be propagated as AllDifferent constraints.
+ * A constraint is not-equal if it allows exactly the pairs of different values over the domains of its variables,
+ * whether it is given as ne(x, y) or by its tuples.
+ *
+ * The cliques cover the not-equal graph greedily: from each uncovered edge, in ascending order of its variables,
+ * a clique grows by the common neighbours of its variables in ascending order, which finds the rows, columns and
+ * boxes of a Sudoku. The constraints inside cliques of 3 or more variables are removed and the remaining arcs are
+ * renumbered, each constraint keeping its arcs at the ids 2k and 2k + 1.
+ */
+class AllDifferentDetector {
+    // cliques whose variables span more values are left as not-equal arcs
+    static final int MAX_VALUES = 1 << 16;
+    // extensional relations over larger domains are not checked
+    private static final long MAX_CHECKED_PAIRS = 1 << 16;
+    private static final DifferenceRelation NOT_EQUAL = new DifferenceRelation(new int[] {0});
+
+    private final int[][] domainBounds;
+    private final ArrayList<int[]> cliques = new ArrayList<>();
+    private final ArrayDeque<Arc> remainingArcs = new ArrayDeque<>();
+    // whether each shared bit matrix is not-equal, as it is checked once for all the arcs sharing it
+    private final IdentityHashMap<Relation, Boolean> checked = new IdentityHashMap<>();
+
+    /**
+     * @param arcs the arcs of the problem, numbered as built by ArcsCurator
+     * @param domainBounds the lower and upper bound of each variable
+     */
+    AllDifferentDetector(ArrayDeque<Arc> arcs, int[][] domainBounds) {
+        this.domainBounds = domainBounds;
+        int noVariables = domainBounds.length;
+        Arc[] arcsById = arcs.toArray(new Arc[0]);
+
+        // index the not-equal graph, each edge mapped to one of its constraints
+        ArrayList<ArrayList<Integer>> neighbours = new ArrayList<>();
+        for (int var = 0; var < noVariables; var++) {
+            neighbours.add(new ArrayList<>());
+        }
+        HashMap<Long, Integer> edges = new HashMap<>();
+        for (int c = 0; c < arcsById.length / 2; c++) {
+            Arc arc = arcsById[2 * c];
+            int first = arc.getFirstVar();
+            int second = arc.getSecondVar();
+            if (first != second && isNotEqual(arc) && edges.putIfAbsent(edgeKey(first, second), c) == null) {
+                neighbours.get(first).add(second);
+                neighbours.get(second).add(first);
+            }
+        }
+        for (ArrayList<Integer> adjacent : neighbours) {
+            adjacent.sort(null);
+        }
+
+        boolean[] covered = new boolean[arcsById.length / 2];
+        ArrayList<Integer> clique = new ArrayList<>();
+        for (int u = 0; u < noVariables; u++) {
+            for (int v : neighbours.get(u)) {
+                if (v < u || covered[edges.get(edgeKey(u, v))]) {
+                    continue;
+                }
+                clique.clear();
+                clique.add(u);
+                clique.add(v);
+                for (int w : neighbours.get(u)) {
+                    if (w != v && isAdjacentToAll(w, clique, edges)) {
+                        clique.add(w);
+                    }
+                }
+                if (clique.size() < 3 || span(clique) > MAX_VALUES) {
+                    continue;
+                }
+                for (int i = 0; i < clique.size(); i++) {
+                    for (int j = i + 1; j < clique.size(); j++) {
+                        covered[edges.get(edgeKey(clique.get(i), clique.get(j)))] = true;
+                    }
+                }
+                cliques.add(clique.stream().mapToInt(Integer::intValue).sorted().toArray());
+            }
+        }
+
+        for (int c = 0; c < covered.length; c++) {
+            if (!covered[c]) {
+                for (Arc arc : new Arc[] {arcsById[2 * c], arcsById[2 * c + 1]}) {
+                    remainingArcs.add(new Arc(remainingArcs.size(), arc.getFirstVar(), arc.getSecondVar(),
+                                              arc.getRelation()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the variables of each clique found, in ascending order
+     */
+    int[][] getCliques() {
+        return cliques.toArray(new int[0][]);
+    }
+
+    /**
+     * @return the arcs of the constraints outside the cliques, renumbered
+     */
+    ArrayDeque<Arc> getRemainingArcs() {
+        return remainingArcs;
+    }
+
+    /**
+     * Check whether the arc allows exactly the pairs of different values within the bounds of its variables.
+     */
+    private boolean isNotEqual(Arc arc) {
+        Relation relation = arc.getRelation();
+        if (relation instanceof DifferenceRelation) {
+            return relation.equals(NOT_EQUAL);
+        }
+        int[] first = domainBounds[arc.getFirstVar()];
+        int[] second = domainBounds[arc.getSecondVar()];
+        if ((long) (first[1] - first[0] + 1) * (second[1] - second[0] + 1) > MAX_CHECKED_PAIRS) {
+            return false;
+        }
+        // a bit matrix is compiled over the bounds of its arcs, so it answers the same for every arc sharing it
+        boolean shareable = relation instanceof BitMatrixRelation;
+        Boolean known = shareable ? checked.get(relation) : null;
+        if (known != null) {
+            return known;
+        }
+        boolean notEqual = true;
+        for (int a = first[0]; a <= first[1] && notEqual; a++) {
+            for (int b = second[0]; b <= second[1] && notEqual; b++) {
+                notEqual = relation.isConsistentWith(a, b) == (a != b);
+            }
+        }
+        if (shareable) {
+            checked.put(relation, notEqual);
+        }
+        return notEqual;
+    }
+
+    private boolean isAdjacentToAll(int var, ArrayList<Integer> clique, HashMap<Long, Integer> edges) {
+        for (int member : clique) {
+            if (!edges.containsKey(edgeKey(var, member))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of values between the smallest lower bound and the largest upper bound of the variables
+     */
+    private long span(ArrayList<Integer> vars) {
+        long lb = Long.MAX_VALUE;
+        long ub = Long.MIN_VALUE;
+        for (int var : vars) {
+            lb = Math.min(lb, domainBounds[var][0]);
+            ub = Math.max(ub, domainBounds[var][1]);
+        }
+        return ub - lb + 1;
+    }
+
+    private long edgeKey(int u, int v) {
+        return (long) Math.min(u, v) * domainBounds.length + Math.max(u, v);
+    }
+}
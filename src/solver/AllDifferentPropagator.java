@@ -0,0 +1,243 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * Generalised arc consistency on an AllDifferent constraint with Regin's matching algorithm.
+ * A value is kept if some matching of every variable to a distinct value matches it with its variable.
+ * One maximum matching is kept between calls and repaired from the values still in the domains,
+ * then the values are pruned from the graph of the variables, where x points to y if the value matched
+ * with x is in the domain of y: a value matched with y is kept in the domain of x if x and y are in the same
+ * strongly connected component, or if y can be reached from a variable with a value that no variable is matched with.
+ * Each call costs O(k^2) on top of the augmenting paths for the k variables.
+ */
+public class AllDifferentPropagator {
+    private final Variable[] vars;
+    private final int minVal;
+    // value index matched with each variable, -1 if none
+    private final int[] matchOfVar;
+    // variable index matched with each value offset by minVal, -1 if none
+    private final int[] matchOfVal;
+    // stamp of the last augmenting path search visiting each value
+    private final int[] visited;
+    private int stamp;
+
+    // Tarjan's components of the variable graph
+    private final int[] order;
+    private final int[] low;
+    private final int[] component;
+    private final int[] cursor;
+    private final int[] callStack;
+    private final int[] sccStack;
+    private final boolean[] onStack;
+    // whether each variable is reached from a value no variable is matched with
+    private final boolean[] free;
+
+    // variables pruned by the last call
+    private final Variable[] pruned;
+    private int noPruned;
+
+    /**
+     * @param clique the ids of the variables that must take different values
+     * @param variables the variables of the solver, indexed by id
+     */
+    public AllDifferentPropagator(int[] clique, Variable[] variables) {
+        int k = clique.length;
+        vars = new Variable[k];
+        int lb = Integer.MAX_VALUE;
+        int ub = Integer.MIN_VALUE;
+        for (int i = 0; i < k; i++) {
+            vars[i] = variables[clique[i]];
+            lb = Math.min(lb, vars[i].getDomain().getLB());
+            ub = Math.max(ub, vars[i].getDomain().getUB());
+        }
+        minVal = lb;
+        matchOfVar = new int[k];
+        matchOfVal = new int[ub - lb + 1];
+        visited = new int[ub - lb + 1];
+        Arrays.fill(matchOfVar, -1);
+        Arrays.fill(matchOfVal, -1);
+        order = new int[k];
+        low = new int[k];
+        component = new int[k];
+        cursor = new int[k];
+        callStack = new int[k];
+        sccStack = new int[k];
+        onStack = new boolean[k];
+        free = new boolean[k];
+        pruned = new Variable[k];
+    }
+
+    /**
+     * Remove the values that belong to no matching, each pruned variable making one domain change.
+     * @param pruners receives the variables pruned
+     * @return false if the variables cannot all take different values
+     */
+    public boolean propagate(ArrayDeque<Variable> pruners) {
+        noPruned = 0;
+        if (!repairMatching()) {
+            return false;
+        }
+        findFreeVariables();
+        findComponents();
+        for (int i = 0; i < vars.length; i++) {
+            final int x = i;
+            if (vars[x].getDomain().size() > 1 && vars[x].pruneDomain(val -> isKept(x, val))) {
+                pruners.add(vars[x]);
+                pruned[noPruned++] = vars[x];
+            }
+        }
+        return true;
+    }
+
+    public int getNoPruned() {
+        return noPruned;
+    }
+
+    /**
+     * @return the k-th variable pruned by the last call
+     */
+    public Variable getPruned(int k) {
+        return pruned[k];
+    }
+
+    private boolean isKept(int x, int val) {
+        int y = matchOfVal[val - minVal];
+        return y < 0 || y == x || free[y] || component[x] == component[y];
+    }
+
+    /**
+     * Drop the matched values removed since the last call, then match the unmatched variables again.
+     * @return whether every variable is matched
+     */
+    private boolean repairMatching() {
+        for (int x = 0; x < vars.length; x++) {
+            int m = matchOfVar[x];
+            if (m >= 0 && !vars[x].getDomain().contains(m + minVal)) {
+                matchOfVar[x] = -1;
+                matchOfVal[m] = -1;
+            }
+        }
+        for (int x = 0; x < vars.length; x++) {
+            if (matchOfVar[x] < 0) {
+                stamp++;
+                if (!augment(x)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match the variable along an augmenting path, trying its unmatched values first.
+     */
+    private boolean augment(int x) {
+        Domain domain = vars[x].getDomain();
+        for (int val = domain.first(); val != Domain.NONE; val = domain.next(val)) {
+            if (matchOfVal[val - minVal] < 0) {
+                match(x, val - minVal);
+                return true;
+            }
+        }
+        for (int val = domain.first(); val != Domain.NONE; val = domain.next(val)) {
+            int v = val - minVal;
+            if (visited[v] != stamp) {
+                visited[v] = stamp;
+                if (augment(matchOfVal[v])) {
+                    match(x, v);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void match(int x, int v) {
+        matchOfVar[x] = v;
+        matchOfVal[v] = x;
+    }
+
+    /**
+     * Mark the variables with an unmatched value and the variables reached from them,
+     * as y is reached from x when the value matched with x is in the domain of y.
+     */
+    private void findFreeVariables() {
+        int tail = 0;
+        for (int x = 0; x < vars.length; x++) {
+            free[x] = false;
+            Domain domain = vars[x].getDomain();
+            for (int val = domain.first(); val != Domain.NONE && !free[x]; val = domain.next(val)) {
+                free[x] = matchOfVal[val - minVal] < 0;
+            }
+            if (free[x]) {
+                callStack[tail++] = x;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int matched = matchOfVar[callStack[head]] + minVal;
+            for (int y = 0; y < vars.length; y++) {
+                if (!free[y] && vars[y].getDomain().contains(matched)) {
+                    free[y] = true;
+                    callStack[tail++] = y;
+                }
+            }
+        }
+    }
+
+    /**
+     * Number the strongly connected components of the variable graph with an iterative Tarjan's algorithm.
+     */
+    private void findComponents() {
+        int k = vars.length;
+        Arrays.fill(order, -1);
+        int index = 0;
+        int components = 0;
+        int sccTop = 0;
+        for (int root = 0; root < k; root++) {
+            if (order[root] >= 0) {
+                continue;
+            }
+            int top = 0;
+            callStack[top++] = root;
+            order[root] = low[root] = index++;
+            cursor[root] = 0;
+            sccStack[sccTop++] = root;
+            onStack[root] = true;
+            while (top > 0) {
+                int x = callStack[top - 1];
+                if (cursor[x] < k) {
+                    int y = cursor[x]++;
+                    if (y == x || !vars[y].getDomain().contains(matchOfVar[x] + minVal)) {
+                        continue;
+                    }
+                    if (order[y] < 0) {
+                        order[y] = low[y] = index++;
+                        cursor[y] = 0;
+                        sccStack[sccTop++] = y;
+                        onStack[y] = true;
+                        callStack[top++] = y;
+                    } else if (onStack[y]) {
+                        low[x] = Math.min(low[x], order[y]);
+                    }
+                    continue;
+                }
+                top--;
+                if (top > 0) {
+                    int parent = callStack[top - 1];
+                    low[parent] = Math.min(low[parent], low[x]);
+                }
+                if (low[x] == order[x]) {
+                    int y;
+                    do {
+                        y = sccStack[--sccTop];
+                        onStack[y] = false;
+                        component[y] = components;
+                    } while (y != x);
+                    components++;
+                }
+            }
+        }
+    }
+}
@@ -1,22 +1,26 @@
 package solver;
-import java.util.ArrayList;
-
-import reader.BinaryTuple;
 
 /**
  * @author Thao P. Nguyen
  * A binary directional constraint between 2 variables.
- * Each tuple represents their acceptable values as a pair.
+ * The compiled relation represents their acceptable values as pairs.
  */
 public class Arc {
     
-  private int firstVar, secondVar ;
-  private ArrayList<BinaryTuple> tuples ;
+  private int id, firstVar, secondVar ;
+  private Relation relation ;
   
-  public Arc(int fv, int sv, ArrayList<BinaryTuple> t) {
+  /**
+   * @param arcId numbered id, unique among the arcs of a problem
+   * @param fv the first variable id
+   * @param sv the second variable id
+   * @param r the relation allowed between the first and second variables
+   */
+  public Arc(int arcId, int fv, int sv, Relation r) {
+    id = arcId ;
     firstVar = fv ;
     secondVar = sv ;
-    tuples = t ;
+    relation = r ;
   }
 
   /**
@@ -25,12 +29,16 @@ public class Arc {
    * @param secondVal the value for the second variable
    */
   public boolean isConsistentWith(int firstVal, int secondVal) {
-    for (BinaryTuple tuple : tuples) {
-        if (tuple.matches(firstVal, secondVal)) {
-            return true;
-        }
-    } 
-    return false;
+    return relation.isConsistentWith(firstVal, secondVal);
+  }
+
+  /**
+   * Check whether the given value for the first variable has a support in the second variable's domain.
+   * @param firstVal the value for the first variable
+   * @param secondVar the second variable on the arc
+   */
+  public boolean hasSupport(int firstVal, Variable secondVar) {
+    return relation.hasSupport(firstVal, secondVar.getDomain());
   }
 
   /**
@@ -55,6 +63,10 @@ public class Arc {
       return false;
   }
 
+  public int getId() {
+      return id;
+  }
+
   public int getFirstVar() {
       return firstVar;
   }
@@ -62,4 +74,8 @@ public class Arc {
   public int getSecondVar() {
       return secondVar;
   }
+
+  public Relation getRelation() {
+      return relation;
+  }
 }
@@ -0,0 +1,60 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A FIFO queue of arcs for propagation that holds each arc at most once.
+ * Membership is tracked with a flag per arc id, so adding an arc already in the queue is O(1).
+ */
+public class ArcQueue {
+    private final Arc[] ring;
+    private final boolean[] inQueue;
+    private int head, size;
+
+    /**
+     * @param noArcs the number of arcs of the problem, ids ranging from 0 to noArcs - 1
+     */
+    public ArcQueue(int noArcs) {
+        ring = new Arc[Math.max(noArcs, 1)];
+        inQueue = new boolean[noArcs];
+    }
+
+    /**
+     * Add an arc at the end of the queue unless it is already queued.
+     * @return whether the arc has been added
+     */
+    public boolean add(Arc arc) {
+        if (inQueue[arc.getId()]) {
+            return false;
+        }
+        inQueue[arc.getId()] = true;
+        ring[(head + size++) % ring.length] = arc;
+        return true;
+    }
+
+    /**
+     * Remove and return the arc at the front of the queue.
+     */
+    public Arc poll() {
+        Arc arc = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        inQueue[arc.getId()] = false;
+        return arc;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        while (size > 0) {
+            poll();
+        }
+        head = 0;
+    }
+}
@@ -0,0 +1,136 @@
+package solver;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * Revises arcs with the selected RevisionAlgorithm and counts constraint checks.
+ * A constraint check is one query to the arc's relation, whether for a single pair 
+ * or a word-parallel search for the next support, and the revision of an intensional relation counts as one.
+ * 
+ * AC2001 last supports are recorded on a trail: callers take a mark before propagating
+ * and restore it when they undo the pruning of that propagation.
+ */
+public class ArcReviser {
+    private final ArcsCurator arcsCurator;
+    private final Variable[] variables;
+    private final RevisionAlgorithm algorithm;
+
+    // last (AC2001) or residual (AC3RM) supports, indexed by arc id and first value offset
+    private final int[][] supports;
+    // AC2001 trail of (arc id, value offset, previous support) triples
+    private int[] trail = new int[96];
+    private int trailSize;
+    private long constraintChecks;
+
+    // arc under revision
+    private Arc arc;
+    private Domain firstDomain, secondDomain;
+    private final SupportCheck supportCheck = this::isSupported;
+
+    public ArcReviser(ArcsCurator arcsCurator, Variable[] variables, RevisionAlgorithm algorithm) {
+        this.arcsCurator = arcsCurator;
+        this.variables = variables;
+        this.algorithm = algorithm;
+        supports = new int[arcsCurator.getNoArcs()][];
+    }
+
+    /**
+     * Remove the values of the arc's first variable that have no support in the second variable.
+     * @return whether a change to the first variable's domain has been made
+     */
+    public boolean revise(Arc arc) {
+        this.arc = arc;
+        firstDomain = variables[arc.getFirstVar()].getDomain();
+        secondDomain = variables[arc.getSecondVar()].getDomain();
+        if (arc.getRelation() instanceof IntensionalRelation) {
+            // supports are computed, so there are none to record
+            constraintChecks++;
+            return variables[arc.getFirstVar()].pruneDomain((IntensionalRelation) arc.getRelation(),
+                                                            variables[arc.getSecondVar()]);
+        }
+        return variables[arc.getFirstVar()].pruneDomain(supportCheck);
+    }
+
+    private boolean isSupported(int firstVal) {
+        if (algorithm == RevisionAlgorithm.AC3) {
+            constraintChecks++;
+            return arc.getRelation().hasSupport(firstVal, secondDomain);
+        }
+        int[] arcSupports = getSupports(arc.getId(), firstDomain);
+        int offset = firstVal - firstDomain.getLB();
+        int support = arcSupports[offset];
+        if (support != Domain.NONE && secondDomain.contains(support)) {
+            return true;
+        }
+
+        constraintChecks++;
+        if (algorithm == RevisionAlgorithm.AC2001) {
+            // values before the last support have already been refuted
+            int next = arc.getRelation().nextSupport(firstVal, secondDomain, support);
+            if (next == Domain.NONE) {
+                return false;
+            }
+            recordSupport(arc.getId(), offset, support);
+            arcSupports[offset] = next;
+            return true;
+        }
+
+        int next = arc.getRelation().nextSupport(firstVal, secondDomain, Domain.NONE);
+        if (next == Domain.NONE) {
+            return false;
+        }
+        arcSupports[offset] = next;
+        // firstVal is also a residue for next on the reversed arc
+        Arc reversed = arcsCurator.getReversedArc(arc);
+        getSupports(reversed.getId(), secondDomain)[next - secondDomain.getLB()] = firstVal;
+        return true;
+    }
+
+    private int[] getSupports(int arcId, Domain domain) {
+        if (supports[arcId] == null) {
+            supports[arcId] = new int[domain.getUB() - domain.getLB() + 1];
+            Arrays.fill(supports[arcId], Domain.NONE);
+        }
+        return supports[arcId];
+    }
+
+    private void recordSupport(int arcId, int offset, int previous) {
+        if (trailSize + 3 > trail.length) {
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        }
+        trail[trailSize++] = arcId;
+        trail[trailSize++] = offset;
+        trail[trailSize++] = previous;
+    }
+
+    /**
+     * @return a mark of the current support state, to be passed to restore.
+     */
+    public int mark() {
+        return trailSize;
+    }
+
+    /**
+     * Restore the last supports recorded since the given mark.
+     */
+    public void restore(int mark) {
+        while (trailSize > mark) {
+            int previous = trail[--trailSize];
+            int offset = trail[--trailSize];
+            int arcId = trail[--trailSize];
+            supports[arcId][offset] = previous;
+        }
+    }
+
+    public RevisionAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getConstraintChecks() {
+        return constraintChecks;
+    }
+
+    public void resetStats() {
+        constraintChecks = 0;
+    }
+}
@@ -1,9 +1,16 @@
 package solver;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 
+import reader.BinaryCSP;
 import reader.BinaryConstraint;
-import reader.BinaryTuple;
+import reader.ConstraintHandler;
+import reader.IntensionalConstraint;
 
 /**
  * @author Thao P. Nguyen
@@ -11,28 +18,240 @@ import reader.BinaryTuple;
  * The ArcsCurator curates the arcs given the requirements on the first and second variables.
  */
 public class ArcsCurator {
+    // largest bit matrix (in 64-bit words) compiled per arc before falling back to a hash relation
+    public static final long MAX_DENSE_WORDS = 1 << 16;
+
     private final ArrayDeque<Arc> arcs;
+    // arcs indexed by id, each arc and its reversed arc sharing the ids 2k and 2k + 1
+    private final Arc[] arcsById;
+    // arcs indexed by the id of their second and first variables
+    private Arc[][] arcsTo;
+    private Arc[][] arcsFrom;
+    // cliques of not-equal constraints propagated as AllDifferent constraints instead of arcs
+    private final int[][] allDifferents;
+    // indices of the AllDifferent constraints over each variable
+    private int[][] allDifferentsOf;
 
     /**
      * Convert each constraint of the CSP into two directional Arc objects.
-     * @param constraints
+     * The tuples of each arc are compiled once into a relation offset by the domain bounds,
+     * and arcs with identical relations share them.
+     * @param csp the constraint problem
+     */
+    public ArcsCurator(BinaryCSP csp) {
+        this(csp, false);
+    }
+
+    /**
+     * @param csp the constraint problem
+     * @param allDifferent whether cliques of not-equal constraints are replaced by AllDifferent constraints
+     */
+    public ArcsCurator(BinaryCSP csp, boolean allDifferent) {
+        this(Builder.of(csp), allDifferent);
+    }
+
+    private ArcsCurator(Builder builder, boolean allDifferent) {
+        ArrayDeque<Arc> arcs = builder.arcs;
+        int[][] domainBounds = builder.domainBounds;
+        if (allDifferent) {
+            AllDifferentDetector detector = new AllDifferentDetector(arcs, domainBounds);
+            arcs = detector.getRemainingArcs();
+            allDifferents = detector.getCliques();
+        } else {
+            allDifferents = new int[0][];
+        }
+        this.arcs = arcs;
+        arcsById = arcs.toArray(new Arc[0]);
+        buildAdjacency(domainBounds.length);
+        indexAllDifferents(domainBounds.length);
+    }
+
+    /**
+     * Builds the arcs of a problem one constraint at a time, as a reader streams them,
+     * so that no constraint needs to be kept once its relation has been compiled.
+     *
+     * In compact mode the reversed arc of each constraint is a ReversedRelation view of its first arc
+     * instead of a second compiled relation, halving the memory of the arcs at some cost in revision speed,
+     * and bit matrices can be allocated off-heap, outside the limit of the Java heap.
+     *
+     * With interning, each compiled relation is looked up in a table of the relations built so far and replaced
+     * by the equal one found, so that the many constraints sharing one relation, as the not-equal constraints
+     * of a Sudoku, keep a single copy of it.
      */
-    public ArcsCurator(ArrayList<BinaryConstraint> constraints) {
-        arcs = new ArrayDeque<>();
-        for (BinaryConstraint c : constraints) {
-            int firstVar = c.getFirstVar();
-            int secondVar = c.getSecondVar();
-            ArrayList<BinaryTuple> tuples = c.getTuples();
+    public static class Builder implements ConstraintHandler {
+        private final boolean reversedViews;
+        private final boolean offHeap;
+        private final boolean interning;
+        private boolean allDifferent;
+        private int[][] domainBounds;
+        private final ArrayDeque<Arc> arcs = new ArrayDeque<>();
+        // the distinct relations compiled so far, each mapped to itself
+        private final HashMap<Relation, Relation> relationTable = new HashMap<>();
+
+        /**
+         * A builder interning equal relations.
+         * @param reversedViews whether reversed arcs share the relation of their first arc
+         * @param offHeap whether bit matrices are allocated in direct memory, bounded by -XX:MaxDirectMemorySize
+         */
+        public Builder(boolean reversedViews, boolean offHeap) {
+            this(reversedViews, offHeap, true);
+        }
 
+        /**
+         * @param reversedViews whether reversed arcs share the relation of their first arc
+         * @param offHeap whether bit matrices are allocated in direct memory, bounded by -XX:MaxDirectMemorySize
+         * @param interning whether arcs with equal relations share a single copy
+         */
+        public Builder(boolean reversedViews, boolean offHeap, boolean interning) {
+            this.reversedViews = reversedViews;
+            this.offHeap = offHeap;
+            this.interning = interning;
+        }
+
+        /**
+         * Replace the cliques of not-equal constraints by AllDifferent constraints when the curator is built.
+         */
+        public void setAllDifferent(boolean allDifferent) {
+            this.allDifferent = allDifferent;
+        }
+
+        private static Builder of(BinaryCSP csp) {
+            Builder builder = new Builder(false, false, true);
+            int[][] domainBounds = new int[csp.getNoVariables()][];
+            for (int var = 0; var < domainBounds.length; var++) {
+                domainBounds[var] = new int[] {csp.getLB(var), csp.getUB(var)};
+            }
+            builder.onDomains(domainBounds);
+            for (BinaryConstraint c : csp.getConstraints()) {
+                builder.addConstraint(c.getFirstVar(), c.getSecondVar(), c.getFirstVals(), c.getSecondVals(),
+                                      c.getMatrix(), c.getReversedMatrix());
+            }
+            for (IntensionalConstraint c : csp.getIntensionalConstraints()) {
+                builder.onIntensionalConstraint(c);
+            }
+            return builder;
+        }
+
+        @Override
+        public void onDomains(int[][] domainBounds) {
+            this.domainBounds = domainBounds;
+        }
+
+        @Override
+        public void onConstraint(int firstVar, int secondVar, IntBuffer firstVals, IntBuffer secondVals) {
+            addConstraint(firstVar, secondVar, firstVals, secondVals, null, null);
+        }
+
+        /**
+         * Add the arcs of an intensional constraint, whose reversed arc has the reversed formula.
+         */
+        @Override
+        public void onIntensionalConstraint(IntensionalConstraint c) {
+            IntensionalRelation relation;
+            int[] params = c.getParams();
+            switch (c.getKind()) {
+                case NE:
+                    relation = new DifferenceRelation(new int[] {0});
+                    break;
+                case DISTNE:
+                    relation = DifferenceRelation.distances(params);
+                    break;
+                case LINEQ:
+                    relation = new LinearRelation(params[0], params[1], params[2], LinearRelation.Operator.EQ);
+                    break;
+                case LINNE:
+                    relation = new LinearRelation(params[0], params[1], params[2], LinearRelation.Operator.NE);
+                    break;
+                default:
+                    relation = new LinearRelation(params[0], params[1], params[2], LinearRelation.Operator.LE);
+            }
+            arcs.add(new Arc(arcs.size(), c.getFirstVar(), c.getSecondVar(), intern(relation)));
+            arcs.add(new Arc(arcs.size(), c.getSecondVar(), c.getFirstVar(), intern(relation.reversed())));
+        }
+
+        /**
+         * Add the first arc of a constraint and its reversed arc.
+         * @param matrix the pre-built bit matrix from the first to the second variable, or null
+         * @param reversedMatrix the pre-built bit matrix from the second to the first variable, or null
+         */
+        private void addConstraint(int firstVar, int secondVar, IntBuffer firstVals, IntBuffer secondVals,
+                                   LongBuffer matrix, LongBuffer reversedMatrix) {
             // add first arc
-            arcs.add(new Arc(firstVar, secondVar, tuples));
+            Relation relation = compileRelation(firstVar, secondVar, firstVals, secondVals, matrix);
+            arcs.add(new Arc(arcs.size(), firstVar, secondVar, relation));
 
             // add reversed arc
-            ArrayList<BinaryTuple> reversedTuples = new ArrayList<>();
-            for (BinaryTuple t : tuples) {
-                reversedTuples.add(t.getReversedTuple());
+            if (reversedViews) {
+                arcs.add(new Arc(arcs.size(), secondVar, firstVar, intern(new ReversedRelation(relation))));
+            } else {
+                arcs.add(new Arc(arcs.size(), secondVar, firstVar, 
+                                 compileRelation(secondVar, firstVar, secondVals, firstVals, reversedMatrix)));
+            }
+        }
+
+        /**
+         * Compile the tuples into a dense bit matrix. If the domains are too wide, they are compiled into a trie
+         * when its rows compress to at most half as many intervals as tuples, and into a hash relation otherwise.
+         * A matrix pre-built in the instance file is used as it is; any other relation returned may be shared.
+         * @param firstVals the value of the first variable in each tuple
+         * @param secondVals the value of the second variable in each tuple
+         * @param matrix the pre-built bit matrix of the relation, or null
+         */
+        private Relation compileRelation(int firstVar, int secondVar, 
+                                         IntBuffer firstVals, IntBuffer secondVals, LongBuffer matrix) {
+            int firstLB = domainBounds[firstVar][0];
+            int firstUB = domainBounds[firstVar][1];
+            int secondLB = domainBounds[secondVar][0];
+            int secondUB = domainBounds[secondVar][1];
+            if (matrix != null) {
+                // mapped matrices live in the page cache, not the heap, and are not worth hashing
+                return new BitMatrixRelation(firstLB, firstUB, secondLB, secondUB, matrix);
             }
-            arcs.add(new Arc(secondVar, firstVar, reversedTuples));
+            long words = BitMatrixRelation.wordsNeeded(firstLB, firstUB, secondLB, secondUB);
+            if (words <= MAX_DENSE_WORDS) {
+                BitMatrixRelation dense = new BitMatrixRelation(firstLB, firstUB, secondLB, secondUB);
+                for (int t = 0; t < firstVals.limit(); t++) {
+                    dense.allow(firstVals.get(t), secondVals.get(t));
+                }
+                // only a relation seen for the first time is copied off-heap
+                Relation shared = interning ? relationTable.get(dense) : null;
+                if (shared != null) {
+                    return shared;
+                }
+                return intern(offHeap ? dense.offHeapCopy() : dense);
+            }
+            TrieRelation trie = TrieRelation.of(firstLB, firstUB, secondLB, secondUB, firstVals, secondVals);
+            if (trie.getNoIntervals() <= firstVals.limit() / 2) {
+                return intern(trie);
+            }
+            HashRelation hash = new HashRelation(firstVals.limit());
+            for (int t = 0; t < firstVals.limit(); t++) {
+                hash.allow(firstVals.get(t), secondVals.get(t));
+            }
+            return intern(hash);
+        }
+
+        /**
+         * @return the relation equal to the given one that was compiled first, or the given one if interning is off
+         */
+        private Relation intern(Relation relation) {
+            if (!interning) {
+                return relation;
+            }
+            Relation shared = relationTable.putIfAbsent(relation, relation);
+            return shared == null ? relation : shared;
+        }
+
+        /**
+         * The problem read so far without its constraints, whose relations are only kept by the arcs.
+         * Solvers of the problem must be given the curator built from the same constraints.
+         */
+        public BinaryCSP getProblem() {
+            return new BinaryCSP(domainBounds, new ArrayList<>());
+        }
+
+        public ArcsCurator build() {
+            return new ArcsCurator(this, allDifferent);
         }
     }
 
@@ -40,39 +259,153 @@ public class ArcsCurator {
         return arcs;
     }
 
+    public int getNoArcs() {
+        return arcsById.length;
+    }
+
     /**
-     * Curate a collection of arcs whose second variable has the given id 
-     * and whose first variable is not from the illegalFirstVars set.
-     * @param secondVar the sevond variable id
-     * @param illegalFirstVars the collection of first variable ids to avoid
+     * Number of distinct relation objects held by the arcs, each shared relation counted once.
      */
-    public ArrayDeque<Arc> getArcsToExcept(int secondVar, ArrayDeque<Integer> illegalFirstVars) {
-        ArrayDeque<Arc> qualifiedArcs = new ArrayDeque<>();
-        for (Arc arc : arcs) {
-            if (arc.isTo(secondVar) && !illegalFirstVars.contains(arc.getFirstVar())) {
-                qualifiedArcs.addFirst(arc); 
+    public int getNoRelations() {
+        IdentityHashMap<Relation, Boolean> relations = new IdentityHashMap<>();
+        for (Arc arc : arcsById) {
+            relations.put(arc.getRelation(), Boolean.TRUE);
+        }
+        return relations.size();
+    }
+
+    /**
+     * The AllDifferent constraints replacing cliques of not-equal constraints, each listing its variable ids
+     * in ascending order. The returned array is shared and must not be modified.
+     */
+    public int[][] getAllDifferents() {
+        return allDifferents;
+    }
+
+    /**
+     * Indices in getAllDifferents of the AllDifferent constraints over the given variable.
+     * The returned array is shared and must not be modified.
+     */
+    public int[] getAllDifferentsOf(int var) {
+        return allDifferentsOf[var];
+    }
+
+    public Arc getArc(int arcId) {
+        return arcsById[arcId];
+    }
+
+    /**
+     * @return the arc over the same constraint in the opposite direction.
+     */
+    public Arc getReversedArc(Arc arc) {
+        return arcsById[arc.getId() ^ 1];
+    }
+
+    /**
+     * Arcs whose second variable has the given id, i.e. the arcs supported by that variable.
+     * The returned array is shared and must not be modified.
+     * @param secondVar the second variable id
+     */
+    public Arc[] getArcsTo(int secondVar) {
+        return arcsTo[secondVar];
+    }
+
+    /**
+     * Arcs whose first variable has the given id, i.e. the arcs revising that variable.
+     * The returned array is shared and must not be modified.
+     * @param firstVar the first variable id
+     */
+    public Arc[] getArcsFrom(int firstVar) {
+        return arcsFrom[firstVar];
+    }
+
+    /**
+     * Split the variables into the connected components of the constraint graph, with a breadth-first search
+     * over the arcs revising each variable and its AllDifferent constraints.
+     * Components are ordered by their smallest variable id.
+     * @return the ids of the variables in each component, in ascending order
+     */
+    public int[][] getComponents() {
+        int noVariables = arcsFrom.length;
+        int[] component = new int[noVariables];
+        Arrays.fill(component, -1);
+        int[] queue = new int[noVariables];
+        ArrayList<int[]> components = new ArrayList<>();
+        for (int root = 0; root < noVariables; root++) {
+            if (component[root] >= 0) {
+                continue;
             }
-        } 
-        return qualifiedArcs;
+            component[root] = components.size();
+            queue[0] = root;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int var = queue[head++];
+                for (Arc arc : arcsFrom[var]) {
+                    if (component[arc.getSecondVar()] < 0) {
+                        component[arc.getSecondVar()] = components.size();
+                        queue[tail++] = arc.getSecondVar();
+                    }
+                }
+                for (int c : allDifferentsOf[var]) {
+                    for (int member : allDifferents[c]) {
+                        if (component[member] < 0) {
+                            component[member] = components.size();
+                            queue[tail++] = member;
+                        }
+                    }
+                }
+            }
+            int[] vars = Arrays.copyOf(queue, tail);
+            Arrays.sort(vars);
+            components.add(vars);
+        }
+        return components.toArray(new int[0][]);
     }
 
     /**
-     * Curate a collection of arcs whose second variable has the given id 
-     * and whose first variable doesn't have the given id.
-     * @param secondVar the sevond variable id
-     * @param illegalFirstVar the first variable id to avoid
+     * Index the arcs by their second and first variables.
+     * Incoming arcs are listed from the most recently added, outgoing arcs in order of addition.
      */
-    public ArrayDeque<Arc> getArcsToExcept(int secondVar, int illegalFirstVar) {
-        ArrayDeque<Integer> illegalFirstVars = new ArrayDeque<>();
-        illegalFirstVars.add(illegalFirstVar);
-        return getArcsToExcept(secondVar, illegalFirstVars);
+    private void buildAdjacency(int noVariables) {
+        int[] inDegree = new int[noVariables];
+        int[] outDegree = new int[noVariables];
+        for (Arc arc : arcs) {
+            inDegree[arc.getSecondVar()]++;
+            outDegree[arc.getFirstVar()]++;
+        }
+        arcsTo = new Arc[noVariables][];
+        arcsFrom = new Arc[noVariables][];
+        for (int var = 0; var < noVariables; var++) {
+            arcsTo[var] = new Arc[inDegree[var]];
+            arcsFrom[var] = new Arc[outDegree[var]];
+        }
+        int[] outFilled = new int[noVariables];
+        for (Arc arc : arcs) {
+            arcsTo[arc.getSecondVar()][--inDegree[arc.getSecondVar()]] = arc;
+            arcsFrom[arc.getFirstVar()][outFilled[arc.getFirstVar()]++] = arc;
+        }
     }
 
     /**
-     * Curate a collection of arcs whose second variable has the given id 
-     * @param secondVar the sevond variable id
+     * Index the AllDifferent constraints by their variables.
      */
-    public ArrayDeque<Arc> getArcsTo(int secondVar) {
-        return getArcsToExcept(secondVar, new ArrayDeque<>());
+    private void indexAllDifferents(int noVariables) {
+        int[] counts = new int[noVariables];
+        for (int[] clique : allDifferents) {
+            for (int var : clique) {
+                counts[var]++;
+            }
+        }
+        allDifferentsOf = new int[noVariables][];
+        for (int var = 0; var < noVariables; var++) {
+            allDifferentsOf[var] = new int[counts[var]];
+            counts[var] = 0;
+        }
+        for (int c = 0; c < allDifferents.length; c++) {
+            for (int var : allDifferents[c]) {
+                allDifferentsOf[var][counts[var]++] = c;
+            }
+        }
     }
 }
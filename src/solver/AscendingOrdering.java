@@ -0,0 +1,17 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Variable ordering by ascending variable id.
+ */
+public class AscendingOrdering extends VariableOrdering {
+
+    public AscendingOrdering(Variable[] variables) {
+        super(variables);
+    }
+
+    @Override
+    protected long key(Variable var) {
+        return var.getId();
+    }
+}
@@ -0,0 +1,134 @@
+package solver;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * @author Thao P. Nguyen
+ * Relation stored as a dense bit matrix.
+ * Each value of the first variable owns a row of bits, one bit per value of the second variable.
+ * Rows and columns are offset by the lower bounds of the variables' domains.
+ * The words live in a LongBuffer, so that a matrix pre-built in a mapped instance file is used in place.
+ */
+public class BitMatrixRelation implements Relation {
+    private final int firstLB, firstUB, secondLB, secondUB;
+    private final int wordsPerRow;
+    private final LongBuffer bits;
+
+    /**
+     * Create an empty matrix covering the given domain bounds.
+     */
+    public BitMatrixRelation(int firstLB, int firstUB, int secondLB, int secondUB) {
+        this.firstLB = firstLB;
+        this.firstUB = firstUB;
+        this.secondLB = secondLB;
+        this.secondUB = secondUB;
+        wordsPerRow = ((secondUB - secondLB) >> 6) + 1;
+        bits = LongBuffer.allocate((firstUB - firstLB + 1) * wordsPerRow);
+    }
+
+    /**
+     * Wrap the words of a matrix built over the given domain bounds, rows of the first variable's values
+     * each holding wordsNeeded / rows words. The words are read in place, not copied.
+     */
+    public BitMatrixRelation(int firstLB, int firstUB, int secondLB, int secondUB, LongBuffer bits) {
+        this.firstLB = firstLB;
+        this.firstUB = firstUB;
+        this.secondLB = secondLB;
+        this.secondUB = secondUB;
+        wordsPerRow = ((secondUB - secondLB) >> 6) + 1;
+        if (bits.limit() != wordsNeeded(firstLB, firstUB, secondLB, secondUB)) {
+            throw new IllegalArgumentException("Matrix of " + bits.limit() + " words does not match the domain bounds.");
+        }
+        this.bits = bits;
+    }
+
+    /**
+     * Number of 64-bit words needed for a matrix over the given domain bounds.
+     */
+    public static long wordsNeeded(int firstLB, int firstUB, int secondLB, int secondUB) {
+        return (long) (firstUB - firstLB + 1) * (((secondUB - secondLB) >> 6) + 1);
+    }
+
+    /**
+     * Allow the given pair of values. Pairs outside the domain bounds can never be used and are ignored.
+     */
+    public void allow(int firstVal, int secondVal) {
+        if (inBounds(firstVal, secondVal)) {
+            int col = secondVal - secondLB;
+            int w = (firstVal - firstLB) * wordsPerRow + (col >> 6);
+            bits.put(w, bits.get(w) | 1L << col);
+        }
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        if (!inBounds(firstVal, secondVal)) {
+            return false;
+        }
+        int col = secondVal - secondLB;
+        return (bits.get((firstVal - firstLB) * wordsPerRow + (col >> 6)) & (1L << col)) != 0;
+    }
+
+    /**
+     * Word-parallel support search: intersect the row of firstVal with the second domain's bitset.
+     */
+    @Override
+    public int nextSupport(int firstVal, Domain secondDomain, int after) {
+        if (firstVal < firstLB || firstVal > firstUB) {
+            return Domain.NONE;
+        }
+        if (secondDomain.getLB() != secondLB || secondDomain.getUB() != secondUB) {
+            return Relation.super.nextSupport(firstVal, secondDomain, after);
+        }
+        int bit = after == Domain.NONE ? 0 : after - secondLB + 1;
+        if (bit > secondUB - secondLB) {
+            return Domain.NONE;
+        }
+        int w = bit >> 6;
+        long[] domainWords = secondDomain.getWords();
+        int rowStart = (firstVal - firstLB) * wordsPerRow;
+        long word = bits.get(rowStart + w) & domainWords[w] & (-1L << bit);
+        while (true) {
+            if (word != 0) {
+                return secondLB + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == wordsPerRow) {
+                return Domain.NONE;
+            }
+            word = bits.get(rowStart + w) & domainWords[w];
+        }
+    }
+
+    /**
+     * Copy the matrix to direct memory, outside the limit of the Java heap.
+     */
+    public BitMatrixRelation offHeapCopy() {
+        LongBuffer direct = ByteBuffer.allocateDirect(bits.limit() * Long.BYTES)
+                                      .order(ByteOrder.nativeOrder()).asLongBuffer();
+        direct.put(bits.duplicate().clear());
+        return new BitMatrixRelation(firstLB, firstUB, secondLB, secondUB, direct.clear());
+    }
+
+    /**
+     * Matrices are equal if they cover the same domain bounds with the same words.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BitMatrixRelation)) {
+            return false;
+        }
+        BitMatrixRelation other = (BitMatrixRelation) o;
+        return firstLB == other.firstLB && firstUB == other.firstUB && secondLB == other.secondLB
+               && secondUB == other.secondUB && bits.duplicate().clear().equals(other.bits.duplicate().clear());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * firstLB + secondLB) + bits.duplicate().clear().hashCode();
+    }
+
+    private boolean inBounds(int firstVal, int secondVal) {
+        return firstVal >= firstLB && firstVal <= firstUB && secondVal >= secondLB && secondVal <= secondUB;
+    }
+}
@@ -0,0 +1,380 @@
+package solver;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import reader.BinaryCSP;
+
+/**
+ * @author Thao P. Nguyen
+ * Solver that uses forward checking with conflict-directed backjumping (FC-CBJ).
+ *
+ * Every value removed during search is explained by the frames whose left branches caused its removal,
+ * kept as a bitset over the frames of the search stack. Each bitset is allocated on the first removal of its value
+ * and only spans the frames below the depth of the removal, so that memory and copies grow with the depth reached
+ * rather than with the total number of values:
+ *   - values removed by forward checking from a variable are explained by the reason of that variable's domain,
+ *     its own frame if assigned, otherwise the union of the explanations of its removed values
+ *   - the value removed by a right branch is explained by the conflict of the refuted left branch, minus its frame
+ *   - a value removed by a nogood is explained by the frames assigning its other literals
+ * A wipe-out fails with the reason of the wiped-out domain as conflict. The search jumps back to the deepest frame
+ * in the conflict, skipping the frames above it, and learns the conflict as a nogood.
+ * Frames with a solution or a subproblem of a split in their subtree backtrack chronologically, so that all solutions
+ * and subproblems are still found. A checkpoint does not carry explanations: the frames it replays are treated
+ * in the same way, the value removed by a replayed right branch being explained by all the left branches below it.
+ */
+public class CBJSolver extends Solver {
+    // longer conflicts are not learned as nogoods
+    private static final int MAX_LEARNED_SIZE = 16;
+
+    // explanation of the removal of each value, indexed by variable id and value offset by the lower bound,
+    // null until the value is first removed
+    private final long[][][] explanations;
+    // frame that assigned each assigned variable
+    private final int[] levels;
+    // bitsets over the frames of the search stack, grown with the depth
+    private long[] reason = new long[1];
+    private long[] conflict = new long[1];
+    private boolean conflictRecorded;
+    // frames below this depth have a solution or a subproblem in their current subtree, or have been replayed
+    private int solvedDepth;
+    private int backjumpCounter;
+    private int skippedFrameCounter;
+    private int learnedCounter;
+
+    public CBJSolver(BinaryCSP csp) {
+        this(csp, RevisionAlgorithm.AC3);
+    }
+
+    public CBJSolver(BinaryCSP csp, RevisionAlgorithm algorithm) {
+        this(csp, new ArcsCurator(csp), algorithm);
+    }
+
+    public CBJSolver(BinaryCSP csp, ArcsCurator arcsCurator, RevisionAlgorithm algorithm) {
+        super(csp, arcsCurator, algorithm);
+        explanations = new long[variables.length][][];
+        for (Variable var : variables) {
+            Domain domain = var.getDomain();
+            explanations[var.getId()] = new long[domain.getUB() - domain.getLB() + 1][];
+        }
+        levels = new int[variables.length];
+    }
+
+    @Override
+    protected boolean prepareSearch() {
+        for (long[][] varExplanations : explanations) {
+            Arrays.fill(varExplanations, null);
+        }
+        conflictRecorded = false;
+        solvedDepth = 0;
+        return true;
+    }
+
+    /**
+     * Forward checking propagation, explaining every removal by the reason of the variable's domain.
+     * @return whether future arcs are consistent with the variable's domain
+     */
+    @Override
+    protected boolean updateConsistency(Variable var, ArrayDeque<Variable> pruners) {
+        int depth = getDepth();
+        ensureWords(words(depth));
+        if (isAssigned(var.getId())) {
+            levels[var.getId()] = depth - 1;
+            clear(reason, words(depth));
+            setBit(reason, depth - 1);
+        } else {
+            if (depth == 0) {
+                // a removal at the root holds for the whole search
+                clear(reason, words(depth));
+                explainLastChange(var, reason);
+            } else if (var.getId() == getFrameVar(depth - 1) && depth - 1 < solvedDepth) {
+                // the right branch of a frame with solutions depends on all left branches below it
+                leftBranchesBelow(depth - 1, reason);
+                explainLastChange(var, reason);
+            }
+            reasonOf(var, reason);
+        }
+        for (Arc arc : arcsCurator.getArcsTo(var.getId())) {
+            if (isAssigned(arc.getFirstVar())) { // only revise future variables
+                continue;
+            }
+            arcReviseCounter++;
+            Variable futureVar = variables[arc.getFirstVar()];
+            if (reviser.revise(arc)) {
+                explainLastChange(futureVar, reason);
+                pruners.add(futureVar);
+            }
+            if (futureVar.isWipedOut()) {
+                onWipeOut(arc);
+                recordConflict(futureVar);
+                return false;
+            }
+        }
+        if (var.getDomain().size() != 1) {
+            return true;
+        }
+        // the value of a singleton domain is removed from the future variables of its AllDifferent constraints
+        int val = var.getDomain().first();
+        for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+            for (int member : arcsCurator.getAllDifferents()[c]) {
+                Variable futureVar = variables[member];
+                if (isAssigned(member) || member == var.getId() || !futureVar.getDomain().contains(val)) {
+                    continue;
+                }
+                futureVar.removeVal(val);
+                explainLastChange(futureVar, reason);
+                pruners.add(futureVar);
+                if (futureVar.isWipedOut()) {
+                    recordConflict(futureVar);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void onNogoodPruned(Variable var, int nogood) {
+        // the nogood removes the value of its literal on the variable, explained by its other literals
+        int[] vars = getNogoods().getVars(nogood);
+        int[] vals = getNogoods().getVals(nogood);
+        int removed = 0;
+        int words = words(getDepth());
+        ensureWords(words);
+        clear(reason, words);
+        for (int k = 0; k < vars.length; k++) {
+            if (vars[k] == var.getId()) {
+                removed = vals[k];
+            } else {
+                setBit(reason, levels[vars[k]]);
+            }
+        }
+        explain(var, removed, reason, words);
+        if (var.isWipedOut()) {
+            recordConflict(var);
+        }
+    }
+
+    @Override
+    protected void onNogoodConflict(int nogood) {
+        int words = words(getDepth());
+        ensureWords(words);
+        clear(conflict, words);
+        for (int varId : getNogoods().getVars(nogood)) {
+            setBit(conflict, levels[varId]);
+        }
+        conflictRecorded = true;
+    }
+
+    /**
+     * Keep track of the frames with solutions or subproblems in their subtrees.
+     */
+    @Override
+    protected void findNextVar() {
+        solvedDepth = Math.min(solvedDepth, getDepth());
+        long solutionsBefore = solutionCounter;
+        boolean subproblem = getDepth() == getSplitDepth();
+        super.findNextVar();
+        if (solutionCounter != solutionsBefore || subproblem) {
+            solvedDepth = getDepth();
+        }
+    }
+
+    /**
+     * The frames of a checkpoint were searched without the explanations of this solver, so they are replayed
+     * as frames with solutions in their subtrees, their right branches depending on all the left branches below them.
+     */
+    @Override
+    protected void prepareReplay(SearchCheckpoint checkpoint) {
+        solvedDepth = checkpoint.getDepth();
+    }
+
+    /**
+     * Jump back to the deepest frame in the conflict whose left branch is current, skipping the frames
+     * the conflict does not depend on. That left branch is refuted: its right branch removes its value,
+     * explained by the rest of the conflict, and the conflict is learned as a nogood.
+     */
+    @Override
+    protected int analyzeFailure(int frame) {
+        ensureWords(words(getDepth()));
+        if (!conflictRecorded) {
+            // a right branch has wiped out its own variable
+            reasonOf(variables[getFrameVar(frame)], conflict);
+        }
+        conflictRecorded = false;
+        int solved = Math.min(solvedDepth, getDepth());
+        for (int target = frame; target >= 0; target--) {
+            boolean left = getFrameStage(target) == UNDO_LEFT;
+            if (target < solved) {
+                // backtrack chronologically over frames with solutions
+                if (left) {
+                    leftBranchesBelow(target, reason);
+                    explainRemoval(target, reason);
+                }
+                countJump(frame, target);
+                return target;
+            }
+            if (left && getBit(conflict, target)) {
+                learn(target);
+                conflict[target >> 6] &= ~(1L << target);
+                explainRemoval(target, conflict);
+                countJump(frame, target);
+                return target;
+            }
+        }
+        countJump(frame, -1);
+        return -1;
+    }
+
+    /**
+     * Learn the conflict as a nogood on the assignments of its frames, watching the given frame's literal
+     * and the deepest other one, which are the first to be undone.
+     */
+    private void learn(int frame) {
+        int size = 0;
+        for (int w = 0; w < words(getDepth()); w++) {
+            size += Long.bitCount(conflict[w]);
+        }
+        if (size < 2 || size > MAX_LEARNED_SIZE) {
+            return;
+        }
+        int[] vars = new int[size];
+        int[] vals = new int[size];
+        vars[0] = getFrameVar(frame);
+        vals[0] = getFrameVal(frame);
+        int literal = 1;
+        for (int f = frame - 1; f >= 0; f--) {
+            if (getBit(conflict, f)) {
+                vars[literal] = getFrameVar(f);
+                vals[literal++] = getFrameVal(f);
+            }
+        }
+        learnNogood(vars, vals);
+        learnedCounter++;
+    }
+
+    private void countJump(int frame, int target) {
+        if (target < frame) {
+            backjumpCounter++;
+            skippedFrameCounter += frame - target;
+        }
+    }
+
+    /**
+     * Explain the removal of the value of a frame by its right branch.
+     */
+    private void explainRemoval(int frame, long[] explanation) {
+        // the frames of the explanation are below the frame
+        explain(variables[getFrameVar(frame)], getFrameVal(frame), explanation, words(frame));
+    }
+
+    private void explainLastChange(Variable var, long[] explanation) {
+        int words = words(getDepth());
+        for (int k = 0; k < var.getLastChangeSize(); k++) {
+            explain(var, var.getLastChangeVal(k), explanation, words);
+        }
+    }
+
+    /**
+     * Copy the first words of the explanation to the explanation of the removal of the value,
+     * allocating it on the first removal of the value or when it is too short, and clearing the words beyond.
+     */
+    private void explain(Variable var, int val, long[] explanation, int words) {
+        long[][] varExplanations = explanations[var.getId()];
+        int offset = val - var.getDomain().getLB();
+        long[] target = varExplanations[offset];
+        if (target == null || target.length < words) {
+            target = new long[words];
+            varExplanations[offset] = target;
+        } else {
+            clear(target, target.length);
+        }
+        System.arraycopy(explanation, 0, target, 0, words);
+    }
+
+    private void recordConflict(Variable var) {
+        reasonOf(var, conflict);
+        conflictRecorded = true;
+    }
+
+    /**
+     * The union of the explanations of the values removed from the domain of an unassigned variable.
+     */
+    private void reasonOf(Variable var, long[] result) {
+        int words = words(getDepth());
+        clear(result, words);
+        Domain domain = var.getDomain();
+        long[][] varExplanations = explanations[var.getId()];
+        for (int val = domain.getLB(); val <= domain.getUB(); val++) {
+            long[] explanation = varExplanations[val - domain.getLB()];
+            if (explanation != null && !domain.contains(val)) {
+                for (int w = Math.min(words, explanation.length) - 1; w >= 0; w--) {
+                    result[w] |= explanation[w];
+                }
+            }
+        }
+    }
+
+    /**
+     * The frames below the given one whose left branches are current. The right branches below are implied by them,
+     * as each right branch is only taken once the subtree of its left branch has been explored.
+     */
+    private void leftBranchesBelow(int frame, long[] result) {
+        clear(result, words(frame + 1));
+        for (int f = 0; f < frame; f++) {
+            if (getFrameStage(f) == UNDO_LEFT) {
+                setBit(result, f);
+            }
+        }
+    }
+
+    /**
+     * @return the number of words of a bitset over the frames below the given depth
+     */
+    private static int words(int depth) {
+        return (depth >> 6) + 1;
+    }
+
+    private void ensureWords(int words) {
+        if (reason.length < words) {
+            reason = Arrays.copyOf(reason, Math.max(words, reason.length * 2));
+            conflict = Arrays.copyOf(conflict, reason.length);
+        }
+    }
+
+    private static void clear(long[] bits, int words) {
+        Arrays.fill(bits, 0, words, 0);
+    }
+
+    private static void setBit(long[] bits, int bit) {
+        bits[bit >> 6] |= 1L << bit;
+    }
+
+    private static boolean getBit(long[] bits, int bit) {
+        return (bits[bit >> 6] & (1L << bit)) != 0;
+    }
+
+    @Override
+    protected void printSearchStats() {
+        super.printSearchStats();
+        System.out.println("Backjumps: " + backjumpCounter);
+        System.out.println("Frames skipped: " + skippedFrameCounter);
+        System.out.println("Nogoods learned: " + learnedCounter);
+    }
+
+    @Override
+    protected void restartStats() {
+        super.restartStats();
+        backjumpCounter = 0;
+        skippedFrameCounter = 0;
+        learnedCounter = 0;
+    }
+
+    public int getBackjumpCounts() {
+        return backjumpCounter;
+    }
+
+    public int getSkippedFrameCounts() {
+        return skippedFrameCounter;
+    }
+}
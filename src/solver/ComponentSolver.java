@@ -0,0 +1,234 @@
+package solver;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.IntensionalConstraint;
+
+/**
+ * @author Thao P. Nguyen
+ * Solver that splits the problem into the connected components of its constraint graph and solves each on its own.
+ *
+ * Variables of different components share no constraint, so the solutions of the problem are the cross-product
+ * of the solutions of its components. Each component is solved as a smaller problem, with its variables renumbered
+ * in ascending order, and the components are spread over a pool of threads, largest first.
+ *
+ * In count-only mode the solution counts of the components are multiplied, so a batch of independent puzzles
+ * costs the sum of their searches rather than their product. Otherwise the solutions of every component are kept
+ * and combined up to the solution limit. A component without solutions cancels the other components,
+ * which stop early whether they are searching or have not started yet.
+ */
+public class ComponentSolver extends CompositeSolver {
+    private final int[][] components;
+    private long maxSolutions;
+
+    private ArrayList<Solver> solvers;
+    // set once a component is found without solutions, so that the components left are not solved
+    private volatile boolean unsatisfiable;
+    private BigInteger solutionCounter;
+
+    /**
+     * @param csp the constraint problem
+     * @param configuration the configuration of the solver of every component
+     * @param threads the number of threads solving components
+     */
+    public ComponentSolver(BinaryCSP csp, SolverConfiguration configuration, int threads) {
+        super(csp, configuration, threads);
+        components = new ArcsCurator(csp).getComponents();
+    }
+
+    /**
+     * Solve every component and combine their solutions, then print solving stats to terminal.
+     * @param showSolutions if print all solutions to screen
+     * @return all possible solutions to the CSP up to the solution limit, empty unless collecting solutions
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> solve(boolean showSolutions) {
+        long timeStarted = System.currentTimeMillis();
+        maxSolutions = configuration.getMaxSolutions();
+        solutions = new ArrayDeque<>();
+        solutionCounter = BigInteger.ZERO;
+        unsatisfiable = false;
+
+        // the solutions of each component, indexed by the position of their variables in the component
+        ArrayList<ArrayList<int[]>> componentSolutions = new ArrayList<>();
+        solvers = new ArrayList<>();
+        for (int[] component : components) {
+            ArrayList<int[]> found = new ArrayList<>();
+            Solver solver = newSolver(project(component));
+            if (metrics != null) {
+                solver.setMetrics(metrics.forSubproblem(component));
+            }
+            if (isCountOnly()) {
+                solver.setCountOnly(true);
+            } else {
+                solver.setSolutionListener(assignment -> found.add(assignment.clone()));
+            }
+            componentSolutions.add(found);
+            solvers.add(solver);
+        }
+        solveComponents(configuration.getOrdering());
+
+        resetStats();
+        BigInteger product = BigInteger.ONE;
+        for (Solver solver : solvers) {
+            addStats(solver);
+            product = product.multiply(BigInteger.valueOf(solver.getSolutionCounts()));
+        }
+        if (isCountOnly()) {
+            solutionCounter = product.min(BigInteger.valueOf(maxSolutions));
+        } else if (product.signum() > 0) {
+            combine(componentSolutions);
+        }
+        timeTaken = System.currentTimeMillis() - timeStarted;
+        printResult(showSolutions);
+        return solutions;
+    }
+
+    /**
+     * Solve the components on the thread pool, largest first so that the longest searches start early.
+     * Each component stops at the solution limit, as the first combined solutions only use that many of each.
+     */
+    private void solveComponents(OrderingStrategy ordering) {
+        Integer[] bySize = new Integer[components.length];
+        for (int i = 0; i < bySize.length; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, (a, b) -> components[b].length - components[a].length);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, components.length)));
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int index : bySize) {
+            Solver solver = solvers.get(index);
+            futures.add(executor.submit(() -> {
+                if (unsatisfiable) {
+                    return;
+                }
+                solver.solve(ordering, false);
+                if (!solver.isCancelled() && solver.getSolutionCounts() == 0) {
+                    // the whole problem has no solutions
+                    unsatisfiable = true;
+                    for (Solver other : solvers) {
+                        other.cancel();
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to solve a component.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Enumerate the cross-product of the solutions of the components, like an odometer
+     * whose last component turns fastest, until the solution limit.
+     */
+    private void combine(ArrayList<ArrayList<int[]>> componentSolutions) {
+        int[] assignment = new int[csp.getNoVariables()];
+        int[] positions = new int[components.length];
+        for (int c = 0; c < components.length; c++) {
+            assign(assignment, components[c], componentSolutions.get(c).get(0));
+        }
+        long delivered = 0;
+        while (delivered < maxSolutions) {
+            pass(assignment);
+            delivered++;
+            int c = components.length - 1;
+            while (c >= 0 && positions[c] == componentSolutions.get(c).size() - 1) {
+                positions[c] = 0;
+                assign(assignment, components[c], componentSolutions.get(c).get(0));
+                c--;
+            }
+            if (c < 0) {
+                break;
+            }
+            assign(assignment, components[c], componentSolutions.get(c).get(++positions[c]));
+        }
+        solutionCounter = BigInteger.valueOf(delivered);
+    }
+
+    private static void assign(int[] assignment, int[] component, int[] solution) {
+        for (int k = 0; k < component.length; k++) {
+            assignment[component[k]] = solution[k];
+        }
+    }
+
+    /**
+     * The problem restricted to the variables of a component, renumbered by their position in the component.
+     * Constraints share their tuples and bit matrices, which are not copied.
+     */
+    private BinaryCSP project(int[] component) {
+        int[] position = new int[csp.getNoVariables()];
+        Arrays.fill(position, -1);
+        int[][] domainBounds = new int[component.length][];
+        for (int k = 0; k < component.length; k++) {
+            position[component[k]] = k;
+            domainBounds[k] = new int[] {csp.getLB(component[k]), csp.getUB(component[k])};
+        }
+        ArrayList<BinaryConstraint> constraints = new ArrayList<>();
+        for (BinaryConstraint c : csp.getConstraints()) {
+            if (position[c.getFirstVar()] >= 0) {
+                constraints.add(new BinaryConstraint(position[c.getFirstVar()], position[c.getSecondVar()],
+                                                     c.getFirstVals(), c.getSecondVals(),
+                                                     c.getMatrix(), c.getReversedMatrix()));
+            }
+        }
+        ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<>();
+        for (IntensionalConstraint c : csp.getIntensionalConstraints()) {
+            if (position[c.getFirstVar()] >= 0) {
+                intensionalConstraints.add(new IntensionalConstraint(c.getKind(), position[c.getFirstVar()],
+                                                                     position[c.getSecondVar()], c.getParams()));
+            }
+        }
+        return new BinaryCSP(domainBounds, constraints, intensionalConstraints);
+    }
+
+    private Solver newSolver(BinaryCSP component) {
+        Solver solver = configuration.createSolver(component);
+        solver.setPrintStats(false);
+        return solver;
+    }
+
+    @Override
+    protected Number countedSolutions() {
+        return solutionCounter;
+    }
+
+    @Override
+    protected void printDetails() {
+        int largest = 0;
+        for (int[] component : components) {
+            largest = Math.max(largest, component.length);
+        }
+        System.out.println("Components: " + components.length);
+        System.out.println("Largest component: " + largest);
+    }
+
+    /**
+     * @return the ids of the variables in each component, in ascending order
+     */
+    public int[][] getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the number of solutions, which may not fit in a long when counting independent components
+     */
+    public BigInteger getSolutionCounts() {
+        return solutionCounter;
+    }
+}
@@ -0,0 +1,161 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import reader.BinaryCSP;
+
+/**
+ * @author Thao P. Nguyen
+ * Solver that shares the search of a problem among several Solvers, all created from the same SolverConfiguration,
+ * and merges their solutions and stats.
+ *
+ * Subclasses (ParallelSolver and ComponentSolver) extend the general CompositeSolver and override:
+ *   - solve: to share the search among their solvers, adding the stats of each with addStats
+ *   - countedSolutions: to give the number of solutions found
+ *   - printDetails: to print the stats of how the search has been shared
+ */
+public abstract class CompositeSolver {
+    protected final BinaryCSP csp;
+    protected final SolverConfiguration configuration;
+    protected final int threads;
+    private boolean printStats = true;
+    private SolutionListener solutionListener;
+    private boolean collectSolutions = true;
+    // counters shared by all solvers, none if null
+    protected SearchMetrics metrics;
+
+    protected ArrayDeque<HashMap<Integer, Integer>> solutions;
+    protected long nodeCounter;
+    protected long arcReviseCounter;
+    protected long constraintCheckCounter;
+    protected long timeTaken;
+
+    /**
+     * @param csp the constraint problem
+     * @param configuration the configuration of every solver
+     * @param threads the number of threads searching
+     */
+    protected CompositeSolver(BinaryCSP csp, SolverConfiguration configuration, int threads) {
+        this.csp = csp;
+        this.configuration = configuration;
+        this.threads = threads;
+    }
+
+    /**
+     * Solve constraint problem with the variable ordering of the configuration and print solving stats to terminal.
+     * @param showSolutions if print all solutions to screen
+     * @return all possible solutions to the CSP up to the solution limit, empty unless collecting solutions
+     */
+    public abstract ArrayDeque<HashMap<Integer, Integer>> solve(boolean showSolutions);
+
+    /**
+     * @return the number of solutions found by the last solve
+     */
+    protected abstract Number countedSolutions();
+
+    /**
+     * Print the stats of how the search has been shared, after the time taken.
+     */
+    protected abstract void printDetails();
+
+    /**
+     * Stream solutions to the given listener instead of collecting them, or collect them again if null.
+     */
+    public void setSolutionListener(SolutionListener solutionListener) {
+        this.solutionListener = solutionListener;
+        collectSolutions = solutionListener == null;
+    }
+
+    /**
+     * Only count solutions, without collecting them or allocating anything per solution.
+     * Counting only drops the solution listener, while turning it off keeps the listener if any.
+     */
+    public void setCountOnly(boolean countOnly) {
+        if (countOnly) {
+            solutionListener = null;
+        }
+        collectSolutions = !countOnly && solutionListener == null;
+    }
+
+    /**
+     * Add the counters of the search of every solver to the given metrics, whose variables are those of the
+     * whole problem, or record none if null.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Choose whether solve prints its stats to the terminal.
+     */
+    public void setPrintStats(boolean printStats) {
+        this.printStats = printStats;
+    }
+
+    protected boolean isCountOnly() {
+        return solutionListener == null && !collectSolutions;
+    }
+
+    /**
+     * Stream a solution of the whole problem to the listener, or collect it.
+     */
+    protected void pass(int[] assignment) {
+        if (solutionListener != null) {
+            solutionListener.onSolution(assignment);
+        }
+        if (collectSolutions) {
+            HashMap<Integer, Integer> solution = new HashMap<>();
+            for (int varId = 0; varId < assignment.length; varId++) {
+                solution.put(varId, assignment[varId]);
+            }
+            solutions.add(solution);
+        }
+    }
+
+    /**
+     * Reset the stats merged over the solvers.
+     */
+    protected void resetStats() {
+        nodeCounter = 0;
+        arcReviseCounter = 0;
+        constraintCheckCounter = 0;
+    }
+
+    /**
+     * Add the stats of a solver to the stats merged over the solvers.
+     */
+    protected void addStats(Solver solver) {
+        nodeCounter += solver.getNodeCounts();
+        arcReviseCounter += solver.getArcReviseCounts();
+        constraintCheckCounter += solver.getConstraintCheckCounts();
+    }
+
+    public void printResult(boolean showSolutions) {
+        if (!printStats) {
+            return;
+        }
+        System.out.println(String.format("There are %d solutions.", countedSolutions()));
+        System.out.println("Time taken: " + timeTaken);
+        printDetails();
+        System.out.println("Nodes used: " + nodeCounter);
+        System.out.println("Arc revisions: " + arcReviseCounter);
+        System.out.println("Constraint checks: " + constraintCheckCounter);
+        if (showSolutions) {
+            for (HashMap<Integer, Integer> sol : solutions) {
+                System.out.println("Sol 1: " + sol.toString());
+            }
+        }
+    }
+
+    public SolverConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public long getTimeTaken() {
+        return timeTaken;
+    }
+
+    public long getNodeCounts() {
+        return nodeCounter;
+    }
+}
@@ -0,0 +1,99 @@
+package solver;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * Intensional relation forbidding some differences between the 2 values: x - y is not one of the offsets.
+ * x != y forbids the offset 0, and |x - y| != k the offsets k and -k.
+ * A value x loses all its supports only if every y of the second domain is x minus an offset,
+ * so nothing is pruned while the second domain has more values than there are offsets.
+ */
+public class DifferenceRelation implements IntensionalRelation {
+    // the forbidden differences, sorted and distinct
+    private final int[] offsets;
+
+    /**
+     * @param forbidden the forbidden values of x - y, in any order and possibly repeated
+     */
+    public DifferenceRelation(int[] forbidden) {
+        offsets = Arrays.stream(forbidden).sorted().distinct().toArray();
+    }
+
+    /**
+     * The relation |x - y| != k for each given distance k.
+     */
+    public static DifferenceRelation distances(int[] distances) {
+        int[] forbidden = new int[distances.length * 2];
+        for (int i = 0; i < distances.length; i++) {
+            forbidden[2 * i] = distances[i];
+            forbidden[2 * i + 1] = -distances[i];
+        }
+        return new DifferenceRelation(forbidden);
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        return Arrays.binarySearch(offsets, firstVal - secondVal) < 0;
+    }
+
+    @Override
+    public int minSupported(Domain secondDomain) {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public int maxSupported(Domain secondDomain) {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * The candidates are the smallest value of the second domain plus each offset.
+     */
+    @Override
+    public int unsupported(Domain secondDomain, int[] values) {
+        if (secondDomain.size() > offsets.length) {
+            return 0;
+        }
+        if (secondDomain.isEmpty()) {
+            return CHECK_ALL;
+        }
+        int count = 0;
+        int first = secondDomain.first();
+        for (int offset : offsets) {
+            int firstVal = first + offset;
+            boolean supported = false;
+            for (int secondVal = secondDomain.first(); secondVal != Domain.NONE && !supported;
+                 secondVal = secondDomain.next(secondVal)) {
+                supported = isConsistentWith(firstVal, secondVal);
+            }
+            if (!supported) {
+                values[count++] = firstVal;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int getMaxUnsupported() {
+        return offsets.length;
+    }
+
+    @Override
+    public IntensionalRelation reversed() {
+        int[] negated = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            negated[i] = -offsets[i];
+        }
+        return new DifferenceRelation(negated);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DifferenceRelation && Arrays.equals(offsets, ((DifferenceRelation) o).offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(offsets);
+    }
+}
@@ -0,0 +1,91 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Variable ordering by smallest ratio of domain size to degree.
+ * The degree of a variable counts its constraints with unassigned variables,
+ * each constraint counting its weight. Weights are all 1 unless bumped by a subclass.
+ * An AllDifferent constraint counts 1 for each of its other unassigned variables, as its not-equal constraints did.
+ */
+public class DomDegOrdering extends VariableOrdering {
+    protected final ArcsCurator arcsCurator;
+    // weight of each constraint, shared by its arcs with ids 2k and 2k + 1
+    protected final int[] constraintWeights;
+    // sum of the weights of each variable's constraints with unassigned variables
+    private final long[] degrees;
+    private final boolean[] assigned;
+
+    public DomDegOrdering(Variable[] variables, ArcsCurator arcsCurator) {
+        super(variables);
+        this.arcsCurator = arcsCurator;
+        constraintWeights = new int[arcsCurator.getNoArcs() / 2];
+        degrees = new long[variables.length];
+        assigned = new boolean[variables.length];
+        for (int c = 0; c < constraintWeights.length; c++) {
+            constraintWeights[c] = 1;
+        }
+        for (Variable var : variables) {
+            degrees[var.getId()] = arcsCurator.getArcsFrom(var.getId()).length;
+            for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+                degrees[var.getId()] += arcsCurator.getAllDifferents()[c].length - 1;
+            }
+        }
+    }
+
+    @Override
+    protected long key(Variable var) {
+        return ratioKey((double) var.getDomain().size() / degrees[var.getId()]);
+    }
+
+    /**
+     * The neighbours of an assigned variable lose the weights of their constraints with it.
+     */
+    @Override
+    public void onAssign(Variable var) {
+        assigned[var.getId()] = true;
+        for (Arc arc : arcsCurator.getArcsFrom(var.getId())) {
+            degrees[arc.getSecondVar()] -= constraintWeights[arc.getId() >> 1];
+            update(variables[arc.getSecondVar()]);
+        }
+        updateAllDifferentDegrees(var, -1);
+    }
+
+    @Override
+    public void onUnassign(Variable var) {
+        assigned[var.getId()] = false;
+        for (Arc arc : arcsCurator.getArcsFrom(var.getId())) {
+            degrees[arc.getSecondVar()] += constraintWeights[arc.getId() >> 1];
+            update(variables[arc.getSecondVar()]);
+        }
+        updateAllDifferentDegrees(var, 1);
+    }
+
+    /**
+     * Add the given change to the degrees of the other variables of the AllDifferent constraints over a variable.
+     */
+    private void updateAllDifferentDegrees(Variable var, int change) {
+        for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+            for (int member : arcsCurator.getAllDifferents()[c]) {
+                if (member != var.getId()) {
+                    degrees[member] += change;
+                    update(variables[member]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Increase the weight of the constraint of the given arc by one.
+     */
+    protected void bumpWeight(Arc arc) {
+        constraintWeights[arc.getId() >> 1]++;
+        if (!assigned[arc.getSecondVar()]) {
+            degrees[arc.getFirstVar()]++;
+            update(variables[arc.getFirstVar()]);
+        }
+        if (!assigned[arc.getFirstVar()]) {
+            degrees[arc.getSecondVar()]++;
+            update(variables[arc.getSecondVar()]);
+        }
+    }
+}
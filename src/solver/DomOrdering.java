@@ -0,0 +1,17 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Variable ordering by smallest domain first, ties broken by ascending variable id.
+ */
+public class DomOrdering extends VariableOrdering {
+
+    public DomOrdering(Variable[] variables) {
+        super(variables);
+    }
+
+    @Override
+    protected long key(Variable var) {
+        return var.getDomain().size();
+    }
+}
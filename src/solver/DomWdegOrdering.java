@@ -0,0 +1,19 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Variable ordering by smallest ratio of domain size to weighted degree (dom/wdeg).
+ * The weight of a constraint is bumped every time revising one of its arcs wipes out a domain,
+ * so that variables involved in frequent conflicts are branched on first.
+ */
+public class DomWdegOrdering extends DomDegOrdering {
+
+    public DomWdegOrdering(Variable[] variables, ArcsCurator arcsCurator) {
+        super(variables, arcsCurator);
+    }
+
+    @Override
+    public void onWipeOut(Arc arc) {
+        bumpWeight(arc);
+    }
+}
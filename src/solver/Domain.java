@@ -0,0 +1,139 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A domain of integer values stored as a bitset offset by the lower bound.
+ * Values are visited in ascending order without allocation:
+ *   for (int v = domain.first(); v != Domain.NONE; v = domain.next(v))
+ */
+public class Domain {
+    // returned by first and next when there are no more values
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final int lb, ub;
+    private final long[] words;
+    private int size;
+
+    /**
+     * Create a domain containing all values from lowerBound to upperBound (inclusive).
+     * @throws IllegalArgumentException if lowerBound is greater than upperBound
+     */
+    public Domain(int lowerBound, int upperBound) {
+        if (lowerBound > upperBound) {
+            throw new IllegalArgumentException("Domain lower bound " + lowerBound 
+                                               + " is greater than its upper bound " + upperBound);
+        }
+        lb = lowerBound;
+        ub = upperBound;
+        words = new long[((upperBound - lowerBound) >> 6) + 1];
+        size = upperBound - lowerBound + 1;
+        for (int i = 0; i < size >> 6; i++) {
+            words[i] = -1L;
+        }
+        if ((size & 63) != 0) {
+            words[size >> 6] = (1L << size) - 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int val) {
+        if (val < lb || val > ub) {
+            return false;
+        }
+        int bit = val - lb;
+        return (words[bit >> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return the smallest value in the domain, or NONE if it is empty.
+     */
+    public int first() {
+        return nextFrom(0);
+    }
+
+    /**
+     * @return the largest value in the domain, or NONE if it is empty.
+     */
+    public int last() {
+        for (int w = words.length - 1; w >= 0; w--) {
+            if (words[w] != 0) {
+                return lb + (w << 6) + 63 - Long.numberOfLeadingZeros(words[w]);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the smallest value in the domain greater than val, or NONE if there is none.
+     * Any val below the lower bound gives the smallest value.
+     */
+    public int next(int val) {
+        if (val >= ub) {
+            return NONE;
+        }
+        // clamped to lb - 1, so that the bit searched from is never negative
+        return nextFrom(val < lb ? 0 : val - lb + 1);
+    }
+
+    private int nextFrom(int bit) {
+        int w = bit >> 6;
+        if (w >= words.length) {
+            return NONE;
+        }
+        long word = words[w] & (-1L << bit);
+        while (true) {
+            if (word != 0) {
+                return lb + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length) {
+                return NONE;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * Remove a value from the domain.
+     * @return whether the value was in the domain.
+     */
+    public boolean remove(int val) {
+        if (!contains(val)) {
+            return false;
+        }
+        int bit = val - lb;
+        words[bit >> 6] &= ~(1L << bit);
+        size--;
+        return true;
+    }
+
+    /**
+     * Put back a value that was removed from the domain.
+     */
+    public void restore(int val) {
+        int bit = val - lb;
+        words[bit >> 6] |= 1L << bit;
+        size++;
+    }
+
+    public int getLB() {
+        return lb;
+    }
+
+    public int getUB() {
+        return ub;
+    }
+
+    /**
+     * The underlying bitset words, bit i standing for the value lb + i. Callers must not modify them.
+     */
+    long[] getWords() {
+        return words;
+    }
+}
@@ -13,25 +13,54 @@ public class FCSolver extends Solver {
     public FCSolver(BinaryCSP csp) {
         super(csp);
     }
+
+    public FCSolver(BinaryCSP csp, RevisionAlgorithm algorithm) {
+        super(csp, algorithm);
+    }
+
+    public FCSolver(BinaryCSP csp, ArcsCurator arcsCurator, RevisionAlgorithm algorithm) {
+        super(csp, arcsCurator, algorithm);
+    }
     
     /**
      * Forward checking propagation.
-     * Check future arcs onto current variable.
+     * Check future arcs onto current variable, and once its domain is a single value,
+     * remove that value from the future variables of its AllDifferent constraints.
      * @return boolean value of whether future arcs are consistent with var assignment
      */
     @Override
     protected boolean updateConsistency(Variable var, ArrayDeque<Variable> pruners) {
-        ArrayDeque<Arc> futureArcs = arcsCurator.getArcsToExcept(var.getId(), getAssignedId());
-        for (Arc arc : futureArcs) {
+        for (Arc arc : arcsCurator.getArcsTo(var.getId())) {
+            if (assigned[arc.getFirstVar()]) { // only revise future variables
+                continue;
+            }
             arcReviseCounter++;
-            Variable futureVar = variables.get(arc.getFirstVar());
-            if (futureVar.pruneDomain(arc, var)) {
+            Variable futureVar = variables[arc.getFirstVar()];
+            if (reviser.revise(arc)) {
                 pruners.add(futureVar);
             }
             if (futureVar.isWipedOut()) {
+                onWipeOut(arc);
                 return false;
             }
         }
+        if (var.getDomain().size() != 1) {
+            return true;
+        }
+        int val = var.getDomain().first();
+        for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+            for (int member : arcsCurator.getAllDifferents()[c]) {
+                Variable futureVar = variables[member];
+                if (assigned[member] || member == var.getId() || !futureVar.getDomain().contains(val)) {
+                    continue;
+                }
+                futureVar.removeVal(val);
+                pruners.add(futureVar);
+                if (futureVar.isWipedOut()) {
+                    return false;
+                }
+            }
+        }
         return true;
     }
 }
@@ -0,0 +1,17 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Lexicographic value ordering: always branch on the smallest value in the domain.
+ */
+public class FirstValueOrdering extends ValueOrdering {
+
+    public FirstValueOrdering(Variable[] variables) {
+        super(variables);
+    }
+
+    @Override
+    public int select(Variable var) {
+        return var.getDomain().first();
+    }
+}
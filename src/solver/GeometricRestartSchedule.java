@@ -0,0 +1,38 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Restart cutoffs growing geometrically: scale, scale * factor, scale * factor^2, ...
+ */
+public class GeometricRestartSchedule extends RestartSchedule {
+    public static final double DEFAULT_FACTOR = 1.5;
+
+    private final double factor;
+    private double cutoff;
+
+    public GeometricRestartSchedule(long scale) {
+        this(scale, DEFAULT_FACTOR);
+    }
+
+    /**
+     * @param scale the cutoff of the first run
+     * @param factor the growth of the cutoff between runs, greater than 1
+     */
+    public GeometricRestartSchedule(long scale, double factor) {
+        super(scale);
+        this.factor = factor;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        cutoff = scale;
+    }
+
+    @Override
+    public long nextCutoff() {
+        long next = (long) cutoff;
+        cutoff *= factor;
+        return next;
+    }
+}
@@ -0,0 +1,113 @@
+package solver;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * Relation stored as an open-addressing hash set of value pairs.
+ * Used instead of a bit matrix when the domains are too wide for a dense representation.
+ */
+public class HashRelation implements Relation {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] table;
+    private int size;
+
+    public HashRelation(int expectedTuples) {
+        int capacity = 16;
+        while (capacity < expectedTuples * 2) {
+            capacity <<= 1;
+        }
+        table = newTable(capacity);
+    }
+
+    /**
+     * Allow the given pair of values.
+     */
+    public void allow(int firstVal, int secondVal) {
+        if (size * 2 >= table.length) {
+            rehash();
+        }
+        if (insert(table, pack(firstVal, secondVal))) {
+            size++;
+        }
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        long key = pack(firstVal, secondVal);
+        int mask = table.length - 1;
+        for (int i = hash(key) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hash relations are equal if they allow the same pairs, whatever the capacity of their tables.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof HashRelation) || ((HashRelation) o).size != size) {
+            return false;
+        }
+        HashRelation other = (HashRelation) o;
+        for (long key : table) {
+            if (key != EMPTY && !other.isConsistentWith((int) (key >> 32), (int) key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = size;
+        for (long key : table) {
+            if (key != EMPTY) {
+                h += hash(key);
+            }
+        }
+        return h;
+    }
+
+    private void rehash() {
+        long[] newTable = newTable(table.length << 1);
+        for (long key : table) {
+            if (key != EMPTY) {
+                insert(newTable, key);
+            }
+        }
+        table = newTable;
+    }
+
+    private static boolean insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+        return true;
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    // the packed pair of (Integer.MIN_VALUE, 0) collides with EMPTY, which no real domain reaches
+    private static long pack(int firstVal, int secondVal) {
+        return ((long) firstVal << 32) | (secondVal & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,152 @@
+package solver;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * A binary min-heap of integer ids from 0 to capacity - 1, each with a long key.
+ * Ids with equal keys are ordered by ascending rank, which is the id unless ranks are given.
+ * The position of every id in the heap is indexed, so that contains, remove 
+ * and changing the key of an id in the heap are O(1) or O(log n) without allocation.
+ */
+public class IndexedMinHeap {
+    private final int[] heap;
+    // position of each id in the heap, -1 if absent
+    private final int[] position;
+    private final long[] keys;
+    // tie-breaking order of each id
+    private final int[] ranks;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        keys = new long[capacity];
+        ranks = new int[capacity];
+        Arrays.fill(position, -1);
+        for (int id = 0; id < capacity; id++) {
+            ranks[id] = id;
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    /**
+     * Insert an id that is not in the heap.
+     */
+    public void add(int id, long key) {
+        keys[id] = key;
+        heap[size] = id;
+        position[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Remove and return the id with the smallest key.
+     */
+    public int poll() {
+        int id = heap[0];
+        removeAt(0);
+        return id;
+    }
+
+    /**
+     * Remove an id from the heap if present.
+     */
+    public void remove(int id) {
+        if (contains(id)) {
+            removeAt(position[id]);
+        }
+    }
+
+    /**
+     * Change the key of an id in the heap, in either direction.
+     */
+    public void update(int id, long key) {
+        long old = keys[id];
+        keys[id] = key;
+        if (key < old) {
+            siftUp(position[id]);
+        } else if (key > old) {
+            siftDown(position[id]);
+        }
+    }
+
+    public long getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Change the tie-breaking order of the ids, then restore the heap order in O(n).
+     * @param ranks a permutation of the ids, indexed by id
+     */
+    public void setRanks(int[] ranks) {
+        System.arraycopy(ranks, 0, this.ranks, 0, this.ranks.length);
+        for (int pos = (size >> 1) - 1; pos >= 0; pos--) {
+            siftDown(pos);
+        }
+    }
+
+    private void removeAt(int pos) {
+        int id = heap[pos];
+        position[id] = -1;
+        size--;
+        if (pos < size) {
+            int last = heap[size];
+            heap[pos] = last;
+            position[last] = pos;
+            siftDown(pos);
+            siftUp(position[last]);
+        }
+    }
+
+    private void siftUp(int pos) {
+        int id = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >> 1;
+            if (!less(id, heap[parent])) {
+                break;
+            }
+            place(heap[parent], pos);
+            pos = parent;
+        }
+        place(id, pos);
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], id)) {
+                break;
+            }
+            place(heap[child], pos);
+            pos = child;
+        }
+        place(id, pos);
+    }
+
+    private boolean less(int id, int other) {
+        return keys[id] < keys[other] || (keys[id] == keys[other] && ranks[id] < ranks[other]);
+    }
+
+    private void place(int id, int pos) {
+        heap[pos] = id;
+        position[id] = pos;
+    }
+}
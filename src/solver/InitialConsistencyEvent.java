@@ -0,0 +1,38 @@
+package solver;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * @author Thao P. Nguyen
+ * Flight Recorder event of the consistency MACSolver establishes before searching, with the arcs it has revised
+ * and the values it has removed. Counting the values removed visits every domain, which is only done when the
+ * event is enabled.
+ */
+@Name("csp.InitialConsistency")
+@Label("Initial Consistency")
+@Category({"CSP Solver", "Search"})
+@Description("Arc consistency established before the search")
+final class InitialConsistencyEvent extends jdk.jfr.Event {
+    @Label("Revision Algorithm")
+    String algorithm;
+
+    @Label("Arcs")
+    int arcs;
+
+    @Label("AllDifferent Constraints")
+    int allDifferents;
+
+    @Label("Arc Revisions")
+    long revisions;
+
+    @Label("Constraint Checks")
+    long constraintChecks;
+
+    @Label("Values Removed")
+    long valuesRemoved;
+
+    @Label("Consistent")
+    boolean consistent;
+}
@@ -0,0 +1,40 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A relation given by a formula instead of a set of pairs, revised without checking every value.
+ * From the second domain alone, an intensional relation tells which values of the first variable
+ * have lost their support: the values outside its supported bounds, and a few values inside them.
+ * Most revisions then cost O(1), e.g. x != y only removes a value once y is a singleton.
+ */
+public interface IntensionalRelation extends Relation {
+    // returned by unsupported when each value between the supported bounds must be checked
+    int CHECK_ALL = -1;
+
+    /**
+     * @return the smallest value of the first variable that may have a support in the second domain
+     */
+    int minSupported(Domain secondDomain);
+
+    /**
+     * @return the largest value of the first variable that may have a support in the second domain
+     */
+    int maxSupported(Domain secondDomain);
+
+    /**
+     * Find the values between the supported bounds that have no support in the second domain.
+     * @param values receives the values found, at most getMaxUnsupported of them
+     * @return the number of values found, or CHECK_ALL if they cannot be told without checking each value
+     */
+    int unsupported(Domain secondDomain, int[] values);
+
+    /**
+     * @return the largest number of values written by unsupported
+     */
+    int getMaxUnsupported();
+
+    /**
+     * @return the same relation from the second variable to the first
+     */
+    IntensionalRelation reversed();
+}
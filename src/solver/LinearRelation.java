@@ -0,0 +1,165 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Intensional relation a * x + b * y op c over the first value x and the second value y,
+ * where op is =, != or <= and the coefficients a and b are non-zero.
+ * Sums are computed on longs, so no value of int domains overflows them.
+ */
+public class LinearRelation implements IntensionalRelation {
+
+    public enum Operator {
+        EQ, NE, LE
+    }
+
+    private final long a, b, c;
+    private final Operator operator;
+
+    /**
+     * @throws IllegalArgumentException if a coefficient is zero
+     */
+    public LinearRelation(int a, int b, int c, Operator operator) {
+        if (a == 0 || b == 0) {
+            throw new IllegalArgumentException("Linear relations need non-zero coefficients.");
+        }
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.operator = operator;
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        long sum = a * firstVal + b * secondVal;
+        switch (operator) {
+            case EQ:
+                return sum == c;
+            case NE:
+                return sum != c;
+            default:
+                return sum <= c;
+        }
+    }
+
+    /**
+     * The only candidate support of an equation is computed, and an inequality is supported
+     * by the values of the second domain on one side of a bound.
+     */
+    @Override
+    public int nextSupport(int firstVal, Domain secondDomain, int after) {
+        long rest = c - a * firstVal;
+        switch (operator) {
+            case EQ:
+                if (rest % b != 0) {
+                    return Domain.NONE;
+                }
+                long secondVal = rest / b;
+                return (after == Domain.NONE || secondVal > after) && secondVal >= secondDomain.getLB()
+                       && secondVal <= secondDomain.getUB() && secondDomain.contains((int) secondVal)
+                       ? (int) secondVal : Domain.NONE;
+            case LE:
+                int next = after == Domain.NONE ? secondDomain.first() : secondDomain.next(after);
+                if (next == Domain.NONE) {
+                    return Domain.NONE;
+                }
+                if (b > 0) {
+                    // b * y <= rest for every y up to the bound
+                    return next <= Math.floorDiv(rest, b) ? next : Domain.NONE;
+                }
+                // b * y <= rest for every y from the bound
+                long bound = -Math.floorDiv(-rest, b);
+                if (next >= bound) {
+                    return next;
+                }
+                return bound > secondDomain.getUB() ? Domain.NONE
+                       : secondDomain.contains((int) bound) ? (int) bound : secondDomain.next((int) bound);
+            default:
+                return IntensionalRelation.super.nextSupport(firstVal, secondDomain, after);
+        }
+    }
+
+    /**
+     * The smallest first value reaching the range of a * x allowed by the second domain.
+     */
+    @Override
+    public int minSupported(Domain secondDomain) {
+        if (operator == Operator.NE || secondDomain.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        // a * x is at most c - min(b * y), and at least c - max(b * y) for an equation
+        long high = c - Math.min(b * secondDomain.first(), b * secondDomain.last());
+        long low = c - Math.max(b * secondDomain.first(), b * secondDomain.last());
+        if (a > 0) {
+            return operator == Operator.EQ ? clamp(-Math.floorDiv(-low, a)) : Integer.MIN_VALUE;
+        }
+        return clamp(-Math.floorDiv(-high, a));
+    }
+
+    /**
+     * The largest first value reaching the range of a * x allowed by the second domain.
+     */
+    @Override
+    public int maxSupported(Domain secondDomain) {
+        if (operator == Operator.NE || secondDomain.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        long high = c - Math.min(b * secondDomain.first(), b * secondDomain.last());
+        long low = c - Math.max(b * secondDomain.first(), b * secondDomain.last());
+        if (a > 0) {
+            return clamp(Math.floorDiv(high, a));
+        }
+        return operator == Operator.EQ ? clamp(Math.floorDiv(low, a)) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * An inequality supports every value within its bounds. Each value of an equation must be checked,
+     * and a disequation only loses the value of x that makes the sum c with the last value of y.
+     */
+    @Override
+    public int unsupported(Domain secondDomain, int[] values) {
+        switch (operator) {
+            case EQ:
+                return CHECK_ALL;
+            case NE:
+                if (secondDomain.size() != 1) {
+                    return secondDomain.isEmpty() ? CHECK_ALL : 0;
+                }
+                long rest = c - b * secondDomain.first();
+                if (rest % a != 0 || rest / a < Integer.MIN_VALUE || rest / a > Integer.MAX_VALUE) {
+                    return 0;
+                }
+                values[0] = (int) (rest / a);
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public int getMaxUnsupported() {
+        return 1;
+    }
+
+    @Override
+    public IntensionalRelation reversed() {
+        return new LinearRelation((int) b, (int) a, (int) c, operator);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LinearRelation)) {
+            return false;
+        }
+        LinearRelation other = (LinearRelation) o;
+        return a == other.a && b == other.b && c == other.c && operator == other.operator;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (31 * (31 * (31 * a + b) + c)) + operator.hashCode();
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,38 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Restart cutoffs following the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ... times the scale.
+ * The sequence is within a logarithmic factor of the optimal restart strategy for any runtime distribution.
+ */
+public class LubyRestartSchedule extends RestartSchedule {
+    private long run;
+
+    public LubyRestartSchedule(long scale) {
+        super(scale);
+    }
+
+    @Override
+    public void reset() {
+        run = 0;
+    }
+
+    @Override
+    public long nextCutoff() {
+        return scale * luby(++run);
+    }
+
+    /**
+     * The i-th term of the Luby sequence, from i = 1.
+     */
+    static long luby(long i) {
+        while (true) {
+            // find the k such that 2^(k-1) <= i < 2^k
+            int k = 64 - Long.numberOfLeadingZeros(i);
+            if (i == (1L << k) - 1) {
+                return 1L << (k - 1);
+            }
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+}
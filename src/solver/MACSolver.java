@@ -1,34 +1,49 @@
 package solver;
 
 import java.util.ArrayDeque;
-import java.util.HashMap;
 
 import reader.BinaryCSP;
 
 /**
  * @author Thao P. Nguyen
  * Solver that uses Maintaining Arc Consistency propagation.
+ * Arcs are revised with the RevisionAlgorithm given at construction (AC3 by default).
+ * The AllDifferent constraints of the ArcsCurator are propagated once the arc queue is empty,
+ * each pruning the domains of its variables to generalised arc consistency.
  */
 public class MACSolver extends Solver {
+    private final ArcQueue arcQ;
+    private final AllDifferentPropagator[] allDifferents;
+    // indices of the AllDifferent constraints waiting for propagation
+    private final ArrayDeque<Integer> allDifferentQ = new ArrayDeque<>();
+    private final boolean[] allDifferentQueued;
+    private long allDifferentCounter;
+
     public MACSolver(BinaryCSP csp) {
-        super(csp);
+        this(csp, RevisionAlgorithm.AC3);
+    } 
+
+    public MACSolver(BinaryCSP csp, RevisionAlgorithm algorithm) {
+        this(csp, new ArcsCurator(csp), algorithm);
+    } 
+
+    public MACSolver(BinaryCSP csp, ArcsCurator arcsCurator, RevisionAlgorithm algorithm) {
+        super(csp, arcsCurator, algorithm);
+        arcQ = new ArcQueue(arcsCurator.getNoArcs());
+        int[][] cliques = arcsCurator.getAllDifferents();
+        allDifferents = new AllDifferentPropagator[cliques.length];
+        for (int c = 0; c < cliques.length; c++) {
+            allDifferents[c] = new AllDifferentPropagator(cliques[c], variables);
+        }
+        allDifferentQueued = new boolean[cliques.length];
     } 
 
     /**
      * Establish initial arc consistency before searching.
      */
     @Override
-    public ArrayDeque<HashMap<Integer, Integer>> solve(boolean ascendingVarOrder, boolean showSolutions) {
-        restartStats();
-        timeStarted = System.currentTimeMillis();
-        if (initialConsistency()) {
-            return super.solve(ascendingVarOrder, showSolutions);
-        }
-        // if not initially consistent, show no solutions
-        assignments = new ArrayDeque<>();
-        solutions = new ArrayDeque<>();
-        printResult(showSolutions);
-        return solutions;
+    protected boolean prepareSearch() {
+        return initialConsistency();
     }
 
     /**
@@ -36,41 +51,90 @@ public class MACSolver extends Solver {
      * @return
      */
     private boolean initialConsistency() {
+        InitialConsistencyEvent event = new InitialConsistencyEvent();
+        event.begin();
+        long values = event.isEnabled() ? countValues() : 0;
+        long revisions = arcReviseCounter;
+        long checks = reviser.getConstraintChecks();
         // record variables that pruned their domains during propagation
         ArrayDeque<Variable> pruners = new ArrayDeque<>();
-        arcQ = new ArrayDeque<>(arcsCurator.getAllArcs()) {
-            @Override
-            public boolean add(Arc arc) { // only add if arc is not already in queue
-                return !this.contains(arc) && super.add(arc);
-            }
-        };
-        if (updateConsistency(pruners)) {
+        int supportMark = reviser.mark();
+        for (Arc arc : arcsCurator.getAllArcs()) {
+            arcQ.add(arc);
+        }
+        for (int c = 0; c < allDifferents.length; c++) {
+            addAllDifferent(c);
+        }
+        boolean consistent = updateConsistency(pruners);
+        if (event.shouldCommit()) {
+            event.algorithm = reviser.getAlgorithm().name();
+            event.arcs = arcsCurator.getNoArcs();
+            event.allDifferents = allDifferents.length;
+            event.revisions = arcReviseCounter - revisions;
+            event.constraintChecks = reviser.getConstraintChecks() - checks;
+            event.valuesRemoved = values - countValues();
+            event.consistent = consistent;
+            event.commit();
+        }
+        if (consistent) {
             return true;
         }
         undoPruning(pruners);
+        reviser.restore(supportMark);
         return false;
     }
 
     /**
-     * Iterate over arc queues and maintain arc consistency.
+     * @return the number of values left in all the domains
+     */
+    private long countValues() {
+        long values = 0;
+        for (Variable var : variables) {
+            values += var.getDomain().size();
+        }
+        return values;
+    }
+
+    /**
+     * Iterate over arc queues and maintain arc consistency, then propagate the AllDifferent constraints
+     * over the variables pruned, one at a time until both queues are empty.
      * @return whether all arcs are consistent and no variables have been wiped out.
      */
     private boolean updateConsistency(ArrayDeque<Variable> pruners) {
-        while (!arcQ.isEmpty()) {
-            arcReviseCounter++;
-            Arc arc = arcQ.removeFirst();
-            Variable firstVar = variables.get(arc.getFirstVar());
-            Variable secondVar = variables.get(arc.getSecondVar());
-            if (firstVar.pruneDomain(arc, secondVar)) {
-                pruners.add(firstVar);
-                if (firstVar.isWipedOut()) {
-                    arcQ.clear();
-                    return false;
+        while (true) {
+            while (!arcQ.isEmpty()) {
+                arcReviseCounter++;
+                Arc arc = arcQ.poll();
+                Variable firstVar = variables[arc.getFirstVar()];
+                Variable secondVar = variables[arc.getSecondVar()];
+                if (reviser.revise(arc)) {
+                    pruners.add(firstVar);
+                    if (firstVar.isWipedOut()) {
+                        onWipeOut(arc);
+                        clearQueues();
+                        return false;
+                    }
+                    addArcsSupportedByExcept(firstVar, secondVar);
+                    addAllDifferentsOfExcept(firstVar, -1);
                 }
-                addArcsSupportedByExcept(firstVar, secondVar);
+            }
+            if (allDifferentQ.isEmpty()) {
+                return true;
+            }
+            int c = allDifferentQ.poll();
+            allDifferentQueued[c] = false;
+            allDifferentCounter++;
+            AllDifferentPropagator propagator = allDifferents[c];
+            if (!propagator.propagate(pruners)) {
+                clearQueues();
+                return false;
+            }
+            // the propagator is idempotent, so it is not added again by its own pruning
+            for (int k = 0; k < propagator.getNoPruned(); k++) {
+                addArcsSupportedBy(propagator.getPruned(k));
+                addAllDifferentsOfExcept(propagator.getPruned(k), c);
             }
         }
-        return true;
     }
 
     /**
@@ -79,21 +143,65 @@ public class MACSolver extends Solver {
     @Override
     protected boolean updateConsistency(Variable var, ArrayDeque<Variable> pruners) {
         addArcsSupportedBy(var);
+        addAllDifferentsOfExcept(var, -1);
         return updateConsistency(pruners);
     }
 
     private void addArcsSupportedByExcept(Variable supporter, Variable illegalSupportee) {
-        ArrayDeque<Arc> arcs2Add = arcsCurator.getArcsToExcept(supporter.getId(), illegalSupportee.getId());
-        for (Arc newArc : arcs2Add) {
-            arcQ.addLast(newArc);
+        for (Arc newArc : arcsCurator.getArcsTo(supporter.getId())) {
+            if (newArc.getFirstVar() != illegalSupportee.getId()) {
+                arcQ.add(newArc);
+            }
         }
     }
 
     private void addArcsSupportedBy(Variable supporter) {
-        ArrayDeque<Arc> arcs2Add = arcsCurator.getArcsTo(supporter.getId());
-        for (Arc newArc : arcs2Add) {
-            arcQ.addLast(newArc);
+        for (Arc newArc : arcsCurator.getArcsTo(supporter.getId())) {
+            arcQ.add(newArc);
         }
     }
 
+    private void addAllDifferentsOfExcept(Variable var, int except) {
+        for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+            if (c != except) {
+                addAllDifferent(c);
+            }
+        }
+    }
+
+    private void addAllDifferent(int c) {
+        if (!allDifferentQueued[c]) {
+            allDifferentQueued[c] = true;
+            allDifferentQ.add(c);
+        }
+    }
+
+    private void clearQueues() {
+        arcQ.clear();
+        for (int c : allDifferentQ) {
+            allDifferentQueued[c] = false;
+        }
+        allDifferentQ.clear();
+    }
+
+    @Override
+    protected void printSearchStats() {
+        super.printSearchStats();
+        if (allDifferents.length > 0) {
+            System.out.println("AllDifferent propagations: " + allDifferentCounter);
+        }
+    }
+
+    @Override
+    protected void restartStats() {
+        super.restartStats();
+        allDifferentCounter = 0;
+    }
+
+    /**
+     * @return the number of times an AllDifferent constraint has been propagated
+     */
+    public long getAllDifferentCounts() {
+        return allDifferentCounter;
+    }
 }
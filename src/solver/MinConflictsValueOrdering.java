@@ -0,0 +1,48 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Min-conflicts value ordering: branch on the value that leaves the most supports
+ * in the domains of the variable's unassigned neighbours, ties broken by the smallest value.
+ * Supports are counted with the word-parallel nextSupport of each arc's relation.
+ */
+public class MinConflictsValueOrdering extends ValueOrdering {
+    private final ArcsCurator arcsCurator;
+
+    public MinConflictsValueOrdering(Variable[] variables, ArcsCurator arcsCurator) {
+        super(variables);
+        this.arcsCurator = arcsCurator;
+    }
+
+    @Override
+    public int select(Variable var) {
+        Domain domain = var.getDomain();
+        int bestVal = domain.first();
+        long bestSupports = -1;
+        for (int val = bestVal; val != Domain.NONE; val = domain.next(val)) {
+            long supports = countSupports(var, val);
+            if (supports > bestSupports) {
+                bestSupports = supports;
+                bestVal = val;
+            }
+        }
+        return bestVal;
+    }
+
+    private long countSupports(Variable var, int val) {
+        long supports = 0;
+        for (Arc arc : arcsCurator.getArcsFrom(var.getId())) {
+            Domain secondDomain = variables[arc.getSecondVar()].getDomain();
+            // an assigned neighbour supports every remaining value after propagation
+            if (secondDomain.size() == 1) {
+                continue;
+            }
+            Relation relation = arc.getRelation();
+            for (int s = relation.nextSupport(val, secondDomain, Domain.NONE); s != Domain.NONE; 
+                 s = relation.nextSupport(val, secondDomain, s)) {
+                supports++;
+            }
+        }
+        return supports;
+    }
+}
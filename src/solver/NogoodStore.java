@@ -0,0 +1,187 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * @author Thao P. Nguyen
+ * Nogoods recorded by a restarting search, each a set of assignments x = a that cannot all hold together.
+ * 
+ * A literal x = a is true when the search has assigned a to x with a left branch. 
+ * Every nogood watches 2 literals that are not true, so that only the nogoods watching a newly assigned
+ * variable are visited. When a watched literal becomes true and no other literal can replace it,
+ * the value of the other watched literal is removed from its variable's domain.
+ * Watches stay valid on backtracking, which only makes literals not true, so they are never restored.
+ */
+public class NogoodStore {
+    private final Variable[] variables;
+    private final boolean[] assigned;
+
+    private int count;
+    private int literalCount;
+    private int[][] nogoodVars = new int[16][];
+    private int[][] nogoodVals = new int[16][];
+    // positions of the 2 watched literals of nogood i at 2i and 2i + 1
+    private int[] watched = new int[32];
+    // nogoods watching a literal on each variable
+    private final int[][] watches;
+    private final int[] watchCounts;
+    // nogoods that removed each value during the last propagation, and the nogood found with all literals true
+    private int[] reasons = new int[4];
+    private int reasonCount;
+    private int conflict = -1;
+
+    /**
+     * @param variables the variables of the search, indexed by id
+     * @param assigned whether each variable is assigned by the current search branch
+     */
+    public NogoodStore(Variable[] variables, boolean[] assigned) {
+        this.variables = variables;
+        this.assigned = assigned;
+        watches = new int[variables.length][4];
+        watchCounts = new int[variables.length];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return the number of literals over all nogoods.
+     */
+    public int getLiteralCount() {
+        return literalCount;
+    }
+
+    /**
+     * Add a nogood of at least 2 literals on distinct variables, watching its first 2 literals.
+     * Any true literals must include neither watched literal, or the watched literals must have been
+     * made true after all others, so that backtracking undoes them first.
+     */
+    public void add(int[] vars, int[] vals) {
+        if (count == nogoodVars.length) {
+            nogoodVars = Arrays.copyOf(nogoodVars, count * 2);
+            nogoodVals = Arrays.copyOf(nogoodVals, count * 2);
+            watched = Arrays.copyOf(watched, count * 4);
+        }
+        nogoodVars[count] = vars;
+        nogoodVals[count] = vals;
+        watched[2 * count] = 0;
+        watched[2 * count + 1] = 1;
+        addWatch(vars[0], count);
+        addWatch(vars[1], count);
+        literalCount += vars.length;
+        count++;
+    }
+
+    /**
+     * Visit the nogoods watching a variable just assigned the given value.
+     * Values removed from the domains of other variables are recorded, one domain change per removal.
+     * @param pruned the variables whose domains have been reduced
+     * @return false if a nogood has all its literals true or a domain has been wiped out.
+     */
+    public boolean propagate(Variable var, int val, ArrayDeque<Variable> pruned) {
+        reasonCount = 0;
+        conflict = -1;
+        int varId = var.getId();
+        int i = 0;
+        while (i < watchCounts[varId]) {
+            int nogood = watches[varId][i];
+            int[] vars = nogoodVars[nogood];
+            int[] vals = nogoodVals[nogood];
+            int side = vars[watched[2 * nogood]] == varId ? 0 : 1;
+            int literal = watched[2 * nogood + side];
+            if (vals[literal] != val) {
+                // the literal is false, the nogood holds while the variable is assigned
+                i++;
+                continue;
+            }
+            int other = watched[2 * nogood + 1 - side];
+            int replacement = findReplacement(vars, vals, literal, other);
+            if (replacement >= 0) {
+                watched[2 * nogood + side] = replacement;
+                watches[varId][i] = watches[varId][--watchCounts[varId]];
+                addWatch(vars[replacement], nogood);
+                continue;
+            }
+            // all literals but the other watched one are true
+            Variable otherVar = variables[vars[other]];
+            if (assigned[vars[other]]) {
+                if (otherVar.getAssignedVal() == vals[other]) {
+                    conflict = nogood;
+                    return false;
+                }
+            } else if (otherVar.getDomain().contains(vals[other])) {
+                otherVar.removeVal(vals[other]);
+                pruned.add(otherVar);
+                addReason(nogood);
+                if (otherVar.isWipedOut()) {
+                    return false;
+                }
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * @return the nogood that removed the k-th value during the last propagation.
+     */
+    public int getReason(int k) {
+        return reasons[k];
+    }
+
+    /**
+     * @return the nogood whose literals were all true when the last propagation failed, or -1 if none.
+     */
+    public int getConflict() {
+        return conflict;
+    }
+
+    /**
+     * @return the variables of a nogood's literals, not to be modified.
+     */
+    public int[] getVars(int nogood) {
+        return nogoodVars[nogood];
+    }
+
+    /**
+     * @return the values of a nogood's literals, not to be modified.
+     */
+    public int[] getVals(int nogood) {
+        return nogoodVals[nogood];
+    }
+
+    private void addReason(int nogood) {
+        if (reasonCount == reasons.length) {
+            reasons = Arrays.copyOf(reasons, reasonCount * 2);
+        }
+        reasons[reasonCount++] = nogood;
+    }
+
+    /**
+     * @return the position of a literal that is not true and not watched, or -1 if there is none.
+     */
+    private int findReplacement(int[] vars, int[] vals, int literal, int other) {
+        for (int p = 0; p < vars.length; p++) {
+            if (p != literal && p != other && !isTrue(vars[p], vals[p])) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isTrue(int varId, int val) {
+        return assigned[varId] && variables[varId].getAssignedVal() == val;
+    }
+
+    private void addWatch(int varId, int nogood) {
+        if (watchCounts[varId] == watches[varId].length) {
+            watches[varId] = Arrays.copyOf(watches[varId], watchCounts[varId] * 2);
+        }
+        watches[varId][watchCounts[varId]++] = nogood;
+    }
+}
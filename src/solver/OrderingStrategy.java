@@ -0,0 +1,32 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * The variable ordering strategies supported by the solvers.
+ *   - ASCENDING: ascending variable id
+ *   - DOM: smallest domain first
+ *   - DOM_DEG: smallest ratio of domain size to degree among unassigned variables
+ *   - DOM_WDEG: smallest ratio of domain size to weighted degree, constraint weights bumped on wipe-outs
+ *   - ACTIVITY: smallest ratio of domain size to activity, the decaying count of domain reductions
+ */
+public enum OrderingStrategy {
+    ASCENDING, DOM, DOM_DEG, DOM_WDEG, ACTIVITY;
+
+    /**
+     * Create an empty variable queue with this strategy.
+     */
+    public VariableOrdering create(Variable[] variables, ArcsCurator arcsCurator) {
+        switch (this) {
+            case ASCENDING:
+                return new AscendingOrdering(variables);
+            case DOM_DEG:
+                return new DomDegOrdering(variables, arcsCurator);
+            case DOM_WDEG:
+                return new DomWdegOrdering(variables, arcsCurator);
+            case ACTIVITY:
+                return new ActivityOrdering(variables);
+            default:
+                return new DomOrdering(variables);
+        }
+    }
+}
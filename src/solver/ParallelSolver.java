@@ -0,0 +1,265 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reader.BinaryCSP;
+
+/**
+ * @author Thao P. Nguyen
+ * Solver that searches on several threads with embarrassingly parallel search (EPS).
+ * 
+ * A master solver explores the top of the 2-way branching tree and collects the nodes at a split depth
+ * as subproblems, deep enough to give each thread many subproblems. The frontier of subproblems is extended
+ * from the nodes of the previous one, so that the master establishes the root consistency once, and stops
+ * being extended once it no longer grows, the largest frontier being kept. If that frontier is a single
+ * subproblem, the tree does not widen and the master solves that subproblem itself, sequentially.
+ * Worker threads otherwise take subproblems from a shared queue and solve their subtrees, each with its own
+ * Variable state and ArcReviser while sharing the immutable ArcsCurator.
+ * 
+ * Solutions and stats of the master and all workers are merged. Solutions are delivered one at a time,
+ * so a SolutionListener is never called concurrently. With a solution limit, 
+ * the first worker to reach the limit pauses the others.
+ */
+public class ParallelSolver extends CompositeSolver {
+    // subproblems generated per thread so that uneven subtrees balance out
+    private static final int SUBPROBLEMS_PER_THREAD = 30;
+    private static final int MAX_SPLIT_DEPTH = 64;
+
+    private final ArcsCurator arcsCurator;
+    private long maxSolutions;
+
+    private ArrayList<Solver> workers;
+    private long solutionCounter;
+    private int subproblemCounter;
+
+    /**
+     * @param csp the constraint problem
+     * @param configuration the configuration of the master and the workers
+     * @param threads the number of worker threads
+     */
+    public ParallelSolver(BinaryCSP csp, SolverConfiguration configuration, int threads) {
+        this(csp, new ArcsCurator(csp, configuration.isAllDifferent()), configuration, threads);
+    }
+
+    /**
+     * @param arcsCurator the arcs of the problem, shared by the master and the workers
+     */
+    public ParallelSolver(BinaryCSP csp, ArcsCurator arcsCurator, SolverConfiguration configuration, int threads) {
+        super(csp, configuration, threads);
+        this.arcsCurator = arcsCurator;
+    }
+
+    /**
+     * Solve constraint problem in parallel and print solving stats to terminal.
+     * Adaptive orderings learn separately in the master and in each worker.
+     * @param showSolutions if print all solutions to screen
+     * @return all possible solutions to the CSP up to the solution limit, empty unless collecting solutions
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> solve(boolean showSolutions) {
+        long timeStarted = System.currentTimeMillis();
+        OrderingStrategy ordering = configuration.getOrdering();
+        maxSolutions = configuration.getMaxSolutions();
+        solutions = new ArrayDeque<>();
+        solutionCounter = 0;
+        workers = null;
+
+        Solver master = newSolver();
+        // solutions of the master, held back until the split that found them is kept
+        ArrayList<int[]> masterSolutions = new ArrayList<>();
+        if (isCountOnly()) {
+            master.setCountOnly(true);
+        } else {
+            master.setSolutionListener(assignment -> masterSolutions.add(assignment.clone()));
+        }
+        ArrayList<SearchCheckpoint> subproblems = split(master, ordering, masterSolutions);
+        if (subproblems.size() == 1) {
+            // the tree does not widen, there is nothing to share between threads
+            if (!isCountOnly()) {
+                master.setSolutionListener(this::deliver);
+            }
+            long before = master.getSolutionCounts();
+            master.solveSubtree(subproblems.get(0));
+            if (isCountOnly()) {
+                solutionCounter = Math.min(solutionCounter + master.getSolutionCounts() - before, maxSolutions);
+            }
+            subproblems.clear();
+        }
+        subproblemCounter = subproblems.size();
+        resetStats();
+        addStats(master);
+
+        if (!subproblems.isEmpty() && solutionCounter < maxSolutions) {
+            solveSubproblems(new ConcurrentLinkedQueue<>(subproblems), ordering);
+        }
+        timeTaken = System.currentTimeMillis() - timeStarted;
+        printResult(showSolutions);
+        return solutions;
+    }
+
+    /**
+     * Extend the frontier of subproblems from the root until there are enough subproblems for all threads,
+     * or until an extension no longer grows the frontier, as subtrees fail before reaching the deeper split depth.
+     * As each node has at most 2 children, the frontier is extended by as many levels at once as can be taken
+     * without going beyond the subproblems wanted.
+     * 
+     * The largest frontier is kept: the subtrees of an extension that did not grow it are explored again by the
+     * workers, so the solutions the master found in them are dropped, and the solution limit of the master no longer
+     * counts them. The solutions of the master above the frontier kept are delivered, or counted in count-only mode.
+     * @param masterSolutions the solutions found by the master so far, unless counting only
+     */
+    private ArrayList<SearchCheckpoint> split(Solver master, OrderingStrategy ordering,
+                                              ArrayList<int[]> masterSolutions) {
+        int wanted = threads * SUBPROBLEMS_PER_THREAD;
+        ArrayList<SearchCheckpoint> best = master.split(ordering, 0);
+        long bestCount = master.getSolutionCounts();
+        int bestSolutions = masterSolutions.size();
+        int splitDepth = 0;
+        while (splitDepth < MAX_SPLIT_DEPTH && best.size() > 0 && best.size() < wanted 
+               && master.getSolutionCounts() < maxSolutions) {
+            int levels = 1;
+            while (levels < 30 && (long) best.size() << (levels + 1) <= wanted) {
+                levels++;
+            }
+            splitDepth = Math.min(splitDepth + levels, MAX_SPLIT_DEPTH);
+            ArrayList<SearchCheckpoint> frontier = master.splitSubtrees(best, splitDepth);
+            if (frontier.size() < best.size() && master.getSolutionCounts() < maxSolutions) {
+                break;
+            }
+            // a frontier as large as the previous one is kept, as less of the tree is left to the workers
+            boolean grown = frontier.size() > best.size();
+            best = frontier;
+            bestCount = master.getSolutionCounts();
+            bestSolutions = masterSolutions.size();
+            if (!grown) {
+                break;
+            }
+        }
+        if (master.getSolutionCounts() > bestCount && maxSolutions < Long.MAX_VALUE) {
+            master.setMaxSolutions(maxSolutions + master.getSolutionCounts() - bestCount);
+        }
+        if (isCountOnly()) {
+            solutionCounter = Math.min(bestCount, maxSolutions);
+        }
+        for (int i = 0; i < bestSolutions; i++) {
+            deliver(masterSolutions.get(i));
+        }
+        return best;
+    }
+
+    /**
+     * Solve the queued subproblems on the worker threads and merge their solutions and stats.
+     */
+    private void solveSubproblems(ConcurrentLinkedQueue<SearchCheckpoint> queue, OrderingStrategy ordering) {
+        workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Solver worker = newSolver();
+            if (isCountOnly()) {
+                worker.setCountOnly(true);
+            } else {
+                worker.setSolutionListener(this::deliver);
+            }
+            workers.add(worker);
+        }
+        // solutions found so far in count-only mode, where workers count on their own
+        AtomicLong solutionsCounted = new AtomicLong(solutionCounter);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (Solver worker : workers) {
+            futures.add(executor.submit(() -> {
+                if (!worker.startSubtrees(ordering)) {
+                    return;
+                }
+                SearchCheckpoint subproblem;
+                while (!isLimitReached(solutionsCounted) && (subproblem = queue.poll()) != null) {
+                    long before = worker.getSolutionCounts();
+                    worker.solveSubtree(subproblem);
+                    if (isCountOnly() && solutionsCounted.addAndGet(worker.getSolutionCounts() - before) >= maxSolutions) {
+                        pauseWorkers();
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Worker failed to solve a subproblem.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        if (isCountOnly()) {
+            solutionCounter = Math.min(solutionsCounted.get(), maxSolutions);
+        }
+        for (Solver worker : workers) {
+            addStats(worker);
+        }
+    }
+
+    /**
+     * Count a solution and pass it on, unless the solution limit has already been reached.
+     * Called by the worker threads, one at a time.
+     */
+    private synchronized void deliver(int[] assignment) {
+        if (solutionCounter >= maxSolutions) {
+            return;
+        }
+        solutionCounter++;
+        pass(assignment);
+        if (solutionCounter >= maxSolutions && workers != null) {
+            pauseWorkers();
+        }
+    }
+
+    private synchronized boolean isLimitReached(AtomicLong solutionsCounted) {
+        return (isCountOnly() ? solutionsCounted.get() : solutionCounter) >= maxSolutions;
+    }
+
+    /**
+     * Cooperatively stop all workers.
+     */
+    private void pauseWorkers() {
+        for (Solver worker : workers) {
+            worker.pause();
+        }
+    }
+
+    private Solver newSolver() {
+        Solver solver = configuration.createSolver(csp, arcsCurator);
+        solver.setPrintStats(false);
+        solver.setMetrics(metrics);
+        return solver;
+    }
+
+    @Override
+    protected Number countedSolutions() {
+        return solutionCounter;
+    }
+
+    @Override
+    protected void printDetails() {
+        System.out.println("Threads: " + threads);
+        System.out.println("Subproblems: " + subproblemCounter);
+    }
+
+    /**
+     * @return the number of subproblems solved by the workers, 0 if the master has solved the problem alone
+     */
+    public int getSubproblemCounts() {
+        return subproblemCounter;
+    }
+
+    public long getSolutionCounts() {
+        return solutionCounter;
+    }
+}
@@ -0,0 +1,33 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Phase-saving value ordering: branch on the value the variable was last assigned if it is still in the domain,
+ * otherwise on the smallest value. As every variable is assigned in a solution, the saved phases
+ * steer the search back towards the last solution found and towards the assignments made before a backtrack.
+ */
+public class PhaseSavingValueOrdering extends ValueOrdering {
+    private final int[] phases;
+
+    public PhaseSavingValueOrdering(Variable[] variables) {
+        super(variables);
+        phases = new int[variables.length];
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = Domain.NONE;
+        }
+    }
+
+    @Override
+    public int select(Variable var) {
+        int phase = phases[var.getId()];
+        if (phase != Domain.NONE && var.getDomain().contains(phase)) {
+            return phase;
+        }
+        return var.getDomain().first();
+    }
+
+    @Override
+    public void onAssign(Variable var, int val) {
+        phases[var.getId()] = val;
+    }
+}
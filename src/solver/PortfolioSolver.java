@@ -0,0 +1,179 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import reader.BinaryCSP;
+
+/**
+ * @author Thao P. Nguyen
+ * Solver that races several configurations on separate threads over the same problem.
+ * The first configuration to finish wins: its solutions are returned and the other solvers are cancelled.
+ * A configuration that fails is skipped, the race only failing once every configuration has failed.
+ * The winning configuration is logged so that defaults can be tuned per instance family.
+ *
+ * The AllDifferent constraints of the shared ArcsCurator are propagated by every configuration. Each configuration
+ * carries its own value ordering, seed, preprocessing and solution limit, which defaultConfigurations takes from
+ * a single configuration, and a revision algorithm set on the portfolio replaces that of every configuration.
+ */
+public class PortfolioSolver {
+    private final BinaryCSP csp;
+    private final ArcsCurator arcsCurator;
+    private final ArrayList<SolverConfiguration> configurations;
+    private boolean countOnly = false;
+    private boolean printStats = true;
+    // revision algorithm of every configuration, or each configuration's own if null
+    private RevisionAlgorithm algorithm;
+    private boolean recordMetrics;
+
+    private SolverConfiguration winner;
+    private Solver winningSolver;
+
+    /**
+     * Race the default portfolio: FC and MAC, each with ascending and smallest-domain ordering, and MAC with dom/wdeg.
+     */
+    public PortfolioSolver(BinaryCSP csp) {
+        this(csp, defaultConfigurations());
+    }
+
+    public PortfolioSolver(BinaryCSP csp, ArrayList<SolverConfiguration> configurations) {
+        this(csp, new ArcsCurator(csp), configurations);
+    }
+
+    /**
+     * @param arcsCurator the arcs of the problem, shared by all configurations
+     */
+    public PortfolioSolver(BinaryCSP csp, ArcsCurator arcsCurator, ArrayList<SolverConfiguration> configurations) {
+        this.csp = csp;
+        this.arcsCurator = arcsCurator;
+        this.configurations = configurations;
+    }
+
+    public static ArrayList<SolverConfiguration> defaultConfigurations() {
+        return defaultConfigurations(new SolverConfiguration(false, OrderingStrategy.DOM, RevisionAlgorithm.AC3));
+    }
+
+    /**
+     * The configurations of the default portfolio, with the value ordering, seed, preprocessing
+     * and solution limit of the given configuration.
+     */
+    public static ArrayList<SolverConfiguration> defaultConfigurations(SolverConfiguration settings) {
+        ArrayList<SolverConfiguration> configurations = new ArrayList<>();
+        configurations.add(settings.withSearch(false, OrderingStrategy.DOM, RevisionAlgorithm.AC3RM));
+        configurations.add(settings.withSearch(false, OrderingStrategy.ASCENDING, RevisionAlgorithm.AC3RM));
+        configurations.add(settings.withSearch(false, OrderingStrategy.DOM_WDEG, RevisionAlgorithm.AC3RM));
+        configurations.add(settings.withSearch(true, OrderingStrategy.DOM, RevisionAlgorithm.AC3));
+        configurations.add(settings.withSearch(true, OrderingStrategy.ASCENDING, RevisionAlgorithm.AC3));
+        return configurations;
+    }
+
+    /**
+     * Only count solutions, without collecting them or allocating anything per solution.
+     */
+    public void setCountOnly(boolean countOnly) {
+        this.countOnly = countOnly;
+    }
+
+    /**
+     * Revise arcs with the given algorithm in every configuration, or with each configuration's own if null.
+     */
+    public void setRevisionAlgorithm(RevisionAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Record the search metrics of each configuration on its own, so that those of the winner
+     * can be read from getWinningSolver().getMetrics() once solve has returned.
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+
+    /**
+     * Choose whether solve prints the winner and its stats to the terminal.
+     */
+    public void setPrintStats(boolean printStats) {
+        this.printStats = printStats;
+    }
+
+    /**
+     * Run all configurations until the first one finishes, then cooperatively cancel the rest.
+     * @param showSolutions if print all solutions to screen
+     * @return the solutions found by the winning configuration, empty in count-only mode
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> solve(boolean showSolutions) {
+        winner = null;
+        winningSolver = null;
+        ArrayList<SolverConfiguration> raced = new ArrayList<>();
+        ArrayList<Solver> solvers = new ArrayList<>();
+        for (SolverConfiguration configuration : configurations) {
+            if (algorithm != null) {
+                configuration = configuration.withSearch(configuration.isForwardChecking(),
+                                                         configuration.getOrdering(), algorithm);
+            }
+            Solver solver = configuration.createSolver(csp, arcsCurator);
+            solver.setPrintStats(false);
+            solver.setCountOnly(countOnly);
+            if (recordMetrics) {
+                solver.setMetrics(new SearchMetrics(csp.getNoVariables()));
+            }
+            raced.add(configuration);
+            solvers.add(solver);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(raced.size());
+        CompletionService<Integer> race = new ExecutorCompletionService<>(executor);
+        for (int i = 0; i < raced.size(); i++) {
+            int index = i;
+            race.submit(() -> {
+                solvers.get(index).solve(raced.get(index).getOrdering(), false);
+                return index;
+            });
+        }
+        try {
+            ExecutionException failure = null;
+            for (int finished = 0; finished < raced.size() && winner == null; finished++) {
+                try {
+                    int index = race.take().get();
+                    winner = raced.get(index);
+                    winningSolver = solvers.get(index);
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            if (winner == null) {
+                throw new IllegalStateException("Every portfolio configuration failed.", failure.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayDeque<>();
+        } finally {
+            for (Solver solver : solvers) {
+                if (solver != winningSolver) {
+                    solver.cancel();
+                }
+            }
+            executor.shutdownNow();
+        }
+
+        if (printStats) {
+            System.out.println("Portfolio winner: " + winner);
+            winningSolver.setPrintStats(true);
+            winningSolver.printResult(showSolutions);
+        }
+        return winningSolver.solutions;
+    }
+
+    public SolverConfiguration getWinner() {
+        return winner;
+    }
+
+    public Solver getWinningSolver() {
+        return winningSolver;
+    }
+}
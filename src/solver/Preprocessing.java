@@ -0,0 +1,13 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Consistency levels stronger than arc consistency, established by a Preprocessor before search.
+ *   - SAC1: singleton arc consistency, testing every value from the root in passes until none is removed
+ *   - SAC3: singleton arc consistency, testing values incrementally along greedy branches of singletons
+ *   - PIC: path inverse consistency, every value extending to each triangle of constraints around its variable
+ *   - NIC: neighbourhood inverse consistency, every value extending to all the neighbours of its variable
+ */
+public enum Preprocessing {
+    SAC1, SAC3, PIC, NIC
+}
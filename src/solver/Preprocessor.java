@@ -0,0 +1,499 @@
+package solver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @author Thao P. Nguyen
+ * Establishes a Preprocessing level on the root domains of a solver's variables before search.
+ * Arc consistency, with AllDifferent constraints at generalised arc consistency, is established first
+ * and maintained after every removal. A value is tested by assigning it with Variable.assignVal and propagating,
+ * then the test is undone with Variable.unprune, as the search undoes a branch.
+ * Values found inconsistent are removed for good: they belong to no solution, and the search starts without them.
+ * PIC and NIC look for supports through the arcs only, AllDifferent constraints pruning between the tests.
+ */
+public class Preprocessor {
+    private final Variable[] variables;
+    private final ArcsCurator arcsCurator;
+    // residual supports stay valid hints when a test is undone, so nothing has to be restored
+    private final ArcReviser reviser;
+    private final ArcQueue arcQ;
+    private final AllDifferentPropagator[] allDifferents;
+    private final ArrayDeque<Integer> allDifferentQ = new ArrayDeque<>();
+    private final boolean[] allDifferentQueued;
+
+    // distinct neighbours of each variable in ascending order, and the arcs from one variable to another
+    private int[][] neighbours;
+    private HashMap<Long, ArrayList<Arc>> arcsBetween;
+    // NIC: whether each neighbour of the variable under test is still to be assigned
+    private boolean[] future;
+    // SAC-3: values not yet shown singleton arc consistent, indexed by variable id and value offset
+    private boolean[][] pending;
+    private long noPending;
+
+    // the removals of preprocessing, undone if the problem turns out inconsistent
+    private final ArrayDeque<Variable> pruners = new ArrayDeque<>();
+    private final ArrayDeque<Variable> testPruners = new ArrayDeque<>();
+    private Preprocessing level;
+    private long removedValues;
+    private long tests;
+    private long relationChecks;
+    private int passes;
+    private long timeTaken;
+
+    /**
+     * @param variables the variables of a solver, indexed by id
+     * @param arcsCurator the arcs of the problem
+     */
+    public Preprocessor(Variable[] variables, ArcsCurator arcsCurator) {
+        this.variables = variables;
+        this.arcsCurator = arcsCurator;
+        reviser = new ArcReviser(arcsCurator, variables, RevisionAlgorithm.AC3RM);
+        arcQ = new ArcQueue(arcsCurator.getNoArcs());
+        int[][] cliques = arcsCurator.getAllDifferents();
+        allDifferents = new AllDifferentPropagator[cliques.length];
+        for (int c = 0; c < cliques.length; c++) {
+            allDifferents[c] = new AllDifferentPropagator(cliques[c], variables);
+        }
+        allDifferentQueued = new boolean[cliques.length];
+    }
+
+    /**
+     * Remove the values that do not satisfy the given consistency level.
+     * @return whether the problem may still have solutions, the domains being restored if not
+     */
+    public boolean run(Preprocessing level) {
+        long started = System.currentTimeMillis();
+        this.level = level;
+        long sizeBefore = totalSize();
+        boolean consistent = establish(level);
+        removedValues = sizeBefore - totalSize();
+        if (!consistent) {
+            undo(pruners);
+        }
+        timeTaken = System.currentTimeMillis() - started;
+        return consistent;
+    }
+
+    private boolean establish(Preprocessing level) {
+        for (Arc arc : arcsCurator.getAllArcs()) {
+            arcQ.add(arc);
+        }
+        for (int c = 0; c < allDifferents.length; c++) {
+            addAllDifferent(c);
+        }
+        if (!propagate(pruners)) {
+            return false;
+        }
+        if (level == Preprocessing.SAC3) {
+            return singletonBranches();
+        }
+        if (level != Preprocessing.SAC1) {
+            indexNeighbours();
+        }
+        return removalPasses();
+    }
+
+    /**
+     * Test every value of every variable and remove those failing, in passes until a pass removes nothing,
+     * as a removal may make values tested before it fail.
+     */
+    private boolean removalPasses() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            passes++;
+            for (Variable var : variables) {
+                Domain domain = var.getDomain();
+                for (int val = domain.first(); val != Domain.NONE; val = domain.next(val)) {
+                    if (!isConsistent(var, val)) {
+                        if (!remove(var, val)) {
+                            return false;
+                        }
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isConsistent(Variable var, int val) {
+        switch (level) {
+            case SAC1:
+                // an arc consistent singleton domain is singleton arc consistent
+                return var.getDomain().size() == 1 || isSingletonConsistent(var, val);
+            case PIC:
+                return isPathInverseConsistent(var, val);
+            default:
+                return isNeighbourhoodConsistent(var, val);
+        }
+    }
+
+    /**
+     * SAC-1 test: whether arc consistency survives assigning the value.
+     */
+    private boolean isSingletonConsistent(Variable var, int val) {
+        tests++;
+        var.assignVal(val);
+        testPruners.add(var);
+        addConstraintsOn(var, -1);
+        boolean consistent = propagate(testPruners);
+        undo(testPruners);
+        return consistent;
+    }
+
+    /**
+     * SAC-3: assign pending values one after the other along a branch, keeping the propagation of the values
+     * assigned before, until a value fails or no variable has a pending value left. Every value assigned
+     * without failure is singleton arc consistent, as its propagation alone removes no more than the branch.
+     * A value failing first in its branch is removed, and a value failing deeper begins the next branch.
+     * Passes are repeated until one removes nothing.
+     */
+    private boolean singletonBranches() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            passes++;
+            pending = new boolean[variables.length][];
+            noPending = 0;
+            for (Variable var : variables) {
+                Domain domain = var.getDomain();
+                pending[var.getId()] = new boolean[domain.getUB() - domain.getLB() + 1];
+                for (int val = domain.first(); val != Domain.NONE && domain.size() > 1; val = domain.next(val)) {
+                    pending[var.getId()][val - domain.getLB()] = true;
+                    noPending++;
+                }
+            }
+            int startVar = 0;
+            while (noPending > 0) {
+                int length = 0;
+                Variable failedVar = null;
+                int failedVal = Domain.NONE;
+                for (int k = 0; k < variables.length && failedVar == null; k++) {
+                    Variable var = variables[(startVar + k) % variables.length];
+                    int val = firstPending(var, length == 0);
+                    if (val == Domain.NONE) {
+                        continue;
+                    }
+                    tests++;
+                    var.assignVal(val);
+                    testPruners.add(var);
+                    addConstraintsOn(var, -1);
+                    if (propagate(testPruners)) {
+                        pending[var.getId()][val - var.getDomain().getLB()] = false;
+                        noPending--;
+                        length++;
+                    } else {
+                        failedVar = var;
+                        failedVal = val;
+                    }
+                }
+                undo(testPruners);
+                if (failedVar == null) {
+                    continue;
+                }
+                if (length > 0) {
+                    startVar = failedVar.getId();
+                    continue;
+                }
+                pending[failedVar.getId()][failedVal - failedVar.getDomain().getLB()] = false;
+                noPending--;
+                if (!remove(failedVar, failedVal)) {
+                    return false;
+                }
+                changed = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param atRoot whether no value is assigned, so that the pending values removed from the domain,
+     *               or of a singleton domain, can be dropped
+     * @return the smallest pending value of the variable in its domain, or NONE
+     */
+    private int firstPending(Variable var, boolean atRoot) {
+        Domain domain = var.getDomain();
+        boolean[] varPending = pending[var.getId()];
+        int first = Domain.NONE;
+        for (int offset = 0; offset < varPending.length; offset++) {
+            if (!varPending[offset]) {
+                continue;
+            }
+            int val = domain.getLB() + offset;
+            if (atRoot && (!domain.contains(val) || domain.size() == 1)) {
+                varPending[offset] = false;
+                noPending--;
+            } else if (first == Domain.NONE && domain.contains(val)) {
+                first = val;
+                if (!atRoot) {
+                    break;
+                }
+            }
+        }
+        return first;
+    }
+
+    /**
+     * PIC test: whether, for every 2 neighbours of the variable constrained together,
+     * the value has a support in the first whose pair is supported by a value of the second.
+     * Other pairs of variables are covered by arc consistency.
+     */
+    private boolean isPathInverseConsistent(Variable var, int val) {
+        tests++;
+        int x = var.getId();
+        for (int y : neighbours[x]) {
+            for (int z : neighbours[x]) {
+                if (z > y && arcsBetween.containsKey(key(y, z)) && !hasTriangleSupport(x, val, y, z)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean hasTriangleSupport(int x, int a, int y, int z) {
+        Domain yDomain = variables[y].getDomain();
+        Domain zDomain = variables[z].getDomain();
+        for (int b = yDomain.first(); b != Domain.NONE; b = yDomain.next(b)) {
+            if (!isConsistent(x, a, y, b)) {
+                continue;
+            }
+            for (int c = zDomain.first(); c != Domain.NONE; c = zDomain.next(c)) {
+                if (isConsistent(x, a, z, c) && isConsistent(y, b, z, c)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the 2 values satisfy every arc from the first variable to the second
+     */
+    private boolean isConsistent(int firstVar, int firstVal, int secondVar, int secondVal) {
+        for (Arc arc : arcsBetween.get(key(firstVar, secondVar))) {
+            relationChecks++;
+            if (!arc.isConsistentWith(firstVal, secondVal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * NIC test: whether the value extends to values of all the neighbours of the variable satisfying the arcs
+     * between them, searched by forward checking within the neighbourhood.
+     */
+    private boolean isNeighbourhoodConsistent(Variable var, int val) {
+        tests++;
+        int[] hood = neighbours[var.getId()];
+        for (int y : hood) {
+            future[y] = true;
+        }
+        ArrayDeque<Variable> branch = new ArrayDeque<>();
+        if (var.getDomain().size() > 1) {
+            var.assignVal(val);
+            branch.add(var);
+        }
+        boolean consistent = forwardCheck(var, branch) && extend(hood, 0);
+        undo(branch);
+        for (int y : hood) {
+            future[y] = false;
+        }
+        return consistent;
+    }
+
+    /**
+     * Assign each value of the k-th neighbour in turn and search values for the neighbours after it.
+     */
+    private boolean extend(int[] hood, int k) {
+        if (k == hood.length) {
+            return true;
+        }
+        Variable var = variables[hood[k]];
+        future[var.getId()] = false;
+        boolean extended = false;
+        Domain domain = var.getDomain();
+        for (int val = domain.first(); val != Domain.NONE && !extended; val = domain.next(val)) {
+            ArrayDeque<Variable> branch = new ArrayDeque<>();
+            if (domain.size() > 1) {
+                var.assignVal(val);
+                branch.add(var);
+            }
+            extended = forwardCheck(var, branch) && extend(hood, k + 1);
+            undo(branch);
+        }
+        future[var.getId()] = true;
+        return extended;
+    }
+
+    /**
+     * Revise the arcs from the neighbours still to be assigned onto the variable.
+     */
+    private boolean forwardCheck(Variable var, ArrayDeque<Variable> branch) {
+        for (Arc arc : arcsCurator.getArcsTo(var.getId())) {
+            if (!future[arc.getFirstVar()]) {
+                continue;
+            }
+            Variable neighbour = variables[arc.getFirstVar()];
+            if (reviser.revise(arc)) {
+                branch.add(neighbour);
+                if (neighbour.isWipedOut()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void indexNeighbours() {
+        arcsBetween = new HashMap<>();
+        neighbours = new int[variables.length][];
+        future = new boolean[variables.length];
+        for (Arc arc : arcsCurator.getAllArcs()) {
+            if (arc.getFirstVar() != arc.getSecondVar()) {
+                arcsBetween.computeIfAbsent(key(arc.getFirstVar(), arc.getSecondVar()), k -> new ArrayList<>())
+                           .add(arc);
+            }
+        }
+        for (Variable var : variables) {
+            neighbours[var.getId()] = Arrays.stream(arcsCurator.getArcsFrom(var.getId())).mapToInt(Arc::getSecondVar)
+                                            .filter(y -> y != var.getId()).distinct().sorted().toArray();
+        }
+    }
+
+    /**
+     * Remove a value for good and restore arc consistency.
+     */
+    private boolean remove(Variable var, int val) {
+        var.removeVal(val);
+        pruners.add(var);
+        if (var.isWipedOut()) {
+            return false;
+        }
+        addConstraintsOn(var, -1);
+        return propagate(pruners);
+    }
+
+    /**
+     * Revise the queued arcs, then propagate the queued AllDifferent constraints, until both queues are empty.
+     * @param changed receives the variables pruned
+     * @return false if a domain has been wiped out
+     */
+    private boolean propagate(ArrayDeque<Variable> changed) {
+        while (true) {
+            while (!arcQ.isEmpty()) {
+                Arc arc = arcQ.poll();
+                if (reviser.revise(arc)) {
+                    Variable firstVar = variables[arc.getFirstVar()];
+                    changed.add(firstVar);
+                    if (firstVar.isWipedOut()) {
+                        clearQueues();
+                        return false;
+                    }
+                    addConstraintsOn(firstVar, -1);
+                }
+            }
+            if (allDifferentQ.isEmpty()) {
+                return true;
+            }
+            int c = allDifferentQ.poll();
+            allDifferentQueued[c] = false;
+            AllDifferentPropagator propagator = allDifferents[c];
+            if (!propagator.propagate(changed)) {
+                clearQueues();
+                return false;
+            }
+            for (int k = 0; k < propagator.getNoPruned(); k++) {
+                addConstraintsOn(propagator.getPruned(k), c);
+            }
+        }
+    }
+
+    /**
+     * Queue the arcs supported by the variable and its AllDifferent constraints other than the given one.
+     */
+    private void addConstraintsOn(Variable var, int except) {
+        for (Arc arc : arcsCurator.getArcsTo(var.getId())) {
+            arcQ.add(arc);
+        }
+        for (int c : arcsCurator.getAllDifferentsOf(var.getId())) {
+            if (c != except) {
+                addAllDifferent(c);
+            }
+        }
+    }
+
+    private void addAllDifferent(int c) {
+        if (!allDifferentQueued[c]) {
+            allDifferentQueued[c] = true;
+            allDifferentQ.add(c);
+        }
+    }
+
+    private void clearQueues() {
+        arcQ.clear();
+        for (int c : allDifferentQ) {
+            allDifferentQueued[c] = false;
+        }
+        allDifferentQ.clear();
+    }
+
+    private void undo(ArrayDeque<Variable> changed) {
+        for (Variable p : changed) {
+            p.unprune();
+        }
+        changed.clear();
+    }
+
+    private long totalSize() {
+        long size = 0;
+        for (Variable var : variables) {
+            size += var.getDomain().size();
+        }
+        return size;
+    }
+
+    private long key(int firstVar, int secondVar) {
+        return (long) firstVar * variables.length + secondVar;
+    }
+
+    public Preprocessing getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the number of values removed, including those removed by the initial arc consistency
+     */
+    public long getRemovedValues() {
+        return removedValues;
+    }
+
+    /**
+     * @return the number of values tested
+     */
+    public long getTests() {
+        return tests;
+    }
+
+    /**
+     * @return the constraint checks of the arc revisions and of the PIC support searches
+     */
+    public long getConstraintChecks() {
+        return reviser.getConstraintChecks() + relationChecks;
+    }
+
+    /**
+     * @return the number of passes over the values, the last one removing nothing
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    public long getTimeTaken() {
+        return timeTaken;
+    }
+}
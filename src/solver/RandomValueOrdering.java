@@ -0,0 +1,26 @@
+package solver;
+import java.util.Random;
+
+/**
+ * @author Thao P. Nguyen
+ * Random value ordering: branch on a uniformly random value of the domain.
+ * The same seed gives the same choices on the same search, so runs can be reproduced.
+ */
+public class RandomValueOrdering extends ValueOrdering {
+    private final Random random;
+
+    public RandomValueOrdering(Variable[] variables, long seed) {
+        super(variables);
+        random = new Random(seed);
+    }
+
+    @Override
+    public int select(Variable var) {
+        Domain domain = var.getDomain();
+        int val = domain.first();
+        for (int k = random.nextInt(domain.size()); k > 0; k--) {
+            val = domain.next(val);
+        }
+        return val;
+    }
+}
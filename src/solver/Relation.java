@@ -0,0 +1,43 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A compiled binary relation between the values of 2 variables.
+ * Relations are built once per arc by the ArcsCurator and answer consistency checks
+ * without scanning the original tuple list.
+ */
+public interface Relation {
+
+    /**
+     * Check whether the given pair of values is allowed by the relation.
+     * @param firstVal the value for the first variable
+     * @param secondVal the value for the second variable
+     */
+    boolean isConsistentWith(int firstVal, int secondVal);
+
+    /**
+     * Check whether the given value for the first variable is allowed with some value of the second domain.
+     * @param firstVal the value for the first variable
+     * @param secondDomain the current domain of the second variable
+     */
+    default boolean hasSupport(int firstVal, Domain secondDomain) {
+        return nextSupport(firstVal, secondDomain, Domain.NONE) != Domain.NONE;
+    }
+
+    /**
+     * Find the smallest value of the second domain after the given one that is allowed with firstVal.
+     * @param firstVal the value for the first variable
+     * @param secondDomain the current domain of the second variable
+     * @param after the value to search after, or Domain.NONE to search from the start of the domain
+     * @return the support found, or Domain.NONE if there is none
+     */
+    default int nextSupport(int firstVal, Domain secondDomain, int after) {
+        int secondVal = after == Domain.NONE ? secondDomain.first() : secondDomain.next(after);
+        for (; secondVal != Domain.NONE; secondVal = secondDomain.next(secondVal)) {
+            if (isConsistentWith(firstVal, secondVal)) {
+                return secondVal;
+            }
+        }
+        return Domain.NONE;
+    }
+}
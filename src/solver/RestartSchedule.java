@@ -0,0 +1,27 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A sequence of cutoffs for a restarting search: each run stops after as many failed branches
+ * as the next cutoff, then the search restarts from the root.
+ */
+public abstract class RestartSchedule {
+    protected final long scale;
+
+    /**
+     * @param scale the number of failed branches of the unit cutoff
+     */
+    public RestartSchedule(long scale) {
+        this.scale = scale;
+    }
+
+    /**
+     * Go back to the first cutoff of the sequence.
+     */
+    public abstract void reset();
+
+    /**
+     * @return the cutoff of the next run, in failed branches.
+     */
+    public abstract long nextCutoff();
+}
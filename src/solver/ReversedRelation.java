@@ -0,0 +1,33 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * A view of a relation in the opposite direction, from its second variable to its first.
+ * The view shares the storage of the relation it reverses, so the reversed arc of a constraint costs no second copy;
+ * supports are searched value by value over the domain instead of word-parallel.
+ */
+public class ReversedRelation implements Relation {
+    private final Relation relation;
+
+    /**
+     * @param relation the relation to reverse
+     */
+    public ReversedRelation(Relation relation) {
+        this.relation = relation;
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        return relation.isConsistentWith(secondVal, firstVal);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ReversedRelation && relation.equals(((ReversedRelation) o).relation);
+    }
+
+    @Override
+    public int hashCode() {
+        return ~relation.hashCode();
+    }
+}
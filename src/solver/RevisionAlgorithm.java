@@ -0,0 +1,12 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Algorithms used by ArcReviser to revise an arc.
+ *   - AC3: search a support from the start of the second domain for every value.
+ *   - AC2001: resume the search after the last support found, restoring last supports on backtrack.
+ *   - AC3RM: reuse residual supports, which are also recorded for the reversed arc (multidirectionality).
+ */
+public enum RevisionAlgorithm {
+    AC3, AC2001, AC3RM
+}
@@ -0,0 +1,60 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * The decisions on the current branch of a paused search.
+ * For each frame of the search stack, it records the variable branched on, the value chosen 
+ * and the stage of its 2-way branching, so that a solver of the same problem can replay the branch and continue the search from there.
+ */
+public class SearchCheckpoint {
+    private final OrderingStrategy ordering;
+    private final int[] vars;
+    private final int[] vals;
+    private final int[] stages;
+    private final int nodeCounts;
+    private final int arcReviseCounts;
+    private final long solutionCounts;
+
+    public SearchCheckpoint(OrderingStrategy ordering, int[] vars, int[] vals, int[] stages, 
+                            int nodeCounts, int arcReviseCounts, long solutionCounts) {
+        this.ordering = ordering;
+        this.vars = vars;
+        this.vals = vals;
+        this.stages = stages;
+        this.nodeCounts = nodeCounts;
+        this.arcReviseCounts = arcReviseCounts;
+        this.solutionCounts = solutionCounts;
+    }
+
+    public OrderingStrategy getOrdering() {
+        return ordering;
+    }
+
+    public int getDepth() {
+        return vars.length;
+    }
+
+    public int getVar(int frame) {
+        return vars[frame];
+    }
+
+    public int getVal(int frame) {
+        return vals[frame];
+    }
+
+    public int getStage(int frame) {
+        return stages[frame];
+    }
+
+    public int getNodeCounts() {
+        return nodeCounts;
+    }
+
+    public int getArcReviseCounts() {
+        return arcReviseCounts;
+    }
+
+    public long getSolutionCounts() {
+        return solutionCounts;
+    }
+}
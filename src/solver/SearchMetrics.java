@@ -0,0 +1,366 @@
+package solver;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Thao P. Nguyen
+ * Counters of the search, shared by every solver given them with Solver.setMetrics, so that the workers of a
+ * parallel search add to the same counters. Each counter is a LongAdder, or a LongAccumulator for maxima,
+ * so that threads update them without contention and the totals can be read at any time.
+ *
+ * Recorded per run: nodes, solutions, constraint checks, propagations after a branch and the values they prune,
+ * wipe-outs of each variable, backtracks as failed branches, maximum depth, time spent in propagation against
+ * the rest of the search, which chooses and undoes branches, and the bytes allocated by the searching threads.
+ * Propagation includes the consistency established at the root. The allocated bytes are an estimate from the JVM
+ * per-thread counter and are 0 when the JVM does not provide it.
+ *
+ * The counters are exported as one JSON object or one CSV row per run, and written as CSV rows to a file
+ * at a fixed period while the search runs, each row stamped with the time since the metrics were created.
+ */
+public class SearchMetrics {
+    private static final String CSV_HEADER = "instance,elapsed_ms,nodes,solutions,constraint_checks,propagations,"
+                                             + "values_pruned,values_pruned_per_propagation,wipe_outs,backtracks,"
+                                             + "max_depth,search_ms,propagation_ms,branching_ms,allocated_bytes";
+
+    private final long created;
+    private final LongAdder nodes;
+    private final LongAdder solutions;
+    private final LongAdder constraintChecks;
+    private final LongAdder propagations;
+    private final LongAdder valuesPruned;
+    private final LongAdder backtracks;
+    private final LongAccumulator maxDepth;
+    private final LongAdder searchNanos;
+    private final LongAdder propagationNanos;
+    private final LongAdder allocatedBytes;
+    // indexed by variable id
+    private final LongAdder[] wipeOuts;
+
+    private ScheduledExecutorService snapshots;
+    private PrintWriter snapshotOut;
+    private String snapshotInstance;
+
+    /**
+     * @param noVariables the number of variables of the problem searched
+     */
+    public SearchMetrics(int noVariables) {
+        created = System.nanoTime();
+        nodes = new LongAdder();
+        solutions = new LongAdder();
+        constraintChecks = new LongAdder();
+        propagations = new LongAdder();
+        valuesPruned = new LongAdder();
+        backtracks = new LongAdder();
+        maxDepth = new LongAccumulator(Math::max, 0);
+        searchNanos = new LongAdder();
+        propagationNanos = new LongAdder();
+        allocatedBytes = new LongAdder();
+        wipeOuts = new LongAdder[noVariables];
+        for (int var = 0; var < noVariables; var++) {
+            wipeOuts[var] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counters shared with the given metrics, for a subproblem whose variable k is the variable variables[k]
+     * of the problem of the metrics, so that its wipe-outs are counted against the variables of the problem.
+     */
+    private SearchMetrics(SearchMetrics shared, int[] variables) {
+        created = shared.created;
+        nodes = shared.nodes;
+        solutions = shared.solutions;
+        constraintChecks = shared.constraintChecks;
+        propagations = shared.propagations;
+        valuesPruned = shared.valuesPruned;
+        backtracks = shared.backtracks;
+        maxDepth = shared.maxDepth;
+        searchNanos = shared.searchNanos;
+        propagationNanos = shared.propagationNanos;
+        allocatedBytes = shared.allocatedBytes;
+        wipeOuts = new LongAdder[variables.length];
+        for (int k = 0; k < variables.length; k++) {
+            wipeOuts[k] = shared.wipeOuts[variables[k]];
+        }
+    }
+
+    /**
+     * @param variables the variables of the problem, in the order the subproblem numbers them
+     * @return metrics adding to these counters for the solver of a subproblem, such as a connected component
+     */
+    SearchMetrics forSubproblem(int[] variables) {
+        return new SearchMetrics(this, variables);
+    }
+
+    void onNode(int depth) {
+        nodes.increment();
+        maxDepth.accumulate(depth);
+    }
+
+    void onSolution() {
+        solutions.increment();
+    }
+
+    void onConstraintChecks(long checks) {
+        constraintChecks.add(checks);
+    }
+
+    void onPropagation(int pruned, long nanos) {
+        propagations.increment();
+        valuesPruned.add(pruned);
+        propagationNanos.add(nanos);
+    }
+
+    /**
+     * Record consistency established outside a branch, which counts as propagation time but not as a propagation.
+     */
+    void onRootPropagation(long nanos) {
+        propagationNanos.add(nanos);
+        searchNanos.add(nanos);
+    }
+
+    void onWipeOut(int var) {
+        wipeOuts[var].increment();
+    }
+
+    void onBacktrack() {
+        backtracks.increment();
+    }
+
+    void onSearch(long nanos, long allocated) {
+        searchNanos.add(nanos);
+        allocatedBytes.add(allocated);
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or 0 if the JVM does not count them
+     */
+    static long threadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return 0;
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getSolutions() {
+        return solutions.sum();
+    }
+
+    public long getConstraintChecks() {
+        return constraintChecks.sum();
+    }
+
+    public long getPropagations() {
+        return propagations.sum();
+    }
+
+    public long getValuesPruned() {
+        return valuesPruned.sum();
+    }
+
+    public double getValuesPrunedPerPropagation() {
+        long count = propagations.sum();
+        return count == 0 ? 0 : (double) valuesPruned.sum() / count;
+    }
+
+    /**
+     * @return the number of times the domain of the variable has been wiped out by a branch
+     */
+    public long getWipeOuts(int var) {
+        return wipeOuts[var].sum();
+    }
+
+    public long getWipeOuts() {
+        long total = 0;
+        for (LongAdder counter : wipeOuts) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getSearchMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(searchNanos.sum());
+    }
+
+    public long getPropagationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(propagationNanos.sum());
+    }
+
+    /**
+     * @return the search time outside propagation, spent choosing, making and undoing branches
+     */
+    public long getBranchingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(searchNanos.sum() - propagationNanos.sum(), 0));
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created);
+    }
+
+    /**
+     * @param instance the name of the problem, recorded with the counters
+     */
+    public String toJson(String instance) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"instance\": ").append(jsonString(instance));
+        json.append(", \"elapsedMillis\": ").append(getElapsedMillis());
+        json.append(", \"nodes\": ").append(getNodes());
+        json.append(", \"solutions\": ").append(getSolutions());
+        json.append(", \"constraintChecks\": ").append(getConstraintChecks());
+        json.append(", \"propagations\": ").append(getPropagations());
+        json.append(", \"valuesPruned\": ").append(getValuesPruned());
+        json.append(", \"valuesPrunedPerPropagation\": ")
+            .append(String.format(Locale.ROOT, "%.3f", getValuesPrunedPerPropagation()));
+        json.append(", \"wipeOuts\": ").append(getWipeOuts());
+        json.append(", \"backtracks\": ").append(getBacktracks());
+        json.append(", \"maxDepth\": ").append(getMaxDepth());
+        json.append(", \"searchMillis\": ").append(getSearchMillis());
+        json.append(", \"propagationMillis\": ").append(getPropagationMillis());
+        json.append(", \"branchingMillis\": ").append(getBranchingMillis());
+        json.append(", \"allocatedBytes\": ").append(getAllocatedBytes());
+        json.append(", \"wipeOutsPerVariable\": [");
+        for (int var = 0; var < wipeOuts.length; var++) {
+            json.append(var == 0 ? "" : ", ").append(getWipeOuts(var));
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * @return the string as a JSON string, quoted, with quotes, backslashes and control characters escaped
+     */
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * @return the string as a CSV field, quoted as in RFC 4180 if it holds a comma, a quote or a line break
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public static String csvHeader() {
+        return CSV_HEADER;
+    }
+
+    /**
+     * @param instance the name of the problem, recorded with the counters
+     * @return the counters in the columns of csvHeader, without the wipe-outs of each variable
+     */
+    public String toCsv(String instance) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%.3f,%d,%d,%d,%d,%d,%d,%d",
+                             csvField(instance), getElapsedMillis(), getNodes(), getSolutions(),
+                             getConstraintChecks(), getPropagations(), getValuesPruned(),
+                             getValuesPrunedPerPropagation(), getWipeOuts(), getBacktracks(), getMaxDepth(),
+                             getSearchMillis(), getPropagationMillis(), getBranchingMillis(), getAllocatedBytes());
+    }
+
+    /**
+     * Write the counters as a JSON object, replacing the file.
+     */
+    public void writeJson(String fn, String instance) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(fn))) {
+            out.println(toJson(instance));
+        }
+    }
+
+    /**
+     * Append the counters as a CSV row, after the header if the file is new or empty,
+     * so that the runs of many problems can share one file.
+     */
+    public void writeCsv(String fn, String instance) throws IOException {
+        boolean header = !Files.exists(Paths.get(fn)) || Files.size(Paths.get(fn)) == 0;
+        try (PrintWriter out = new PrintWriter(new FileWriter(fn, true))) {
+            if (header) {
+                out.println(CSV_HEADER);
+            }
+            out.println(toCsv(instance));
+        }
+    }
+
+    /**
+     * Write a CSV row of the counters to the file at the given period from a background thread,
+     * replacing the file, until stopSnapshots is called.
+     */
+    public synchronized void startSnapshots(String fn, long periodMillis, String instance) throws IOException {
+        if (snapshots != null) {
+            throw new IllegalStateException("Snapshots have already been started.");
+        }
+        snapshotOut = new PrintWriter(new FileWriter(fn));
+        snapshotOut.println(CSV_HEADER);
+        snapshotOut.flush();
+        snapshotInstance = instance;
+        snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "search-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleAtFixedRate(this::writeSnapshot, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the snapshots, writing a last row with the final counters.
+     */
+    public synchronized void stopSnapshots() {
+        if (snapshots == null) {
+            return;
+        }
+        snapshots.shutdownNow();
+        snapshots = null;
+        snapshotOut.println(toCsv(snapshotInstance));
+        snapshotOut.close();
+        snapshotOut = null;
+    }
+
+    private synchronized void writeSnapshot() {
+        if (snapshotOut != null) {
+            snapshotOut.println(toCsv(snapshotInstance));
+            snapshotOut.flush();
+        }
+    }
+}
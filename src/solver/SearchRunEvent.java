@@ -0,0 +1,37 @@
+package solver;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * @author Thao P. Nguyen
+ * Flight Recorder event of one stretch of search: a run between restarts, the search of a subtree given by
+ * solveSubtree, or the exploration collecting the subproblems of split. A run paused and resumed is recorded
+ * as one event per stretch searched.
+ */
+@Name("csp.SearchRun")
+@Label("Search Run")
+@Category({"CSP Solver", "Search"})
+@Description("Search of one run between restarts, or of one subtree")
+final class SearchRunEvent extends jdk.jfr.Event {
+    @Label("Kind")
+    @Description("run, subtree or split")
+    String kind;
+
+    @Label("Restarts")
+    @Description("Restarts before the run")
+    int restarts;
+
+    @Label("Start Depth")
+    int startDepth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Failed Branches")
+    long failures;
+
+    @Label("Solutions")
+    long solutions;
+}
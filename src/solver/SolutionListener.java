@@ -0,0 +1,15 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Receives the solutions of a search as they are found, instead of having them collected.
+ */
+public interface SolutionListener {
+
+    /**
+     * Called once per solution.
+     * @param assignment the value of each variable, indexed by variable id. The array is reused 
+     *                   for every solution of the search and must be copied to be kept.
+     */
+    void onSolution(int[] assignment);
+}
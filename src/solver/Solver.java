@@ -1,8 +1,9 @@
 package solver;
 import java.util.ArrayDeque;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.PriorityQueue;
+import java.util.Random;
 
 import reader.BinaryCSP;
 
@@ -10,39 +11,136 @@ import reader.BinaryCSP;
  * @author Thao P. Nguyen
  * The general Solver solves a binary constraint problem.
  * 
- * Solver supports 2 variable ordering strategies: 
- *   - ascending
- *   - smallest-domain first
+ * Solver chooses the next variable with one of the OrderingStrategy options (ascending, dom, dom/deg,
+ * dom/wdeg, activity) and the value of each left branch with one of the ValueOrderingStrategy options
+ * (first, min-conflicts, random, phase saving).
  * 
  * Solver uses search and propagation to find the solutions.
- *   - Search: implemented recursively using the main recurse method, findNextVar.
- *             findNextVar calls branchLeft and branchRight methods to employ 2-way branching.
+ *   - Search: implemented iteratively with an explicit stack of frames, one per decision.
+ *             findNextVar enters a node and pushes a frame, which employs 2-way branching 
+ *             with the branchLeft and branchRight methods. The search can be paused, resumed and checkpointed.
+ *   - Restarts: with a RestartSchedule, the search restarts from the root after a cutoff of failed branches,
+ *             recording the nogoods of the abandoned branch.
  *   - Propagation: propagation strategies specified by updateConsistency method.
  * 
- * Subclasses (ForwardChecking and MAC) extends the general Solver and override:
+ * Subclasses (FCSolver, MACSolver and CBJSolver) extend the general Solver and override:
  *   - updateConsistency: to specify propagation algorithm
+ *   - prepareSearch: to establish consistency before searching
+ *   - analyzeFailure: to backjump past the frames a failure does not depend on (CBJSolver)
  */
 public abstract class Solver {
+    // stages of a search frame
+    static final int BRANCH_LEFT = 0;
+    static final int UNDO_LEFT = 1;
+    static final int UNDO_RIGHT = 2;
 
-    protected HashMap<Integer, Variable> variables;
+    protected Variable[] variables;
+    // whether each variable id is currently assigned by a left branch
+    protected boolean[] assigned;
     protected ArcsCurator arcsCurator;
+    protected ArcReviser reviser;
 
-    protected PriorityQueue<Variable> varQ;
-    protected ArrayDeque<Arc> arcQ;
+    protected VariableOrdering varQ;
+    protected ValueOrdering valueOrdering;
+    private ValueOrderingStrategy valueStrategy = ValueOrderingStrategy.FIRST;
+    private long seed;
     protected ArrayDeque<Variable> assignments;
     protected ArrayDeque<HashMap<Integer, Integer>> solutions;
+    protected long solutionCounter = 0;
+    // reusable view of the current solution, indexed by variable id
+    private final int[] assignment;
+    private SolutionListener solutionListener;
+    private boolean collectSolutions = true;
     protected int nodeCounter = 0;
     protected int arcReviseCounter = 0;
     protected Long timeStarted;
     protected Long timeTaken;
+    protected boolean printStats = true;
+    protected OrderingStrategy ordering;
+    protected boolean showSolutions;
+
+    // explicit search stack, frame i holding the variable branched on at depth i
+    private int depth;
+    private int[] frameVar = new int[16];
+    private int[] frameStage = new int[16];
+    // the value assigned by each frame's left branch and removed by its right branch
+    private int[] frameVal = new int[16];
+    private int[] frameSupportMark = new int[16];
+    // variables pruned by the propagation of each frame's current branch, reused across branches
+    private final ArrayList<ArrayDeque<Variable>> framePruners = new ArrayList<>();
+    private volatile boolean pauseRequested;
+    // set by cancel and never cleared, so that a cancel before or during the start of a search holds
+    private volatile boolean cancelled;
+    // stop once this many solutions have been found
+    protected long maxSolutions = Long.MAX_VALUE;
+    private boolean limitReached;
+    // depth at which nodes are collected as subproblems instead of being explored, -1 if not splitting
+    private int splitDepth = -1;
+    private ArrayList<SearchCheckpoint> subproblems;
+    // whether the decisions of a checkpoint are being replayed
+    private boolean replaying;
+
+    // restart cutoffs in failed branches, no restarts if null
+    private RestartSchedule restartSchedule;
+    private NogoodStore nogoods;
+    private Random random;
+    private long failureCounter;
+    private long failureCutoff;
+    protected int restartCounter = 0;
+    // variables pruned at the root by unary nogoods, undone when a new search starts
+    private final ArrayDeque<Variable> rootPruners = new ArrayDeque<>();
+    private int rootSupportMark;
+    private final ArrayDeque<Variable> nogoodPruners = new ArrayDeque<>();
+    // consistency established before every search beyond prepareSearch, none if null
+    private Preprocessing preprocessing;
+    private Preprocessor preprocessor;
+    // counters shared with other solvers, none if null
+    private SearchMetrics metrics;
+    // constraint checks of the reviser already added to the metrics
+    private long checksRecorded;
+    // domain changes of each variable made by the last propagation, reset after counting its values
+    private int[] changesOf;
+    // Flight Recorder event of the current run, null between runs
+    private SearchRunEvent runEvent;
+    private long runNodes;
+    private long runFailures;
+    private long runSolutions;
+    // Flight Recorder event of the current burst of failed branches, replaced once committed
+    private WipeOutBurstEvent burstEvent = new WipeOutBurstEvent();
+    private int burstFailures;
+    private int burstWipeOuts;
+    private int burstFromDepth;
+    private int burstToDepth;
+    // fewest failed branches in a row recorded as a burst
+    static final int MIN_BURST_FAILURES = 8;
 
     public Solver(BinaryCSP csp) {
-        // map id to Variable objects
-        variables = new HashMap<>();
+        this(csp, RevisionAlgorithm.AC3);
+    }
+
+    /**
+     * @param csp the constraint problem
+     * @param algorithm the algorithm used to revise arcs during propagation
+     */
+    public Solver(BinaryCSP csp, RevisionAlgorithm algorithm) {
+        this(csp, new ArcsCurator(csp), algorithm);
+    }
+
+    /**
+     * @param csp the constraint problem
+     * @param arcsCurator the arcs of the problem, which may be shared by several solvers
+     * @param algorithm the algorithm used to revise arcs during propagation
+     */
+    public Solver(BinaryCSP csp, ArcsCurator arcsCurator, RevisionAlgorithm algorithm) {
+        // index Variable objects by id
+        variables = new Variable[csp.getNoVariables()];
         for (int varId = 0; varId < csp.getNoVariables(); varId++) {
-            variables.put(varId, new Variable(varId, csp.getLB(varId), csp.getUB(varId)));
+            variables[varId] = new Variable(varId, csp.getLB(varId), csp.getUB(varId));
         }
-        arcsCurator = new ArcsCurator(csp.getConstraints());
+        assigned = new boolean[csp.getNoVariables()];
+        assignment = new int[csp.getNoVariables()];
+        this.arcsCurator = arcsCurator;
+        reviser = new ArcReviser(arcsCurator, variables, algorithm);
     }
 
     protected abstract boolean updateConsistency(Variable var, ArrayDeque<Variable> pruners);
@@ -52,89 +150,817 @@ public abstract class Solver {
      * with option to change variable ordering strategy and option to print all solutions.
      * @param ascendingVarOrder true if choosing natural ascending variable order, false if smallest domain first
      * @param showSolutions if print all solutions to screen
-     * @return all possible solutions to the CSP
+     * @return all possible solutions to the CSP, or those found so far if the search has been paused
      */
     public ArrayDeque<HashMap<Integer, Integer>> solve(boolean ascendingVarOrder, boolean showSolutions) {
-        // start timer if timer hasn't been started by override method
-        if (timeStarted == null) { 
-            restartStats();
-            timeStarted = System.currentTimeMillis();
-        }
-        
-        // set up variable queue
-        if (ascendingVarOrder) {
-            setAscendingVarQ();
-        } else {
-            setSmallestDomainVarQ();
+        return solve(ascendingVarOrder ? OrderingStrategy.ASCENDING : OrderingStrategy.DOM, showSolutions);
+    }
+
+    /**
+     * Solve constraint problem and print solving stats to terminal
+     * with the given variable ordering strategy and option to print all solutions.
+     * @param ordering the variable ordering strategy
+     * @param showSolutions if print all solutions to screen
+     * @return all possible solutions to the CSP, or those found so far if the search has been paused
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> solve(OrderingStrategy ordering, boolean showSolutions) {
+        if (startSearch(ordering, showSolutions)) {
+            findNextVar();
+        }
+        return resume();
+    }
+
+    /**
+     * Restore the search state of a checkpoint taken from a solver of the same problem, then continue solving.
+     * Statistics, including the solution count, continue from the checkpoint; 
+     * solutions found before the checkpoint are not restored.
+     * @param checkpoint the search state to restore
+     * @param showSolutions if print all solutions to screen
+     * @return solutions found after the checkpoint
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> solve(SearchCheckpoint checkpoint, boolean showSolutions) {
+        if (startSearch(checkpoint.getOrdering(), showSolutions)) {
+            replay(checkpoint);
+            nodeCounter = checkpoint.getNodeCounts();
+            arcReviseCounter = checkpoint.getArcReviseCounts();
+            solutionCounter = checkpoint.getSolutionCounts();
+        }
+        return resume();
+    }
+
+    /**
+     * Continue a paused search until it finishes or is paused again. A cancelled solver does not search.
+     * Results are printed once the search has finished.
+     * @return all solutions found so far
+     */
+    public ArrayDeque<HashMap<Integer, Integer>> resume() {
+        pauseRequested = cancelled;
+        if (measuredSearch(0, "run") && !cancelled) {
+            timeTaken = System.currentTimeMillis() - timeStarted;
+            printResult(showSolutions);
+        }
+        return solutions;
+    }
+
+    /**
+     * Ask the search to stop before its next step, keeping the search stack so that it can be resumed.
+     * Safe to call from another thread.
+     */
+    public void pause() {
+        pauseRequested = true;
+    }
+
+    /**
+     * Stop the search for good, before its next step or as soon as the root consistency has been established.
+     * Unlike a pause, the request is never cleared: a cancelled solver cannot be resumed and does not start
+     * another search. A search started on an interrupted thread is cancelled in the same way.
+     * Safe to call from another thread, before or during a search.
+     */
+    public void cancel() {
+        cancelled = true;
+        pauseRequested = true;
+    }
+
+    /**
+     * @return whether the solver has been cancelled, its last search stopping before exploring the whole tree.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return whether the search has stopped before exploring the whole tree.
+     */
+    public boolean isPaused() {
+        return depth > 0;
+    }
+
+    /**
+     * Capture the decisions of the current branch of a paused search.
+     */
+    public SearchCheckpoint getCheckpoint() {
+        if (restartCounter > 0) {
+            throw new IllegalStateException("Checkpoints do not carry the nogoods recorded by restarts.");
+        }
+        return new SearchCheckpoint(ordering, Arrays.copyOf(frameVar, depth), Arrays.copyOf(frameVal, depth),
+                                    Arrays.copyOf(frameStage, depth), nodeCounter, arcReviseCounter, solutionCounter);
+    }
+
+    /**
+     * Stop the search once the given number of solutions has been found, 1 for first-solution mode.
+     */
+    public void setMaxSolutions(long maxSolutions) {
+        this.maxSolutions = maxSolutions;
+    }
+
+    /**
+     * Choose the value each left branch assigns, FIRST by default. Takes effect from the next search.
+     */
+    public void setValueOrdering(ValueOrderingStrategy valueStrategy) {
+        this.valueStrategy = valueStrategy;
+    }
+
+    /**
+     * Seed the random choices of the search, so that runs can be reproduced.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Restart the search from the root whenever a run reaches the next cutoff of the schedule,
+     * or never if null. Ties in variable ordering are broken randomly from the seed at every restart,
+     * and the nogoods of each abandoned branch are recorded so that no part of the tree is searched twice.
+     * Only applies to solve, not to split or solveSubtree.
+     */
+    public void setRestartSchedule(RestartSchedule restartSchedule) {
+        this.restartSchedule = restartSchedule;
+    }
+
+    /**
+     * Establish the given consistency level on the root domains before every search, or only
+     * the consistency of prepareSearch if null. The values removed are removed for good.
+     */
+    public void setPreprocessing(Preprocessing preprocessing) {
+        this.preprocessing = preprocessing;
+    }
+
+    /**
+     * @return the preprocessor of the last search, or null if there was no preprocessing
+     */
+    public Preprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    /**
+     * Add the counters of every following search to the given metrics, which may be shared with other solvers
+     * of the same problem, or stop recording them if null.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null && changesOf == null) {
+            changesOf = new int[variables.length];
+        }
+    }
+
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stream solutions to the given listener instead of collecting them, or collect them again if null.
+     */
+    public void setSolutionListener(SolutionListener solutionListener) {
+        this.solutionListener = solutionListener;
+        collectSolutions = solutionListener == null;
+    }
+
+    /**
+     * Only count solutions, without collecting them or allocating anything per solution.
+     * Counting only drops the solution listener, while turning it off keeps the listener if any.
+     */
+    public void setCountOnly(boolean countOnly) {
+        if (countOnly) {
+            solutionListener = null;
         }
+        collectSolutions = !countOnly && solutionListener == null;
+    }
+
+    /**
+     * Explore the search tree down to the given depth and collect the nodes at that depth as subproblems.
+     * Together with the solutions found above that depth, the subtrees of the subproblems cover the whole search.
+     * @param ordering the variable ordering strategy
+     * @param splitDepth the number of decisions leading to each subproblem
+     * @return the subproblems, to be solved with solveSubtree
+     */
+    public ArrayList<SearchCheckpoint> split(OrderingStrategy ordering, int splitDepth) {
+        subproblems = new ArrayList<>();
+        this.splitDepth = splitDepth;
+        if (startSearch(ordering, false)) {
+            findNextVar();
+            measuredSearch(0, "split");
+        }
+        this.splitDepth = -1;
+        timeTaken = System.currentTimeMillis() - timeStarted;
+        return subproblems;
+    }
+
+    /**
+     * Explore the subtrees below the nodes recorded by the subproblems of a split down to the given depth
+     * and collect the nodes at that depth as subproblems, adding the solutions found above that depth
+     * to the solutions found so far, until the solution limit.
+     * The subproblems are taken in the order of the split, so that each keeps the frames it shares
+     * with the previous one on the search stack and only replays the others. Like solveSubtree,
+     * the solver is back at the root once done, without having established the root consistency again.
+     * @param splitDepth the number of decisions leading to each new subproblem, deeper than the given subproblems
+     * @return the subproblems of the subtrees, to be solved with solveSubtree or split further
+     */
+    public ArrayList<SearchCheckpoint> splitSubtrees(ArrayList<SearchCheckpoint> nodes, int splitDepth) {
+        subproblems = new ArrayList<>();
+        this.splitDepth = splitDepth;
+        for (SearchCheckpoint node : nodes) {
+            unwind(sharedFrames(node));
+            replay(node);
+            int base = depth;
+            findNextVar();
+            if (!measuredSearch(base, "split") || limitReached) {
+                break;
+            }
+        }
+        unwind(0);
+        this.splitDepth = -1;
+        timeTaken = System.currentTimeMillis() - timeStarted;
+        return subproblems;
+    }
+
+    /**
+     * @return the number of frames at the bottom of the search stack that make the same decisions as the checkpoint
+     */
+    private int sharedFrames(SearchCheckpoint checkpoint) {
+        int frame = 0;
+        while (frame < depth && frame < checkpoint.getDepth() && frameVar[frame] == checkpoint.getVar(frame)
+               && frameVal[frame] == checkpoint.getVal(frame) && frameStage[frame] == checkpoint.getStage(frame)) {
+            frame++;
+        }
+        return frame;
+    }
+
+    /**
+     * Reset stats and prepare the solver to solve subproblems with solveSubtree.
+     * @return whether the problem may still have solutions
+     */
+    public boolean startSubtrees(OrderingStrategy ordering) {
+        return startSearch(ordering, false);
+    }
+
+    /**
+     * Solve the subtree below the node recorded by a subproblem, adding to the solutions found so far.
+     * The solver is back at the root once the subtree has been explored, ready for the next subproblem.
+     */
+    public void solveSubtree(SearchCheckpoint subproblem) {
+        replay(subproblem);
+        int base = depth;
+        findNextVar();
+        if (measuredSearch(base, "subtree")) {
+            unwind(0);
+        }
+        timeTaken = System.currentTimeMillis() - timeStarted;
+    }
+
+    /**
+     * Replay the decisions of a checkpoint, leaving its frames on the search stack.
+     * The frames already on the stack, from the root, must make the same decisions as the checkpoint.
+     * Nogoods are not propagated while replaying, so that the nogoods learned since the checkpoint was taken
+     * cannot prune the values it assigns.
+     */
+    private void replay(SearchCheckpoint checkpoint) {
+        prepareReplay(checkpoint);
+        replaying = true;
+        for (int frame = depth; frame < checkpoint.getDepth(); frame++) {
+            Variable var = variables[checkpoint.getVar(frame)];
+            varQ.remove(var);
+            pushFrame(var);
+            frameVal[frame] = checkpoint.getVal(frame);
+            // replay the branch the frame was exploring, its propagation succeeded if a deeper frame exists
+            if (checkpoint.getStage(frame) == UNDO_LEFT) {
+                branchLeft(var, frame);
+            } else if (checkpoint.getStage(frame) == UNDO_RIGHT) {
+                branchRight(var, frame);
+            }
+            frameStage[frame] = checkpoint.getStage(frame);
+        }
+        replaying = false;
+    }
+
+    /**
+     * Called before the decisions of a checkpoint are replayed on top of the frames it shares with the search stack.
+     */
+    protected void prepareReplay(SearchCheckpoint checkpoint) {
+    }
+
+    /**
+     * Reset stats, establish any consistency required before search and set up the variable queue.
+     * @return whether the search should start, false if the problem is already known to have no solutions
+     */
+    private boolean startSearch(OrderingStrategy ordering, boolean showSolutions) {
+        // discard any paused search
+        unwind(0);
+        if (!rootPruners.isEmpty()) {
+            undoPruning(rootPruners);
+            rootPruners.clear();
+            reviser.restore(rootSupportMark);
+        }
+        restartStats();
+        timeStarted = System.currentTimeMillis();
+        limitReached = false;
+        this.ordering = ordering;
+        this.showSolutions = showSolutions;
         assignments = new ArrayDeque<>();
         solutions = new ArrayDeque<>();
+        preprocessor = null;
+        if (cancelled) {
+            return false;
+        }
+        long rootStarted = metrics != null ? System.nanoTime() : 0;
+        boolean consistent = prepareSearch();
+        if (consistent && preprocessing != null) {
+            preprocessor = new Preprocessor(variables, arcsCurator);
+            consistent = preprocessor.run(preprocessing);
+        }
+        if (metrics != null) {
+            metrics.onRootPropagation(System.nanoTime() - rootStarted);
+            recordChecks();
+        }
+        if (!consistent) {
+            return false;
+        }
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            cancelled = true;
+            return false;
+        }
 
-        // start solving
-        findNextVar();
-        printResult(showSolutions);
-        return solutions;
+        rootSupportMark = reviser.mark();
+
+        // set up variable queue and value ordering
+        setVarQ(ordering);
+        valueOrdering = valueStrategy.create(variables, arcsCurator, seed);
+
+        // set up restarts
+        random = new Random(seed);
+        nogoods = new NogoodStore(variables, assigned);
+        failureCounter = 0;
+        if (restartSchedule != null) {
+            restartSchedule.reset();
+            failureCutoff = restartSchedule.nextCutoff();
+        }
+        return true;
     }
 
     /**
-     * Search for assignment of the next unassigned variable in queue.
+     * Establish consistency before the search starts. 
+     * @return whether the problem may still have solutions
+     */
+    protected boolean prepareSearch() {
+        return true;
+    }
+
+    /**
+     * Enter a search node: branch on the next unassigned variable in queue,
+     * or save the solution if all variables have been assigned.
      */
     protected void findNextVar() {
+        if (burstFailures > 0) {
+            endBurst();
+        }
+        if (runEvent == null) {
+            startRun();
+        }
+        if (depth == splitDepth) {
+            subproblems.add(getCheckpoint());
+            return;
+        }
         nodeCounter++;
+        if (metrics != null) {
+            metrics.onNode(depth);
+        }
         // check if all variables have been assigned
         if (!varQ.isEmpty()) {
-            Variable var = varQ.poll();
-            branchLeft(var);
-            branchRight(var);
+            pushFrame(varQ.poll());
         } else {
-            // save solution
+            recordSolution();
+            limitReached = solutionCounter >= maxSolutions;
+        }
+    }
+
+    /**
+     * Count the solution made by the current assignments, then stream or collect it.
+     */
+    private void recordSolution() {
+        solutionCounter++;
+        if (metrics != null) {
+            metrics.onSolution();
+        }
+        for (Variable var : variables) {
+            assignment[var.getId()] = var.getAssignedVal();
+        }
+        if (solutionListener != null) {
+            solutionListener.onSolution(assignment);
+        }
+        if (collectSolutions) {
             HashMap<Integer, Integer> solution = new HashMap<>();
-            for (Variable var: assignments) {
-                solution.put(var.getId(), var.getAssignedVal());
+            for (int varId = 0; varId < assignment.length; varId++) {
+                solution.put(varId, assignment[varId]);
             }
             solutions.add(solution);
         }
     }
 
     /**
-     * Assign first value in domain to variable and propagate.
+     * Search with the time and the allocations of the current thread added to the metrics, if any,
+     * then end the Flight Recorder event of the run.
+     * @param kind the kind of run recorded by the event
+     * @return whether the search has finished or reached the solution limit, false if it has been paused
+     */
+    private boolean measuredSearch(int floor, String kind) {
+        if (metrics == null) {
+            boolean finished = search(floor);
+            endRun(kind);
+            return finished;
+        }
+        long started = System.nanoTime();
+        long allocated = SearchMetrics.threadAllocatedBytes();
+        boolean finished = search(floor);
+        metrics.onSearch(System.nanoTime() - started, SearchMetrics.threadAllocatedBytes() - allocated);
+        recordChecks();
+        endRun(kind);
+        return finished;
+    }
+
+    /**
+     * Begin the Flight Recorder event of a run from the current node.
+     * The event is created for every run but only committed if a recording has it enabled.
      */
-    private void branchLeft(Variable var) {
-        // record variables that have pruned their domain during propagation
-        ArrayDeque<Variable> pruners = new ArrayDeque<>();
-        // assign first value to variable
+    private void startRun() {
+        runEvent = new SearchRunEvent();
+        runEvent.begin();
+        runNodes = nodeCounter;
+        runFailures = failureCounter;
+        runSolutions = solutionCounter;
+        runEvent.startDepth = depth;
+    }
+
+    /**
+     * End the current burst of failed branches and the Flight Recorder event of the run, if any.
+     */
+    private void endRun(String kind) {
+        if (burstFailures > 0) {
+            endBurst();
+        }
+        if (runEvent == null) {
+            return;
+        }
+        if (runEvent.shouldCommit()) {
+            runEvent.kind = kind;
+            runEvent.restarts = restartCounter;
+            runEvent.nodes = nodeCounter - runNodes;
+            runEvent.failures = failureCounter - runFailures;
+            runEvent.solutions = solutionCounter - runSolutions;
+            runEvent.commit();
+        }
+        runEvent = null;
+    }
+
+    /**
+     * Add a failed branch of the frame to the current burst, beginning it on its first failure.
+     * Nothing is counted unless a recording has bursts enabled.
+     */
+    private void onFailedBranch(Variable var, int frame) {
+        if (!burstEvent.isEnabled()) {
+            return;
+        }
+        if (burstFailures == 0) {
+            burstEvent.begin();
+            burstWipeOuts = 0;
+            burstFromDepth = frame;
+            burstToDepth = frame;
+        }
+        burstFailures++;
+        burstToDepth = Math.min(burstToDepth, frame);
+        ArrayDeque<Variable> pruners = framePruners.get(frame);
+        if (var.isWipedOut() || (!pruners.isEmpty() && pruners.peekLast().isWipedOut())) {
+            burstWipeOuts++;
+        }
+    }
+
+    /**
+     * Commit the current burst of failed branches if it is long enough and the recording keeps it.
+     */
+    private void endBurst() {
+        if (burstFailures >= MIN_BURST_FAILURES && burstEvent.shouldCommit()) {
+            burstEvent.failures = burstFailures;
+            burstEvent.wipeOuts = burstWipeOuts;
+            burstEvent.fromDepth = burstFromDepth;
+            burstEvent.toDepth = burstToDepth;
+            burstEvent.commit();
+            burstEvent = new WipeOutBurstEvent();
+        }
+        burstFailures = 0;
+    }
+
+    /**
+     * Iterative depth-first search over the frames of the search stack.
+     * Each frame branches left, undoes the left branch and branches right, then undoes the right branch;
+     * a branch whose propagation succeeds enters a new node on top of the stack.
+     * @param floor the depth at which the search stops, frames below it are left on the stack
+     * @return whether the search has finished or reached the solution limit, false if it has been paused
+     */
+    private boolean search(int floor) {
+        while (depth > floor) {
+            if (pauseRequested) {
+                return false;
+            }
+            if (limitReached) {
+                unwind(floor);
+                return true;
+            }
+            if (restartSchedule != null && failureCounter >= failureCutoff && floor == 0 && splitDepth < 0) {
+                if (!restart()) {
+                    return true;
+                }
+                continue;
+            }
+            int frame = depth - 1;
+            Variable var = variables[frameVar[frame]];
+            if (frameStage[frame] == BRANCH_LEFT) {
+                frameStage[frame] = UNDO_LEFT;
+                frameVal[frame] = valueOrdering.select(var);
+                if (branchLeft(var, frame)) {
+                    findNextVar();
+                } else {
+                    failureCounter++;
+                    if (metrics != null) {
+                        metrics.onBacktrack();
+                    }
+                    onFailedBranch(var, frame);
+                    backjump(frame, floor);
+                }
+            } else if (frameStage[frame] == UNDO_LEFT) {
+                undoLeft(var, frame);
+                frameStage[frame] = UNDO_RIGHT;
+                if (branchRight(var, frame)) {
+                    findNextVar();
+                } else {
+                    failureCounter++;
+                    if (metrics != null) {
+                        metrics.onBacktrack();
+                    }
+                    onFailedBranch(var, frame);
+                    backjump(frame, floor);
+                }
+            } else {
+                undoRight(var, frame);
+                depth--;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Undo the frames above the one chosen by failure analysis, at most down to the floor.
+     */
+    private void backjump(int frame, int floor) {
+        int target = analyzeFailure(frame);
+        if (target < frame) {
+            unwind(Math.max(target + 1, floor));
+        }
+    }
+
+    /**
+     * Analyze the failure of the current branch of the given frame, which is the top of the stack.
+     * The search continues from the returned frame as if its current branch had failed,
+     * the frames above it being undone; a frame below 0 ends the search.
+     * @return the given frame by default, backtracking chronologically
+     */
+    protected int analyzeFailure(int frame) {
+        return frame;
+    }
+
+    /**
+     * Record the nogoods of the current branch, go back to the root and start a new run.
+     * @return whether the search should go on, false if the nogoods leave no values at the root
+     */
+    private boolean restart() {
+        endRun("run");
+        restartCounter++;
+        int[] vars = Arrays.copyOf(frameVar, depth);
+        int[] vals = Arrays.copyOf(frameVal, depth);
+        int[] stages = Arrays.copyOf(frameStage, depth);
+        unwind(0);
+        if (!recordNogoods(vars, vals, stages)) {
+            return false;
+        }
+        varQ.randomizeTies(random);
+        failureCutoff = restartSchedule.nextCutoff();
+        failureCounter = 0;
+        findNextVar();
+        return true;
+    }
+
+    /**
+     * Record the reduced nld-nogoods of a branch (Lecoutre et al.): for every right branch on it,
+     * the left branches above it cannot hold together with the value the right branch removed,
+     * as the subtree of that value has been fully explored. Unary nogoods remove their value at the root.
+     * @return false if a domain has been wiped out at the root
+     */
+    private boolean recordNogoods(int[] vars, int[] vals, int[] stages) {
+        int[] positiveVars = new int[vars.length + 1];
+        int[] positiveVals = new int[vars.length + 1];
+        int positives = 0;
+        for (int frame = 0; frame < vars.length; frame++) {
+            if (stages[frame] == UNDO_LEFT) {
+                positiveVars[positives] = vars[frame];
+                positiveVals[positives++] = vals[frame];
+            } else if (stages[frame] == UNDO_RIGHT) {
+                if (positives == 0) {
+                    if (!pruneRoot(variables[vars[frame]], vals[frame])) {
+                        return false;
+                    }
+                    continue;
+                }
+                int[] nogoodVars = Arrays.copyOf(positiveVars, positives + 1);
+                int[] nogoodVals = Arrays.copyOf(positiveVals, positives + 1);
+                nogoodVars[positives] = vars[frame];
+                nogoodVals[positives] = vals[frame];
+                nogoods.add(nogoodVars, nogoodVals);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value at the root and propagate.
+     * @return whether the root is still consistent
+     */
+    private boolean pruneRoot(Variable var, int val) {
+        if (!var.getDomain().contains(val)) {
+            return true;
+        }
+        var.removeVal(val);
+        rootPruners.add(var);
+        boolean consistent = !var.isWipedOut() && updateConsistency(var, rootPruners);
+        updateVarQ(rootPruners);
+        return consistent;
+    }
+
+    /**
+     * Undo the branches of the frames above the floor and put their variables back in the queue.
+     */
+    private void unwind(int floor) {
+        while (depth > floor) {
+            int frame = depth - 1;
+            Variable var = variables[frameVar[frame]];
+            if (frameStage[frame] == UNDO_LEFT) {
+                undoLeft(var, frame);
+                varQ.add(var);
+            } else if (frameStage[frame] == UNDO_RIGHT) {
+                undoRight(var, frame); // the right branch has put the variable back
+            } else {
+                varQ.add(var);
+            }
+            depth--;
+        }
+    }
+
+    private void pushFrame(Variable var) {
+        if (depth == frameVar.length) {
+            frameVar = Arrays.copyOf(frameVar, depth * 2);
+            frameStage = Arrays.copyOf(frameStage, depth * 2);
+            frameVal = Arrays.copyOf(frameVal, depth * 2);
+            frameSupportMark = Arrays.copyOf(frameSupportMark, depth * 2);
+        }
+        if (depth == framePruners.size()) {
+            framePruners.add(new ArrayDeque<>());
+        }
+        frameVar[depth] = var.getId();
+        frameStage[depth] = BRANCH_LEFT;
+        depth++;
+    }
+
+    /**
+     * Assign the frame's chosen value to variable and propagate.
+     * @return whether the assignment is consistent after propagation
+     */
+    private boolean branchLeft(Variable var, int frame) {
+        // assign chosen value to variable
         assignments.addLast(var);
-        var.assignFirstVal();
-        if (updateConsistency(var, pruners)) {// propagate and check for consistency
-            findNextVar();
+        assigned[var.getId()] = true;
+        var.assignVal(frameVal[frame]);
+        varQ.onAssign(var);
+        valueOrdering.onAssign(var, frameVal[frame]);
+        frameSupportMark[frame] = reviser.mark();
+        // propagate and check for consistency
+        long started = metrics != null ? System.nanoTime() : 0;
+        boolean consistent = updateConsistency(var, framePruners.get(frame))
+                             && propagateNogoods(var, frameVal[frame], framePruners.get(frame));
+        if (metrics != null) {
+            recordPropagation(var, framePruners.get(frame), started);
         }
-        undoPruning(pruners);
-        undoAssign(var);
+        recordPruning(framePruners.get(frame));
+        return consistent;
     }
 
+    /**
+     * Remove the values forbidden by nogoods once a variable has been assigned, then propagate the removals.
+     * @return whether the assignment is still consistent
+     */
+    private boolean propagateNogoods(Variable var, int val, ArrayDeque<Variable> pruners) {
+        if (nogoods.isEmpty() || replaying) {
+            return true;
+        }
+        nogoodPruners.clear();
+        boolean consistent = nogoods.propagate(var, val, nogoodPruners);
+        pruners.addAll(nogoodPruners);
+        int k = 0;
+        for (Variable p : nogoodPruners) {
+            onNogoodPruned(p, nogoods.getReason(k++));
+        }
+        if (nogoods.getConflict() >= 0) {
+            onNogoodConflict(nogoods.getConflict());
+        }
+        for (Variable p : nogoodPruners) {
+            if (!consistent) {
+                break;
+            }
+            consistent = updateConsistency(p, pruners);
+        }
+        return consistent;
+    }
+
+    /**
+     * Called when a nogood has removed the value of its literal on the variable.
+     */
+    protected void onNogoodPruned(Variable var, int nogood) {
+    }
+
+    /**
+     * Called when a nogood has all its literals true, failing the current branch.
+     */
+    protected void onNogoodConflict(int nogood) {
+    }
+
+    /**
+     * Add a nogood to the store propagated on left branches, watching its first 2 literals.
+     */
+    protected void learnNogood(int[] vars, int[] vals) {
+        nogoods.add(vars, vals);
+    }
+
+    protected NogoodStore getNogoods() {
+        return nogoods;
+    }
+
+    protected int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the depth at which nodes are collected as subproblems instead of being explored, -1 if not splitting
+     */
+    protected int getSplitDepth() {
+        return splitDepth;
+    }
+
+    protected int getFrameVar(int frame) {
+        return frameVar[frame];
+    }
+
+    protected int getFrameVal(int frame) {
+        return frameVal[frame];
+    }
+
+    protected int getFrameStage(int frame) {
+        return frameStage[frame];
+    }
+
+    private void undoLeft(Variable var, int frame) {
+        undoPruning(framePruners.get(frame));
+        framePruners.get(frame).clear();
+        reviser.restore(frameSupportMark[frame]);
+        undoAssign(var);
+    }
 
     /**
-     * Remove first value in domain from variable and propagate.
+     * Remove the frame's chosen value from variable and propagate.
+     * @return whether the remaining domain is consistent after propagation
      */
-    private void branchRight(Variable var) {
-        // record variables that have pruned their domain during propagation
-        ArrayDeque<Variable> pruners = new ArrayDeque<>();
-        // remove first value from variable
-        var.removeFirstVal();
+    private boolean branchRight(Variable var, int frame) {
+        // remove chosen value from variable
+        var.removeVal(frameVal[frame]);
         varQ.add(var);
-        if (!var.isWipedOut()) {
-            if (updateConsistency(var, pruners)) {// propagate and check for consistency
-                findNextVar();
-            }
+        frameSupportMark[frame] = reviser.mark();
+        // propagate and check for consistency
+        long started = metrics != null ? System.nanoTime() : 0;
+        boolean consistent = !var.isWipedOut() && updateConsistency(var, framePruners.get(frame));
+        if (metrics != null) {
+            recordPropagation(var, framePruners.get(frame), started);
         }
-        undoPruning(pruners);
-        var.unprune(); // restore value
+        recordPruning(framePruners.get(frame));
+        return consistent;
     }
 
+    private void undoRight(Variable var, int frame) {
+        undoPruning(framePruners.get(frame));
+        framePruners.get(frame).clear();
+        reviser.restore(frameSupportMark[frame]);
+        var.unprune(); // restore value
+        varQ.update(var);
+    }
 
     private void undoAssign(Variable var) {
         assignments.removeLast();
+        assigned[var.getId()] = false;
         var.unprune();
+        varQ.onUnassign(var);
     }
 
     /**
@@ -145,65 +971,104 @@ public abstract class Solver {
         for (Variable p : pruners) {
             p.unprune();
         }
+        updateVarQ(pruners);
     }
 
     /**
-     * Initialize a variable priority queue with ascending order of variable ids.
+     * Add a propagation started at the given time to the metrics, with the values it has pruned,
+     * counted over the last changes of each pruner, and the variables it has wiped out.
      */
-    public void setAscendingVarQ() {
-        // compare strategy for priority queue
-        Comparator<Variable> ascendingOrder = new Comparator<Variable>() {
-            @Override
-            public int compare(Variable firstVar, Variable secondVar) {
-                return firstVar.getId() - secondVar.getId();
+    private void recordPropagation(Variable var, ArrayDeque<Variable> pruners, long started) {
+        long nanos = System.nanoTime() - started;
+        if (var.isWipedOut()) {
+            metrics.onWipeOut(var.getId());
+        }
+        for (Variable p : pruners) {
+            changesOf[p.getId()]++;
+        }
+        int pruned = 0;
+        for (Variable p : pruners) {
+            int changes = changesOf[p.getId()];
+            if (changes > 0) {
+                pruned += p.getLastChangesSize(changes);
+                changesOf[p.getId()] = 0;
+                if (p.isWipedOut() && p != var) {
+                    metrics.onWipeOut(p.getId());
+                }
             }
-        };
-
-        // set up queue and populate
-        varQ = new PriorityQueue<>(variables.size(), ascendingOrder);
-        populateVarQ();
+        }
+        metrics.onPropagation(pruned, nanos);
+        recordChecks();
     }
 
     /**
-     * Initialize a variable priority queue with smallest domain first.
+     * Add the constraint checks made since the last call to the metrics.
      */
-    public void setSmallestDomainVarQ() {
-        // compare strategy for priority queue
-        Comparator<Variable> smallestDomain = new Comparator<Variable>() {
-            @Override
-            public int compare(Variable firstVar, Variable secondVar) {
-                return firstVar.getDomain().size() - secondVar.getDomain().size();
-            }
-        };
+    private void recordChecks() {
+        long checks = reviser.getConstraintChecks();
+        metrics.onConstraintChecks(checks - checksRecorded);
+        checksRecorded = checks;
+    }
 
-        // set up queue and populate
-        varQ = new PriorityQueue<>(variables.size(), smallestDomain);
-        populateVarQ();
+    /**
+     * Report the domain reductions made by propagation to the variable queue and update their positions.
+     */
+    private void recordPruning(ArrayDeque<Variable> pruners) {
+        for (Variable p : pruners) {
+            varQ.onPruned(p);
+        }
+        updateVarQ(pruners);
     }
 
-    private void populateVarQ() {
-        for (int varId : variables.keySet()) {
-            varQ.add(variables.get(varId));
+    /**
+     * Report to the variable queue that revising the given arc has wiped out the domain of its first variable.
+     */
+    protected void onWipeOut(Arc arc) {
+        if (varQ != null) {
+            varQ.onWipeOut(arc);
         }
     }
 
     /**
-     * Get the variable ids of all assigned variables.
+     * Update the queue position of variables whose domains have changed.
      */
-    public ArrayDeque<Integer> getAssignedId() {
-        ArrayDeque<Integer> assignedId = new ArrayDeque<>();
-        for (Variable var : assignments) {
-            assignedId.add(var.getId()); 
+    private void updateVarQ(ArrayDeque<Variable> pruners) {
+        if (varQ != null) {
+            for (Variable p : pruners) {
+                varQ.update(p);
+            }
         }
-        return assignedId;
+    }
+
+    /**
+     * Initialize a variable queue with the given ordering strategy.
+     */
+    public void setVarQ(OrderingStrategy ordering) {
+        varQ = ordering.create(variables, arcsCurator);
+        varQ.populate();
+    }
+
+    public OrderingStrategy getOrdering() {
+        return ordering;
+    }
+
+    /**
+     * Check whether the variable with the given id is assigned by the current search branch.
+     */
+    public boolean isAssigned(int varId) {
+        return assigned[varId];
     }
 
     public void printResult(boolean showSolutions) {
-        timeTaken = System.currentTimeMillis() - timeStarted;
-        System.out.println(String.format("There are %d solutions.", solutions.size()));
+        if (!printStats) {
+            return;
+        }
+        System.out.println(String.format("There are %d solutions.", solutionCounter));
         System.out.println("Time taken: " + timeTaken);
         System.out.println("Nodes used: " + nodeCounter);
         System.out.println("Arc revisions: " + arcReviseCounter);
+        System.out.println("Constraint checks: " + reviser.getConstraintChecks());
+        printSearchStats();
         if (showSolutions) {
             for (HashMap<Integer, Integer> sol : solutions) {
                 System.out.println("Sol 1: " + sol.toString());
@@ -211,10 +1076,36 @@ public abstract class Solver {
         }
     }
 
+    /**
+     * Print the stats of optional search features, before any solutions.
+     */
+    protected void printSearchStats() {
+        if (arcsCurator.getAllDifferents().length > 0) {
+            System.out.println("AllDifferent constraints: " + arcsCurator.getAllDifferents().length);
+        }
+        if (preprocessor != null) {
+            System.out.println("Preprocessing: " + preprocessor.getLevel());
+            System.out.println("Values removed by preprocessing: " + preprocessor.getRemovedValues());
+            System.out.println("Values tested by preprocessing: " + preprocessor.getTests());
+            System.out.println("Preprocessing passes: " + preprocessor.getPasses());
+            System.out.println("Preprocessing constraint checks: " + preprocessor.getConstraintChecks());
+            System.out.println("Preprocessing time: " + preprocessor.getTimeTaken());
+        }
+        if (restartSchedule != null) {
+            System.out.println("Restarts: " + restartCounter);
+            // no store is set up when the problem is wiped out before search
+            System.out.println("Nogoods: " + (nogoods == null ? 0 : nogoods.size()));
+        }
+    }
+
     protected void restartStats() {
         timeStarted = null;
         nodeCounter = 0;
         arcReviseCounter = 0;
+        solutionCounter = 0;
+        restartCounter = 0;
+        reviser.resetStats();
+        checksRecorded = 0;
         timeTaken = null;
     }
 
@@ -230,7 +1121,26 @@ public abstract class Solver {
         return arcReviseCounter;
     }
 
-    public int getSolutionCounts() {
-        return solutions.size();
+    public RevisionAlgorithm getRevisionAlgorithm() {
+        return reviser.getAlgorithm();
+    }
+
+    public long getConstraintCheckCounts() {
+        return reviser.getConstraintChecks();
+    }
+
+    /**
+     * Choose whether solve prints its stats to the terminal.
+     */
+    public void setPrintStats(boolean printStats) {
+        this.printStats = printStats;
+    }
+
+    public int getRestartCounts() {
+        return restartCounter;
+    }
+
+    public long getSolutionCounts() {
+        return solutionCounter;
     }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package solver;
+
+import reader.BinaryCSP;
+
+/**
+ * @author Thao P. Nguyen
+ * A combination of solver settings: the propagation, the variable ordering and the revision algorithm,
+ * along with the value ordering, seed, preprocessing, AllDifferent detection and solution limit
+ * of every solver it creates.
+ *
+ * Solvers that search with several Solvers, like PortfolioSolver, ParallelSolver and ComponentSolver,
+ * create them all from their configurations, so that every setting reaches each of them.
+ */
+public class SolverConfiguration {
+    private final boolean forwardChecking;
+    private final OrderingStrategy ordering;
+    private final RevisionAlgorithm algorithm;
+    private ValueOrderingStrategy valueStrategy = ValueOrderingStrategy.FIRST;
+    private long seed;
+    private Preprocessing preprocessing;
+    private boolean allDifferent;
+    private long maxSolutions = Long.MAX_VALUE;
+
+    /**
+     * @param forwardChecking true to propagate with forward checking, false with MAC
+     * @param ordering the variable ordering strategy
+     * @param algorithm the algorithm used to revise arcs during propagation
+     */
+    public SolverConfiguration(boolean forwardChecking, OrderingStrategy ordering, RevisionAlgorithm algorithm) {
+        this.forwardChecking = forwardChecking;
+        this.ordering = ordering;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @return a configuration with the given propagation, variable ordering and revision algorithm,
+     * and the other settings of this one
+     */
+    public SolverConfiguration withSearch(boolean forwardChecking, OrderingStrategy ordering,
+                                          RevisionAlgorithm algorithm) {
+        SolverConfiguration configuration = new SolverConfiguration(forwardChecking, ordering, algorithm);
+        configuration.valueStrategy = valueStrategy;
+        configuration.seed = seed;
+        configuration.preprocessing = preprocessing;
+        configuration.allDifferent = allDifferent;
+        configuration.maxSolutions = maxSolutions;
+        return configuration;
+    }
+
+    /**
+     * Create a solver of the given problem with this configuration,
+     * on arcs that propagate AllDifferent constraints if this configuration detects them.
+     */
+    public Solver createSolver(BinaryCSP csp) {
+        return createSolver(csp, new ArcsCurator(csp, allDifferent));
+    }
+
+    /**
+     * Create a solver of the given problem with this configuration.
+     * @param arcsCurator the arcs of the problem, which may be shared by several solvers
+     *                    and decide on their own whether AllDifferent constraints are propagated
+     */
+    public Solver createSolver(BinaryCSP csp, ArcsCurator arcsCurator) {
+        if (forwardChecking) {
+            return configure(new FCSolver(csp, arcsCurator, algorithm));
+        }
+        return configure(new MACSolver(csp, arcsCurator, algorithm));
+    }
+
+    /**
+     * Apply the value ordering, seed, preprocessing and solution limit of this configuration
+     * to a solver created otherwise, like a CBJSolver.
+     * @return the given solver
+     */
+    public Solver configure(Solver solver) {
+        solver.setMaxSolutions(maxSolutions);
+        solver.setValueOrdering(valueStrategy);
+        solver.setSeed(seed);
+        solver.setPreprocessing(preprocessing);
+        return solver;
+    }
+
+    /**
+     * Choose the value each left branch assigns, FIRST by default.
+     */
+    public void setValueOrdering(ValueOrderingStrategy valueStrategy) {
+        this.valueStrategy = valueStrategy;
+    }
+
+    /**
+     * Seed the random choices of the search.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Establish the given consistency level before every search, or none if null.
+     */
+    public void setPreprocessing(Preprocessing preprocessing) {
+        this.preprocessing = preprocessing;
+    }
+
+    /**
+     * Replace the cliques of not-equal constraints by AllDifferent constraints in the arcs built by createSolver.
+     */
+    public void setAllDifferent(boolean allDifferent) {
+        this.allDifferent = allDifferent;
+    }
+
+    /**
+     * Stop once the given number of solutions has been found, 1 for first-solution mode.
+     */
+    public void setMaxSolutions(long maxSolutions) {
+        this.maxSolutions = maxSolutions;
+    }
+
+    public boolean isForwardChecking() {
+        return forwardChecking;
+    }
+
+    public OrderingStrategy getOrdering() {
+        return ordering;
+    }
+
+    public RevisionAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public ValueOrderingStrategy getValueOrdering() {
+        return valueStrategy;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Preprocessing getPreprocessing() {
+        return preprocessing;
+    }
+
+    public boolean isAllDifferent() {
+        return allDifferent;
+    }
+
+    public long getMaxSolutions() {
+        return maxSolutions;
+    }
+
+    public String toString() {
+        return (forwardChecking ? "FC" : "MAC") + ", " 
+               + ordering + ", " + algorithm;
+    }
+}
@@ -1,7 +1,11 @@
 package solver;
+import java.io.IOException;
+import java.util.Locale;
 
 import reader.BinaryCSP;
-import reader.BinaryCSPReader;
+import reader.BinaryCSPFormat;
+import reader.FastBinaryCSPReader;
+import reader.MappedBinaryCSPReader;
 
 public class SolverMain {
 
@@ -15,8 +19,46 @@ public class SolverMain {
      * 
      * optional flags:
      * -forward-checking : set solver type to forward checking
+     * -cbj : set solver type to forward checking with conflict-directed backjumping;
+     *        not with -threads, -portfolio or -components
+     * -cbj-compare : with -cbj, solve again with chronological forward checking to report the nodes saved,
+     *                which may take far longer than the search with backjumping
      * -ascending-var : set variable ordering to ascending variable id
+     * -dom-deg-var : set variable ordering to smallest domain over degree
+     * -dom-wdeg-var : set variable ordering to smallest domain over weighted degree
+     * -activity-var : set variable ordering to smallest domain over activity
+     * -min-conflicts-val : branch first on the value with the most supports
+     * -random-val : branch first on a random value
+     * -phase-saving-val : branch first on the value last assigned to the variable
+     * -seed <n> : seed of random choices
+     * -luby-restarts <n> : restart after Luby sequence times n failed branches, recording nogoods;
+     *                      not with -threads, -portfolio or -components
+     * -geometric-restarts <n> : restart after n failed branches, growing 1.5 times every run;
+     *                           not with -threads, -portfolio or -components
      * -solutions-to-stdout : print solutions to terminal
+     * -ac2001 : revise arcs with AC-2001 last supports
+     * -ac3rm : revise arcs with AC-3rm residual supports
+     * -first-solution : stop after the first solution
+     * -max-solutions <n> : stop after n solutions
+     * -count-only : count solutions without storing them
+     * -threads <n> : search in parallel on n threads
+     * -portfolio : race FC and MAC with several variable orderings, keeping the first to finish;
+     *              -ac2001 or -ac3rm replace the revision algorithm of every configuration
+     * -components : solve the connected components of the constraint graph separately, on the given threads
+     * -stream : compile constraints into arcs as they are read, reversed arcs sharing the relation of their first arc
+     * -off-heap : with -stream, allocate bit matrices in direct memory
+     * -alldiff : propagate cliques of not-equal constraints as AllDifferent constraints
+     * -sac1 : remove the values that are not singleton arc consistent before search, with SAC-1
+     * -sac3 : remove the values that are not singleton arc consistent before search, with SAC-3
+     * -pic : remove the values that are not path inverse consistent before search
+     * -nic : remove the values that are not neighbourhood inverse consistent before search
+     * -metrics-json <file> : write the search metrics of the run as a JSON object
+     * -metrics-csv <file> : append the search metrics of the run as a CSV row, after a header if the file is new
+     * -metrics-snapshots <file> : write the search metrics as a CSV row every snapshot period while searching,
+     *                             not with -portfolio, which records the metrics of its winner
+     * -snapshot-period <ms> : period of the metrics snapshots, 1000 by default
+     * 
+     * Files ending in .cspb are mapped in the binary format written by reader.BinaryCSPWriter.
      * 
      * @param args <files.csp> [flags]
      */
@@ -30,28 +72,222 @@ public class SolverMain {
         int nArgs = args.length;
         String fileName = args[0];
         boolean forwardChecking = false;
-        boolean ascendingVarOrder = false;
+        boolean backjumping = false;
+        boolean compareBackjumping = false;
+        OrderingStrategy ordering = OrderingStrategy.DOM;
+        ValueOrderingStrategy valueStrategy = ValueOrderingStrategy.FIRST;
+        long seed = 0;
+        RestartSchedule restartSchedule = null;
         boolean showSolutions = false;
+        RevisionAlgorithm algorithm = RevisionAlgorithm.AC3;
+        boolean algorithmGiven = false;
+        long maxSolutions = Long.MAX_VALUE;
+        boolean countOnly = false;
+        int threads = 1;
+        boolean portfolio = false;
+        boolean components = false;
+        boolean stream = false;
+        boolean offHeap = false;
+        boolean allDifferent = false;
+        Preprocessing preprocessing = null;
+        String metricsJson = null;
+        String metricsCsv = null;
+        String metricsSnapshots = null;
+        long snapshotPeriod = 1000;
         for (int i = 1; i < nArgs; i++) {
             if (args[i].equals("-forward-checking")) {
                 forwardChecking = true;
+            } else if (args[i].equals("-cbj")) {
+                backjumping = true;
+            } else if (args[i].equals("-cbj-compare")) {
+                compareBackjumping = true;
             } else if (args[i].equals("-ascending-var")) {
-                ascendingVarOrder = true;
+                ordering = OrderingStrategy.ASCENDING;
+            } else if (args[i].equals("-dom-deg-var")) {
+                ordering = OrderingStrategy.DOM_DEG;
+            } else if (args[i].equals("-dom-wdeg-var")) {
+                ordering = OrderingStrategy.DOM_WDEG;
+            } else if (args[i].equals("-activity-var")) {
+                ordering = OrderingStrategy.ACTIVITY;
+            } else if (args[i].equals("-min-conflicts-val")) {
+                valueStrategy = ValueOrderingStrategy.MIN_CONFLICTS;
+            } else if (args[i].equals("-random-val")) {
+                valueStrategy = ValueOrderingStrategy.RANDOM;
+            } else if (args[i].equals("-phase-saving-val")) {
+                valueStrategy = ValueOrderingStrategy.PHASE_SAVING;
+            } else if (args[i].equals("-seed") && i + 1 < nArgs) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-luby-restarts") && i + 1 < nArgs) {
+                restartSchedule = new LubyRestartSchedule(Long.parseLong(args[++i]));
+            } else if (args[i].equals("-geometric-restarts") && i + 1 < nArgs) {
+                restartSchedule = new GeometricRestartSchedule(Long.parseLong(args[++i]));
             } else if (args[i].equals("-solutions-to-stdout")) {
                 showSolutions = true;
+            } else if (args[i].equals("-ac2001")) {
+                algorithm = RevisionAlgorithm.AC2001;
+                algorithmGiven = true;
+            } else if (args[i].equals("-ac3rm")) {
+                algorithm = RevisionAlgorithm.AC3RM;
+                algorithmGiven = true;
+            } else if (args[i].equals("-first-solution")) {
+                maxSolutions = 1;
+            } else if (args[i].equals("-max-solutions") && i + 1 < nArgs) {
+                maxSolutions = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-count-only")) {
+                countOnly = true;
+            } else if (args[i].equals("-threads") && i + 1 < nArgs) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-portfolio")) {
+                portfolio = true;
+            } else if (args[i].equals("-components")) {
+                components = true;
+            } else if (args[i].equals("-stream")) {
+                stream = true;
+            } else if (args[i].equals("-off-heap")) {
+                offHeap = true;
+            } else if (args[i].equals("-alldiff")) {
+                allDifferent = true;
+            } else if (args[i].equals("-sac1")) {
+                preprocessing = Preprocessing.SAC1;
+            } else if (args[i].equals("-sac3")) {
+                preprocessing = Preprocessing.SAC3;
+            } else if (args[i].equals("-pic")) {
+                preprocessing = Preprocessing.PIC;
+            } else if (args[i].equals("-nic")) {
+                preprocessing = Preprocessing.NIC;
+            } else if (args[i].equals("-metrics-json") && i + 1 < nArgs) {
+                metricsJson = args[++i];
+            } else if (args[i].equals("-metrics-csv") && i + 1 < nArgs) {
+                metricsCsv = args[++i];
+            } else if (args[i].equals("-metrics-snapshots") && i + 1 < nArgs) {
+                metricsSnapshots = args[++i];
+            } else if (args[i].equals("-snapshot-period") && i + 1 < nArgs) {
+                snapshotPeriod = Long.parseLong(args[++i]);
             }
         }
 
+        if (backjumping && (threads > 1 || portfolio || components)) {
+            System.out.println("-cbj is not supported with -threads, -portfolio or -components");
+            return;
+        }
+        if (restartSchedule != null && (threads > 1 || portfolio || components)) {
+            System.out.println("Restarts are not supported with -threads, -portfolio or -components");
+            return;
+        }
+        if (portfolio && metricsSnapshots != null) {
+            System.out.println("Metrics snapshots are not supported with -portfolio, "
+                               + "whose winner is only known at the end");
+            return;
+        }
+
         // set up solver
-        BinaryCSPReader reader = new BinaryCSPReader();
-        BinaryCSP csp = reader.readBinaryCSP(fileName);
+        BinaryCSP csp;
+        ArcsCurator arcsCurator = null;
+        if (fileName.endsWith(BinaryCSPFormat.EXTENSION)) {
+            csp = new MappedBinaryCSPReader().readBinaryCSP(fileName);
+        } else if (stream && !components) { // components are split from the constraints of the problem
+            ArcsCurator.Builder builder = new ArcsCurator.Builder(true, offHeap);
+            builder.setAllDifferent(allDifferent);
+            if (!new FastBinaryCSPReader().read(fileName, builder)) {
+                return;
+            }
+            csp = builder.getProblem();
+            arcsCurator = builder.build();
+        } else {
+            csp = new FastBinaryCSPReader().readBinaryCSP(fileName);
+        }
+        if (arcsCurator == null && !components) {
+            arcsCurator = new ArcsCurator(csp, allDifferent);
+        }
+        SearchMetrics metrics = null;
+        if (!portfolio && (metricsJson != null || metricsCsv != null || metricsSnapshots != null)) {
+            metrics = new SearchMetrics(csp.getNoVariables());
+        }
+        if (metrics != null && metricsSnapshots != null) {
+            try {
+                metrics.startSnapshots(metricsSnapshots, snapshotPeriod, fileName);
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+        }
+        SolverConfiguration configuration = new SolverConfiguration(forwardChecking, ordering, algorithm);
+        configuration.setValueOrdering(valueStrategy);
+        configuration.setSeed(seed);
+        configuration.setPreprocessing(preprocessing);
+        configuration.setAllDifferent(allDifferent);
+        configuration.setMaxSolutions(maxSolutions);
+        if (portfolio) {
+            PortfolioSolver portfolioSolver = new PortfolioSolver(csp, arcsCurator, 
+                                                                  PortfolioSolver.defaultConfigurations(configuration));
+            portfolioSolver.setCountOnly(countOnly);
+            if (algorithmGiven) {
+                portfolioSolver.setRevisionAlgorithm(algorithm);
+            }
+            portfolioSolver.setRecordMetrics(metricsJson != null || metricsCsv != null);
+            portfolioSolver.solve(showSolutions);
+            if (portfolioSolver.getWinningSolver() != null) {
+                exportMetrics(portfolioSolver.getWinningSolver().getMetrics(), fileName, metricsJson, metricsCsv);
+            }
+            return;
+        }
+        if (components) {
+            ComponentSolver componentSolver = new ComponentSolver(csp, configuration, threads);
+            componentSolver.setCountOnly(countOnly);
+            componentSolver.setMetrics(metrics);
+            componentSolver.solve(showSolutions);
+            exportMetrics(metrics, fileName, metricsJson, metricsCsv);
+            return;
+        }
+        if (threads > 1) {
+            ParallelSolver parallelSolver = new ParallelSolver(csp, arcsCurator, configuration, threads);
+            parallelSolver.setCountOnly(countOnly);
+            parallelSolver.setMetrics(metrics);
+            parallelSolver.solve(showSolutions);
+            exportMetrics(metrics, fileName, metricsJson, metricsCsv);
+            return;
+        }
         Solver solver;
-        if (forwardChecking) {
-            solver = new FCSolver(csp);
+        if (backjumping) {
+            solver = configuration.configure(new CBJSolver(csp, arcsCurator, algorithm));
         } else {
-            solver = new MACSolver(csp);
+            solver = configuration.createSolver(csp, arcsCurator);
+        }
+        solver.setCountOnly(countOnly);
+        solver.setRestartSchedule(restartSchedule);
+        solver.setMetrics(metrics);
+        solver.solve(ordering, showSolutions);
+        exportMetrics(metrics, fileName, metricsJson, metricsCsv);
+        if (backjumping && compareBackjumping) {
+            // the same search with chronological backtracking, to report the nodes saved by backjumping
+            Solver chronological = configuration.withSearch(true, ordering, algorithm).createSolver(csp, arcsCurator);
+            chronological.setPrintStats(false);
+            chronological.setCountOnly(true);
+            chronological.setRestartSchedule(restartSchedule);
+            chronological.solve(ordering, false);
+            long saved = chronological.getNodeCounts() - solver.getNodeCounts();
+            System.out.println("Nodes with chronological backtracking: " + chronological.getNodeCounts());
+            System.out.println(String.format(Locale.ROOT, "Nodes saved by backjumping: %d (%.1f%%)", saved,
+                                             100.0 * saved / Math.max(1, chronological.getNodeCounts())));
         }
-        solver.solve(ascendingVarOrder, showSolutions);
+    }
 
+    /**
+     * Stop the snapshots of the metrics, if any, and write them to the files requested.
+     */
+    private static void exportMetrics(SearchMetrics metrics, String fileName, String json, String csv) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.stopSnapshots();
+        try {
+            if (json != null) {
+                metrics.writeJson(json, fileName);
+            }
+            if (csv != null) {
+                metrics.writeCsv(csv, fileName);
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
     }
 }
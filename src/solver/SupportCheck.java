@@ -0,0 +1,14 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Decides whether a value of a variable being revised still has a support.
+ */
+public interface SupportCheck {
+
+    /**
+     * @param val a value in the domain of the variable being revised
+     * @return whether the value is supported and should be kept
+     */
+    boolean isSupported(int val);
+}
@@ -0,0 +1,218 @@
+package solver;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * @author Thao P. Nguyen
+ * Relation stored as a compressed two-level trie over the tuples.
+ * The first level holds the sorted values of the first variable that have a support, the second level
+ * the supports of each of them as sorted intervals of consecutive values, and rows with the same intervals
+ * are stored once, so the trie is the reduced MDD of the relation.
+ * Used instead of a hash relation when the domains are too wide for a bit matrix and the rows compress well,
+ * as for not-equal or ordering constraints over wide domains, which keep at most 2 intervals per row.
+ */
+public class TrieRelation implements Relation {
+    // sorted values of the first variable with at least one support
+    private final int[] keys;
+    // the intervals of keys[i] are intervals rowFrom[i] (inclusive) to rowTo[i] (exclusive) of the pool
+    private final int[] rowFrom, rowTo;
+    // pool of the intervals of the distinct rows, each row sorted by its lows
+    private final int[] lows, highs;
+
+    private TrieRelation(int[] keys, int[] rowFrom, int[] rowTo, int[] lows, int[] highs) {
+        this.keys = keys;
+        this.rowFrom = rowFrom;
+        this.rowTo = rowTo;
+        this.lows = lows;
+        this.highs = highs;
+    }
+
+    /**
+     * Build the trie of the tuples within the domain bounds; tuples outside them can never be used and are dropped.
+     * @param firstVals the value of the first variable in each tuple
+     * @param secondVals the value of the second variable in each tuple
+     */
+    public static TrieRelation of(int firstLB, int firstUB, int secondLB, int secondUB,
+                                  IntBuffer firstVals, IntBuffer secondVals) {
+        long[] tuples = new long[firstVals.limit()];
+        int size = 0;
+        for (int t = 0; t < firstVals.limit(); t++) {
+            int a = firstVals.get(t), b = secondVals.get(t);
+            if (a >= firstLB && a <= firstUB && b >= secondLB && b <= secondUB) {
+                tuples[size++] = pack(a, b);
+            }
+        }
+        Arrays.sort(tuples, 0, size);
+
+        int[] keys = new int[size];
+        int[] rowFrom = new int[size];
+        int[] rowTo = new int[size];
+        IntList lows = new IntList();
+        IntList highs = new IntList();
+        // the row of each distinct list of intervals, as (from, to) in the pool
+        HashMap<IntList, int[]> rows = new HashMap<>();
+        int noKeys = 0;
+        int t = 0;
+        while (t < size) {
+            int key = first(tuples[t]);
+            IntList row = new IntList();
+            while (t < size && first(tuples[t]) == key) {
+                int low = second(tuples[t]);
+                int high = low;
+                for (t++; t < size && first(tuples[t]) == key; t++) {
+                    int next = second(tuples[t]);
+                    if (next > high + 1) {
+                        break;
+                    }
+                    high = next;                                // duplicates leave high as it is
+                }
+                row.add(low);
+                row.add(high);
+            }
+            int[] interned = rows.get(row);
+            if (interned == null) {
+                interned = new int[] {lows.size(), lows.size() + row.size() / 2};
+                for (int i = 0; i < row.size(); i += 2) {
+                    lows.add(row.get(i));
+                    highs.add(row.get(i + 1));
+                }
+                rows.put(row, interned);
+            }
+            keys[noKeys] = key;
+            rowFrom[noKeys] = interned[0];
+            rowTo[noKeys++] = interned[1];
+        }
+        return new TrieRelation(Arrays.copyOf(keys, noKeys), Arrays.copyOf(rowFrom, noKeys),
+                                Arrays.copyOf(rowTo, noKeys), lows.toArray(), highs.toArray());
+    }
+
+    /**
+     * Number of intervals stored, over all distinct rows.
+     */
+    public int getNoIntervals() {
+        return lows.length;
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        int k = Arrays.binarySearch(keys, firstVal);
+        if (k < 0) {
+            return false;
+        }
+        int i = firstHighFrom(rowFrom[k], rowTo[k], secondVal);
+        return i < rowTo[k] && lows[i] <= secondVal;
+    }
+
+    /**
+     * Interval-wise support search: jump over the gaps of the row of firstVal instead of checking every value.
+     */
+    @Override
+    public int nextSupport(int firstVal, Domain secondDomain, int after) {
+        int k = Arrays.binarySearch(keys, firstVal);
+        if (k < 0) {
+            return Domain.NONE;
+        }
+        int secondVal = after == Domain.NONE ? secondDomain.first() : secondDomain.next(after);
+        int i = rowFrom[k];
+        while (secondVal != Domain.NONE) {
+            i = firstHighFrom(i, rowTo[k], secondVal);
+            if (i == rowTo[k]) {
+                return Domain.NONE;
+            }
+            if (lows[i] <= secondVal) {
+                return secondVal;
+            }
+            // the smallest value of the domain from the low of the interval
+            secondVal = lows[i] <= secondDomain.getLB() ? secondDomain.first()
+                      : secondDomain.contains(lows[i]) ? lows[i] : secondDomain.next(lows[i]);
+        }
+        return Domain.NONE;
+    }
+
+    /**
+     * @return the first interval from the given one (up to to, exclusive) whose high is at least val, or to
+     */
+    private int firstHighFrom(int from, int to, int val) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (highs[mid] < val) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof TrieRelation)) {
+            return false;
+        }
+        TrieRelation other = (TrieRelation) o;
+        return Arrays.equals(keys, other.keys) && Arrays.equals(rowFrom, other.rowFrom)
+               && Arrays.equals(rowTo, other.rowTo) && Arrays.equals(lows, other.lows)
+               && Arrays.equals(highs, other.highs);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(keys) + Arrays.hashCode(rowFrom)) + Arrays.hashCode(lows);
+    }
+
+    // ordered by the first value, then by the second value
+    private static long pack(int firstVal, int secondVal) {
+        return ((long) firstVal << 32) | ((secondVal ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    private static int first(long tuple) {
+        return (int) (tuple >> 32);
+    }
+
+    private static int second(long tuple) {
+        return (int) tuple ^ Integer.MIN_VALUE;
+    }
+
+    /**
+     * A growable list of ints, compared by content to find identical rows.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IntList && Arrays.equals(values, 0, size, ((IntList) o).values, 0, ((IntList) o).size);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 1;
+            for (int i = 0; i < size; i++) {
+                h = 31 * h + values[i];
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package solver;
+import java.util.ArrayList;
+
+import reader.BinaryTuple;
+
+/**
+ * @author Thao P. Nguyen
+ * Relation that checks consistency by scanning the explicit tuple list.
+ * This is the original uncompiled representation, kept as a reference for benchmarks.
+ */
+public class TupleListRelation implements Relation {
+    private final ArrayList<BinaryTuple> tuples;
+
+    public TupleListRelation(ArrayList<BinaryTuple> t) {
+        tuples = t;
+    }
+
+    @Override
+    public boolean isConsistentWith(int firstVal, int secondVal) {
+        for (BinaryTuple tuple : tuples) {
+            if (tuple.matches(firstVal, secondVal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
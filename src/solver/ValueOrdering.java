@@ -0,0 +1,26 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Value ordering for 2-way branching: chooses the value a left branch assigns to a variable,
+ * which the right branch then removes. The solver keeps the chosen value on its frame,
+ * so the choice is made once per node and never needs to be repeated.
+ */
+public abstract class ValueOrdering {
+    protected final Variable[] variables;
+
+    public ValueOrdering(Variable[] variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Choose a value from the domain of the variable to branch on, which must not be empty.
+     */
+    public abstract int select(Variable var);
+
+    /**
+     * Called once a left branch has assigned the chosen value to the variable.
+     */
+    public void onAssign(Variable var, int val) {
+    }
+}
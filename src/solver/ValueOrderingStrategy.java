@@ -0,0 +1,30 @@
+package solver;
+
+/**
+ * @author Thao P. Nguyen
+ * The value ordering strategies supported by the solvers.
+ *   - FIRST: the smallest value in the domain
+ *   - MIN_CONFLICTS: the value with the most supports in the domains of unassigned neighbours
+ *   - RANDOM: a uniformly random value, reproducible from a seed
+ *   - PHASE_SAVING: the value the variable was last assigned, including in the last solution found
+ */
+public enum ValueOrderingStrategy {
+    FIRST, MIN_CONFLICTS, RANDOM, PHASE_SAVING;
+
+    /**
+     * Create a value ordering with this strategy.
+     * @param seed the seed of random choices
+     */
+    public ValueOrdering create(Variable[] variables, ArcsCurator arcsCurator, long seed) {
+        switch (this) {
+            case MIN_CONFLICTS:
+                return new MinConflictsValueOrdering(variables, arcsCurator);
+            case RANDOM:
+                return new RandomValueOrdering(variables, seed);
+            case PHASE_SAVING:
+                return new PhaseSavingValueOrdering(variables);
+            default:
+                return new FirstValueOrdering(variables);
+        }
+    }
+}
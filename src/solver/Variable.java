@@ -1,15 +1,23 @@
 package solver;
-import java.util.ArrayDeque;
+import java.util.Arrays;
 
 /**
  * @author Thao P. Nguyen
  * Variable contains their numbered id and their current domain.
- * Variable also saves its previous domain in domainHistory every time its domain is pruned.
+ * Variable also records the values removed from its domain on a primitive trail, 
+ * so that every domain change can be undone without copying the domain.
  */
 public class Variable {
     private int id;
-    private ArrayDeque<Integer> domain;
-    private ArrayDeque<ArrayDeque<Integer>> domainHistory;
+    private Domain domain;
+    // values removed from the domain, in order of removal
+    private int[] trail;
+    private int trailSize;
+    // trail size at the start of each domain change
+    private int[] changeMarks;
+    private int changeCount;
+    // values found without support by an intensional relation, reused across revisions
+    private int[] unsupported = new int[2];
 
     /**
      * Given its variable id, a lower bound and upper bound,
@@ -20,11 +28,10 @@ public class Variable {
      */
     public Variable(int varId, int lowerBound, int upperBound) {
         id = varId;
-        domain = new ArrayDeque<>();
-        for (int d = lowerBound; d <= upperBound; d ++) {
-            domain.addLast(d);
-        }
-        domainHistory = new ArrayDeque<>();
+        domain = new Domain(lowerBound, upperBound);
+        // a value is removed at most once along a search branch
+        trail = new int[domain.size()];
+        changeMarks = new int[domain.size() + 1];
     }
 
     /**
@@ -39,22 +46,39 @@ public class Variable {
 
     public int getAssignedVal() throws IllegalStateException {
         if (isAssigned()) {
-            return domain.getFirst();
+            return domain.first();
         }
         throw new IllegalStateException("Variable hasn't been assigned any value yet.");
     }
 
     public int assignFirstVal() {
-        saveDomainHistory();
-        int val = domain.getFirst();
-        domain.clear();
-        domain.addLast(val);
-        return val;
+        return assignVal(domain.first());
     }
 
     public int removeFirstVal() {
-        saveDomainHistory();
-        return domain.removeFirst();
+        return removeVal(domain.first());
+    }
+
+    /**
+     * Reduce the domain to the given value, which must be in the domain.
+     */
+    public int assignVal(int val) {
+        beginChange();
+        for (int d = domain.first(); d != Domain.NONE; d = domain.next(d)) {
+            if (d != val) {
+                dropVal(d);
+            }
+        }
+        return val;
+    }
+
+    /**
+     * Remove the given value, which must be in the domain.
+     */
+    public int removeVal(int val) {
+        beginChange();
+        dropVal(val);
+        return val;
     }
 
     /**
@@ -65,43 +89,113 @@ public class Variable {
      */
     public boolean pruneDomain(Arc arc, Variable secondVar) {
         boolean changed = false;
-        ArrayDeque<Integer> newDomain = domain.clone();
-        for (int firstVal : domain) {
-            // find support
-            boolean supported = false;
-            for (int secondVal : secondVar.getDomain()) {
-                if (arc.isConsistentWith(firstVal, secondVal)) {
-                    supported = true;
-                    break;
+        for (int firstVal = domain.first(); firstVal != Domain.NONE; firstVal = domain.next(firstVal)) {
+            // remove unsupported domain value
+            if (!arc.hasSupport(firstVal, secondVar)) {
+                if (!changed) {
+                    beginChange();
+                    changed = true;
                 }
+                dropVal(firstVal);
             }
-            // remove unsupported domain value
-            if (!supported) {
-                newDomain.remove(firstVal);
-                changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Update variable's domain to contain only the values accepted by the support check.
+     * @param supportCheck decides whether each value still has a support
+     * @return whether a change to the domain has been made.
+     */
+    public boolean pruneDomain(SupportCheck supportCheck) {
+        boolean changed = false;
+        for (int val = domain.first(); val != Domain.NONE; val = domain.next(val)) {
+            if (!supportCheck.isSupported(val)) {
+                if (!changed) {
+                    beginChange();
+                    changed = true;
+                }
+                dropVal(val);
             }
         }
-        
-        // save domain history and update new domain
-        if (changed) {
-            saveDomainHistory();
-            domain = newDomain;
+        return changed;
+    }
+
+    /**
+     * Update variable's domain with the dedicated revision of an intensional relation:
+     * only the values outside its supported bounds and the values it finds without support are visited,
+     * unless it asks for every value between the bounds to be checked.
+     * @param relation the relation from this variable to the secondVar
+     * @param secondVar the second variable on the arc, the var that provides support to this variable.
+     * @return whether a change to the domain has been made.
+     */
+    public boolean pruneDomain(IntensionalRelation relation, Variable secondVar) {
+        Domain secondDomain = secondVar.getDomain();
+        int min = relation.minSupported(secondDomain);
+        int max = relation.maxSupported(secondDomain);
+        boolean changed = false;
+        for (int val = domain.first(); val != Domain.NONE && val < min; val = domain.next(val)) {
+            changed = dropInChange(val, changed);
+        }
+        int above = max < domain.getLB() ? domain.first() : domain.next(max);
+        for (int val = above; val != Domain.NONE; val = domain.next(val)) {
+            changed = dropInChange(val, changed);
+        }
+        if (unsupported.length < relation.getMaxUnsupported()) {
+            unsupported = new int[relation.getMaxUnsupported()];
+        }
+        int count = relation.unsupported(secondDomain, unsupported);
+        if (count == IntensionalRelation.CHECK_ALL) {
+            for (int val = domain.first(); val != Domain.NONE && val <= max; val = domain.next(val)) {
+                if (!relation.hasSupport(val, secondDomain)) {
+                    changed = dropInChange(val, changed);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (domain.contains(unsupported[i])) {
+                changed = dropInChange(unsupported[i], changed);
+            }
         }
         return changed;
     }
 
     /**
-     * Undo the last domain change.
+     * Undo the last domain change by restoring the values removed since its mark.
      */
     public void unprune() {
-        domain = domainHistory.removeLast();
+        int mark = changeMarks[--changeCount];
+        while (trailSize > mark) {
+            domain.restore(trail[--trailSize]);
+        }
+    }
+
+    /**
+     * @return the number of values removed by the last domain change.
+     */
+    public int getLastChangeSize() {
+        return trailSize - changeMarks[changeCount - 1];
+    }
+
+    /**
+     * @return the k-th value removed by the last domain change.
+     */
+    public int getLastChangeVal(int k) {
+        return trail[changeMarks[changeCount - 1] + k];
+    }
+
+    /**
+     * @return the number of values removed by the given number of last domain changes.
+     */
+    public int getLastChangesSize(int changes) {
+        return trailSize - changeMarks[changeCount - changes];
     }
 
     public int getId() {
         return id;
     }
 
-    public ArrayDeque<Integer> getDomain() {
+    public Domain getDomain() {
         return domain;
     }
 
@@ -115,16 +209,36 @@ public class Variable {
         return false;
     }
 
-    private void saveDomainHistory() {
-        ArrayDeque<Integer> clone = domain.clone();
-        domainHistory.addLast(clone);
+    private void beginChange() {
+        if (changeCount == changeMarks.length) {
+            // only reached when changes remove no values, e.g. assigning a singleton domain
+            changeMarks = Arrays.copyOf(changeMarks, changeCount * 2);
+        }
+        changeMarks[changeCount++] = trailSize;
+    }
+
+    /**
+     * Remove a value as part of a domain change, which begins with the first value removed.
+     * @return true, as the domain has changed
+     */
+    private boolean dropInChange(int val, boolean changed) {
+        if (!changed) {
+            beginChange();
+        }
+        dropVal(val);
+        return true;
+    }
+
+    private void dropVal(int val) {
+        domain.remove(val);
+        trail[trailSize++] = val;
     }
 
     public String toString() {
         StringBuffer result = new StringBuffer() ;
         result.append("Variable " + id + ":\n");
         result.append("[ ");
-        for (int d : domain) {
+        for (int d = domain.first(); d != Domain.NONE; d = domain.next(d)) {
             result.append(d + " ,");
         }
         result.append("]");
@@ -0,0 +1,104 @@
+package solver;
+import java.util.Random;
+
+/**
+ * @author Thao P. Nguyen
+ * A queue of the unassigned variables that polls the next variable to branch on.
+ * Variables are kept in an indexed min-heap by the key given by the ordering strategy, 
+ * ties broken by id unless randomized.
+ * Whenever a variable's domain changes, the solver calls update so that its key stays correct.
+ * 
+ * Adaptive strategies learn from the search through hooks called by the solver:
+ *   - onAssign and onUnassign: when a left branch assigns a variable and when it is undone
+ *   - onPruned: for each domain reduction made by propagation
+ *   - onWipeOut: when revising an arc wipes out the domain of its first variable
+ */
+public abstract class VariableOrdering {
+    protected final Variable[] variables;
+    private final IndexedMinHeap heap;
+
+    public VariableOrdering(Variable[] variables) {
+        this.variables = variables;
+        heap = new IndexedMinHeap(variables.length);
+    }
+
+    /**
+     * The priority of a variable, the smallest key being polled first.
+     */
+    protected abstract long key(Variable var);
+
+    /**
+     * Encode a non-negative ratio as a key, preserving order.
+     */
+    protected static long ratioKey(double ratio) {
+        return Double.doubleToLongBits(ratio);
+    }
+
+    /**
+     * Put all variables in the queue.
+     */
+    public void populate() {
+        for (Variable var : variables) {
+            add(var);
+        }
+    }
+
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    public Variable poll() {
+        return variables[heap.poll()];
+    }
+
+    public void add(Variable var) {
+        heap.add(var.getId(), key(var));
+    }
+
+    public void remove(Variable var) {
+        heap.remove(var.getId());
+    }
+
+    /**
+     * Recompute the key of a variable whose domain has changed, if it is in the queue.
+     */
+    public void update(Variable var) {
+        if (heap.contains(var.getId())) {
+            heap.update(var.getId(), key(var));
+        }
+    }
+
+    /**
+     * Break ties between variables with equal keys in a random order.
+     */
+    public void randomizeTies(Random random) {
+        int[] ranks = new int[variables.length];
+        for (int i = 0; i < ranks.length; i++) {
+            int j = random.nextInt(i + 1);
+            ranks[i] = ranks[j];
+            ranks[j] = i;
+        }
+        heap.setRanks(ranks);
+    }
+
+    /**
+     * Recompute the keys of all variables in the queue.
+     */
+    protected void updateAll() {
+        for (Variable var : variables) {
+            update(var);
+        }
+    }
+
+    public void onAssign(Variable var) {
+    }
+
+    public void onUnassign(Variable var) {
+    }
+
+    public void onPruned(Variable var) {
+    }
+
+    public void onWipeOut(Arc arc) {
+    }
+}
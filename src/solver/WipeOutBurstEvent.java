@@ -0,0 +1,34 @@
+package solver;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Thao P. Nguyen
+ * Flight Recorder event of a burst of failed branches, from the first failure after a node to the next node
+ * entered or the end of the run, so that thrashing shows on the timeline of the search. Bursts of fewer than
+ * Solver.MIN_BURST_FAILURES failed branches are not recorded, nor is the stack trace of any burst, as they
+ * can be frequent.
+ */
+@Name("csp.WipeOutBurst")
+@Label("Wipe-out Burst")
+@Category({"CSP Solver", "Search"})
+@Description("Failed branches in a row, without entering a node")
+@StackTrace(false)
+final class WipeOutBurstEvent extends jdk.jfr.Event {
+    @Label("Failed Branches")
+    int failures;
+
+    @Label("Wipe-outs")
+    @Description("Failed branches that wiped out a domain, the others failed on a nogood")
+    int wipeOuts;
+
+    @Label("From Depth")
+    int fromDepth;
+
+    @Label("To Depth")
+    @Description("Shallowest depth the burst has backtracked to")
+    int toDepth;
+}
@@ -0,0 +1,83 @@
+package reader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import generator.QueensGenerator;
+import generator.RandomCSPGenerator;
+import generator.SudokuGenerator;
+import solver.FCSolver;
+import solver.Solver;
+
+/**
+ * @author Thao P. Nguyen
+ * Round trip of the binary format: problems written by BinaryCSPWriter, with and without pre-built bit matrices,
+ * are mapped back by MappedBinaryCSPReader with the same domains, scopes, tuples and intensional constraints,
+ * and the same solutions.
+ */
+public class BinaryCSPWriterTest {
+  @TempDir
+  Path dir ;
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void roundTripsQueens(boolean matrices) throws IOException {
+    assertRoundTrip(QueensGenerator.generate(8, false), matrices) ;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void roundTripsIntensionalQueens(boolean matrices) throws IOException {
+    assertRoundTrip(QueensGenerator.generate(8, true), matrices) ;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void roundTripsSudoku(boolean matrices) throws IOException {
+    assertRoundTrip(new SudokuGenerator(3, false).generate(SudokuGenerator.Difficulty.EASY, true, 7), matrices) ;
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void roundTripsRandom(boolean matrices) throws IOException {
+    assertRoundTrip(new RandomCSPGenerator(12, 6, 0.5, 0.3).generate(11), matrices) ;
+  }
+
+  private void assertRoundTrip(BinaryCSP expected, boolean matrices) throws IOException {
+    String fn = dir.resolve("problem" + BinaryCSPFormat.EXTENSION).toString() ;
+    new BinaryCSPWriter().write(expected, fn, matrices) ;
+    BinaryCSP mapped = new MappedBinaryCSPReader().readBinaryCSP(fn) ;
+    assertNotNull(mapped) ;
+
+    assertEquals(expected.getNoVariables(), mapped.getNoVariables(), "variables") ;
+    for (int var = 0; var < expected.getNoVariables(); var++) {
+      assertEquals(expected.getLB(var), mapped.getLB(var), "lower bound of " + var) ;
+      assertEquals(expected.getUB(var), mapped.getUB(var), "upper bound of " + var) ;
+    }
+    assertEquals(expected.getConstraints().size(), mapped.getConstraints().size(), "constraints") ;
+    for (int k = 0; k < expected.getConstraints().size(); k++) {
+      BinaryConstraint c = expected.getConstraints().get(k) ;
+      BinaryConstraint m = mapped.getConstraints().get(k) ;
+      assertEquals(c.getFirstVar(), m.getFirstVar(), "first variable of constraint " + k) ;
+      assertEquals(c.getSecondVar(), m.getSecondVar(), "second variable of constraint " + k) ;
+      assertEquals(c.getFirstVals(), m.getFirstVals(), "first values of constraint " + k) ;
+      assertEquals(c.getSecondVals(), m.getSecondVals(), "second values of constraint " + k) ;
+    }
+    assertEquals(expected.getIntensionalConstraints(), mapped.getIntensionalConstraints(), "intensional constraints") ;
+    assertEquals(countSolutions(expected), countSolutions(mapped), "solutions") ;
+  }
+
+  private static long countSolutions(BinaryCSP csp) {
+    Solver solver = new FCSolver(csp) ;
+    solver.setPrintStats(false) ;
+    solver.setCountOnly(true) ;
+    solver.solve(false, false) ;
+    return solver.getSolutionCounts() ;
+  }
+}
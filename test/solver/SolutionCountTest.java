@@ -0,0 +1,143 @@
+package solver;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import generator.QueensGenerator;
+import reader.BinaryCSP;
+import reader.BinaryConstraint;
+import reader.FastBinaryCSPReader;
+import reader.IntensionalConstraint;
+
+/**
+ * @author Thao P. Nguyen
+ * Solution counts of known problems with every kind of search: 8-Queens has 92 solutions, sudokuExtreme.csp
+ * a unique one, and a problem of independent components the product of their counts.
+ * Each search counts them only, and collects them as distinct solutions.
+ */
+public class SolutionCountTest {
+    // 6-Queens, 5-Queens, a free variable of 3 values and intensional 4-Queens
+    private static final long COMPONENT_SOLUTIONS = 4 * 10 * 3 * 2;
+
+    enum Search {
+        FC, MAC, CBJ, PARALLEL_FC, PARALLEL_MAC, COMPONENTS
+    }
+
+    @ParameterizedTest
+    @EnumSource(Search.class)
+    public void countsQueens(Search search) {
+        assertCounts(92, QueensGenerator.generate(8, false), search);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Search.class)
+    public void countsSudoku(Search search) throws URISyntaxException {
+        String fileName = Paths.get(SolutionCountTest.class.getResource("/instances/sudokuExtreme.csp").toURI())
+                               .toString();
+        assertCounts(1, new FastBinaryCSPReader().readBinaryCSP(fileName), search);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Search.class)
+    public void countsComponents(Search search) {
+        assertCounts(COMPONENT_SOLUTIONS, components(), search);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Search.class)
+    public void stopsAtSolutionLimit(Search search) {
+        assertEquals(BigInteger.valueOf(5), count(QueensGenerator.generate(8, false), search, 5, true));
+        assertEquals(BigInteger.valueOf(5), count(components(), search, 5, false));
+    }
+
+    @Test
+    public void findsComponents() {
+        assertEquals(4, new ArcsCurator(components()).getComponents().length);
+    }
+
+    private static void assertCounts(long expected, BinaryCSP csp, Search search) {
+        assertEquals(BigInteger.valueOf(expected), count(csp, search, Long.MAX_VALUE, true), "counted");
+        assertEquals(BigInteger.valueOf(expected), count(csp, search, Long.MAX_VALUE, false), "collected");
+    }
+
+    /**
+     * @return the number of solutions counted, or of distinct solutions collected
+     */
+    private static BigInteger count(BinaryCSP csp, Search search, long maxSolutions, boolean countOnly) {
+        SolverConfiguration configuration = new SolverConfiguration(search != Search.MAC 
+                                                                    && search != Search.PARALLEL_MAC,
+                                                                    OrderingStrategy.DOM, RevisionAlgorithm.AC3);
+        configuration.setMaxSolutions(maxSolutions);
+        ArrayDeque<HashMap<Integer, Integer>> solutions;
+        BigInteger counted;
+        switch (search) {
+            case PARALLEL_FC:
+            case PARALLEL_MAC:
+                ParallelSolver parallelSolver = new ParallelSolver(csp, configuration, 3);
+                parallelSolver.setPrintStats(false);
+                parallelSolver.setCountOnly(countOnly);
+                solutions = parallelSolver.solve(false);
+                counted = BigInteger.valueOf(parallelSolver.getSolutionCounts());
+                break;
+            case COMPONENTS:
+                ComponentSolver componentSolver = new ComponentSolver(csp, configuration, 2);
+                componentSolver.setPrintStats(false);
+                componentSolver.setCountOnly(countOnly);
+                solutions = componentSolver.solve(false);
+                counted = componentSolver.getSolutionCounts();
+                break;
+            default:
+                Solver solver = search == Search.CBJ ? configuration.configure(new CBJSolver(csp))
+                                                     : configuration.createSolver(csp);
+                solver.setPrintStats(false);
+                solver.setCountOnly(countOnly);
+                solutions = solver.solve(configuration.getOrdering(), false);
+                counted = BigInteger.valueOf(solver.getSolutionCounts());
+        }
+        if (countOnly) {
+            assertEquals(0, solutions.size(), "solutions collected while counting only");
+            return counted;
+        }
+        assertEquals(BigInteger.valueOf(solutions.size()), counted, "solutions counted and collected");
+        return BigInteger.valueOf(new HashSet<>(solutions).size());
+    }
+
+    /**
+     * The disjoint union of 6-Queens, 5-Queens, a free variable and 4-Queens with intensional constraints,
+     * with the variables of each part after those of the previous parts.
+     */
+    private static BinaryCSP components() {
+        BinaryCSP[] parts = {QueensGenerator.generate(6, false), QueensGenerator.generate(5, false),
+                             new BinaryCSP(new int[][] {{0, 2}}, new ArrayList<>()),
+                             QueensGenerator.generate(4, true)};
+        ArrayList<int[]> domainBounds = new ArrayList<>();
+        ArrayList<BinaryConstraint> constraints = new ArrayList<>();
+        ArrayList<IntensionalConstraint> intensionalConstraints = new ArrayList<>();
+        for (BinaryCSP part : parts) {
+            int offset = domainBounds.size();
+            for (int var = 0; var < part.getNoVariables(); var++) {
+                domainBounds.add(new int[] {part.getLB(var), part.getUB(var)});
+            }
+            for (BinaryConstraint c : part.getConstraints()) {
+                constraints.add(new BinaryConstraint(c.getFirstVar() + offset, c.getSecondVar() + offset,
+                                                     c.getFirstVals(), c.getSecondVals(),
+                                                     c.getMatrix(), c.getReversedMatrix()));
+            }
+            for (IntensionalConstraint c : part.getIntensionalConstraints()) {
+                intensionalConstraints.add(new IntensionalConstraint(c.getKind(), c.getFirstVar() + offset,
+                                                                     c.getSecondVar() + offset, c.getParams()));
+            }
+        }
+        return new BinaryCSP(domainBounds.toArray(new int[0][]), constraints, intensionalConstraints);
+    }
+}